@@ -0,0 +1,30 @@
+package com.polarbookshop.orderservice;
+
+import com.polarbookshop.orderservice.config.ClientProperties;
+import com.polarbookshop.orderservice.config.OrderProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+import java.util.Map;
+
+/*
+* 벤치마크에서 설정 데이터 빈을 만들 때 사용.
+* 스프링 부트의 Binder로 바인딩하므로 지정하지 않은 속성은 @DefaultValue의 기본값으로 채워진다.
+* */
+public final class BenchmarkProperties {
+
+    private BenchmarkProperties() {
+    }
+
+    public static OrderProperties orderProperties(Map<String, String> properties) {
+        return binder(properties).bindOrCreate("polar.order", OrderProperties.class);
+    }
+
+    public static ClientProperties clientProperties(Map<String, String> properties) {
+        return binder(properties).bindOrCreate("polar", ClientProperties.class);
+    }
+
+    private static Binder binder(Map<String, String> properties) {
+        return new Binder(new MapConfigurationPropertySource(properties));
+    }
+}
@@ -0,0 +1,65 @@
+package com.polarbookshop.orderservice.book;
+
+import com.polarbookshop.orderservice.BenchmarkProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+* 로컬 MockWebServer를 catalog-service 대신 사용하여 BookClient.getBookByIsbn의 비용 측정.
+* cached는 같은 ISBN을 반복 조회(캐시 hit)하고, uncached는 매번 다른 ISBN을 조회(HTTP 호출)한다.
+* */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BookClientBenchmark {
+    private MockWebServer mockWebServer;
+    private BookClient bookClient;
+    private final AtomicLong isbnSequence = new AtomicLong();
+
+    @Setup
+    public void setUp() throws IOException {
+        mockWebServer = new MockWebServer();
+        mockWebServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                var isbn = request.getPath().substring(request.getPath().lastIndexOf('/') + 1);
+                return new MockResponse()
+                        .addHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .setBody("""
+                                {"isbn": "%s", "title": "Title", "author": "Author", "price": 9.90}
+                                """.formatted(isbn));
+            }
+        });
+        mockWebServer.start();
+        var baseUrl = mockWebServer.url("/").toString();
+        var clientProperties = BenchmarkProperties.clientProperties(Map.of("polar.catalog-service-uri", baseUrl));
+        bookClient = new BookClient(WebClient.builder().baseUrl(baseUrl).build(), clientProperties, new SimpleMeterRegistry());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        mockWebServer.shutdown();
+    }
+
+    @Benchmark
+    public Book cached() {
+        return bookClient.getBookByIsbn("1234567890").block();
+    }
+
+    @Benchmark
+    public Book uncached() {
+        return bookClient.getBookByIsbn(String.valueOf(isbnSequence.incrementAndGet())).block();
+    }
+}
@@ -0,0 +1,117 @@
+package com.polarbookshop.orderservice.book;
+
+import com.polarbookshop.orderservice.BenchmarkProperties;
+import com.polarbookshop.orderservice.config.ClientConfig;
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPOutputStream;
+
+/*
+* 로컬 MockWebServer를 catalog-service 대신 사용하여, 여러 스레드가 동시에 POST /books/bulk를 호출할 때의 처리량을
+* WebClient 연결 설정별로 비교한다.
+* - default: 설정하지 않은 기본 연결 풀(이전의 ClientConfig)
+* - http11: polar.catalog-connection 기본값(연결 풀 설정, keep-alive, gzip 압축)
+* - h2c: 위 설정에 HTTP/2(prior knowledge)로 요청을 연결 하나에 다중화
+* */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(16)
+public class CatalogHttpClientBenchmark {
+    private static final int BOOK_COUNT = 50;
+
+    @Param({"default", "http11", "h2c"})
+    private String connection;
+
+    private MockWebServer mockWebServer;
+    private ConnectionProvider connectionProvider;
+    private WebClient webClient;
+    private List<String> isbns;
+
+    @Setup
+    public void setUp() throws IOException {
+        isbns = IntStream.range(0, BOOK_COUNT).mapToObj("%010d"::formatted).toList();
+        var body = isbns.stream()
+                .map("""
+                        {"isbn": "%s", "title": "Cloud Native Spring in Action", "author": "Thomas Vitale", "price": 9.90}"""::formatted)
+                .collect(Collectors.joining(",", "[", "]"))
+                .getBytes(StandardCharsets.UTF_8);
+        var gzippedBody = gzip(body);
+
+        mockWebServer = new MockWebServer();
+        if (connection.equals("h2c")) {
+            mockWebServer.setProtocols(List.of(Protocol.H2_PRIOR_KNOWLEDGE));
+        }
+        //Accept-Encoding에 gzip이 있으면 압축된 응답을 보냄
+        mockWebServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                var acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+                var response = new MockResponse().addHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+                if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                    return response.addHeader(HttpHeaders.CONTENT_ENCODING, "gzip").setBody(new Buffer().write(gzippedBody));
+                }
+                return response.setBody(new Buffer().write(body));
+            }
+        });
+        mockWebServer.start();
+
+        var baseUrl = mockWebServer.url("/").toString();
+        var builder = WebClient.builder().baseUrl(baseUrl);
+        if (!connection.equals("default")) {
+            var catalogConnection = BenchmarkProperties.clientProperties(Map.of(
+                    "polar.catalog-service-uri", baseUrl,
+                    "polar.catalog-connection.protocols", connection
+            )).catalogConnection();
+            connectionProvider = ClientConfig.connectionProvider(catalogConnection);
+            builder.clientConnector(new ReactorClientHttpConnector(ClientConfig.httpClient(connectionProvider, catalogConnection)));
+        }
+        webClient = builder.build();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (connectionProvider != null) {
+            connectionProvider.dispose();
+        }
+        mockWebServer.shutdown();
+    }
+
+    @Benchmark
+    public List<Book> bulkLookup() {
+        return webClient.post()
+                .uri("/books/bulk")
+                .bodyValue(isbns)
+                .retrieve()
+                .bodyToFlux(Book.class)
+                .collectList()
+                .block();
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        var compressed = new ByteArrayOutputStream();
+        try (var gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(body);
+        }
+        return compressed.toByteArray();
+    }
+}
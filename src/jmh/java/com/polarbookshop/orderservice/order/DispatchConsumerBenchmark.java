@@ -0,0 +1,64 @@
+package com.polarbookshop.orderservice.order;
+
+import com.polarbookshop.orderservice.BenchmarkProperties;
+import com.polarbookshop.orderservice.order.domain.Order;
+import com.polarbookshop.orderservice.order.domain.OrderMetrics;
+import com.polarbookshop.orderservice.order.domain.OrderService;
+import com.polarbookshop.orderservice.order.domain.OrderStatistics;
+import com.polarbookshop.orderservice.order.domain.OrderStatus;
+import com.polarbookshop.orderservice.order.domain.OrderUpdates;
+import com.polarbookshop.orderservice.order.event.OrderDispatchedMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/*
+* 메모리 기반 OrderRepository 위에서 consumeOrderDispatchedEvent 파이프라인(묶음 처리, 중복 제거, 상태 변경)의 비용 측정.
+* 호출마다 새로운 ACCEPTED 주문을 준비하므로, 측정값은 messageCount개의 메시지를 처리하는 데 걸린 시간이다.
+* */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DispatchConsumerBenchmark {
+
+    @Param({"1000"})
+    private int messageCount;
+
+    @Param({"1", "100"})
+    private int batchSize;
+
+    private OrderService orderService;
+    private InMemoryOrderRepository orderRepository;
+    private List<OrderDispatchedMessage> messages;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        orderRepository = new InMemoryOrderRepository();
+        var orderProperties = BenchmarkProperties.orderProperties(Map.of(
+                "polar.order.dispatch.batch-size", String.valueOf(batchSize),
+                "polar.order.dispatch.batch-timeout", "1ms"
+        ));
+        //발송 메시지 소비에는 장바구니 줄, catalog-service, outbox, idempotency 키가 사용되지 않고, 집계는 flush하지 않으므로 rollup 테이블도 필요 없음
+        orderService = new OrderService(orderRepository, null, null, null, orderProperties, new OrderMetrics(new SimpleMeterRegistry()),
+                null, new OrderStatistics(null, orderProperties), new OrderUpdates(orderProperties, new SimpleMeterRegistry()));
+        messages = orderRepository
+                .saveAll(LongStream.range(0, messageCount)
+                        .mapToObj(i -> Order.of("1234567890", "Title - Author", 9.90, 1, OrderStatus.ACCEPTED))
+                        .toList())
+                .map(order -> new OrderDispatchedMessage(order.id()))
+                .collectList()
+                .block();
+    }
+
+    @Benchmark
+    public List<Order> consumeOrderDispatchedEvent() {
+        return orderService.consumeOrderDispatchedEvent(Flux.fromIterable(messages))
+                .collectList()
+                .block();
+    }
+}
@@ -0,0 +1,200 @@
+package com.polarbookshop.orderservice.order;
+
+import com.polarbookshop.orderservice.order.domain.Order;
+import com.polarbookshop.orderservice.order.domain.OrderCursor;
+import com.polarbookshop.orderservice.order.domain.OrderRepository;
+import com.polarbookshop.orderservice.order.domain.OrderService;
+import com.polarbookshop.orderservice.order.domain.OrderStatus;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+* DB 없이 OrderService의 처리 비용만 측정하기 위한 메모리 기반 OrderRepository.
+* 벤치마크 용도로만 사용하며, 동시성 제어는 ConcurrentHashMap의 원자적 연산 수준으로만 보장한다.
+* */
+public class InMemoryOrderRepository implements OrderRepository {
+    private final Map<Long, Order> orders = new ConcurrentHashMap<>();
+    private final AtomicLong idSequence = new AtomicLong();
+
+    @Override
+    public <S extends Order> Mono<S> save(S order) {
+        return Mono.fromSupplier(() -> {
+            var now = Instant.now();
+            var id = order.id() == null ? idSequence.incrementAndGet() : order.id();
+            var createdDate = order.createdDate() == null ? now : order.createdDate();
+            @SuppressWarnings("unchecked")
+            var saved = (S) new Order(id, order.bookIsbn(), order.bookName(), order.bookPrice(), order.quantity(),
+                    order.status(), createdDate, now, order.version() + 1);
+            orders.put(id, saved);
+            return saved;
+        });
+    }
+
+    @Override
+    public <S extends Order> Flux<S> saveAll(Iterable<S> entities) {
+        return Flux.fromIterable(entities).concatMap(this::save);
+    }
+
+    @Override
+    public <S extends Order> Flux<S> saveAll(Publisher<S> entityStream) {
+        return Flux.from(entityStream).concatMap(this::save);
+    }
+
+    @Override
+    public Mono<Order> findById(Long id) {
+        return Mono.justOrEmpty(orders.get(id));
+    }
+
+    @Override
+    public Mono<Order> findById(Publisher<Long> id) {
+        return Mono.from(id).flatMap(this::findById);
+    }
+
+    @Override
+    public Mono<Boolean> existsById(Long id) {
+        return Mono.fromSupplier(() -> orders.containsKey(id));
+    }
+
+    @Override
+    public Mono<Boolean> existsById(Publisher<Long> id) {
+        return Mono.from(id).flatMap(this::existsById);
+    }
+
+    @Override
+    public Flux<Order> findAll() {
+        return Flux.fromIterable(orders.values());
+    }
+
+    @Override
+    public Flux<Order> findAllById(Iterable<Long> ids) {
+        return Flux.fromIterable(ids).flatMap(this::findById);
+    }
+
+    @Override
+    public Flux<Order> findAllById(Publisher<Long> idStream) {
+        return Flux.from(idStream).flatMap(this::findById);
+    }
+
+    @Override
+    public Mono<Long> count() {
+        return Mono.fromSupplier(() -> (long) orders.size());
+    }
+
+    @Override
+    public Mono<Void> deleteById(Long id) {
+        return Mono.fromRunnable(() -> orders.remove(id));
+    }
+
+    @Override
+    public Mono<Void> deleteById(Publisher<Long> id) {
+        return Mono.from(id).flatMap(this::deleteById);
+    }
+
+    @Override
+    public Mono<Void> delete(Order order) {
+        return deleteById(order.id());
+    }
+
+    @Override
+    public Mono<Void> deleteAllById(Iterable<? extends Long> ids) {
+        return Mono.fromRunnable(() -> ids.forEach(orders::remove));
+    }
+
+    @Override
+    public Mono<Void> deleteAll(Iterable<? extends Order> entities) {
+        return Mono.fromRunnable(() -> entities.forEach(order -> orders.remove(order.id())));
+    }
+
+    @Override
+    public Mono<Void> deleteAll(Publisher<? extends Order> entityStream) {
+        return Flux.from(entityStream).concatMap(this::delete).then();
+    }
+
+    @Override
+    public Mono<Void> deleteAll() {
+        return Mono.fromRunnable(orders::clear);
+    }
+
+    @Override
+    public Flux<Order> insertAll(List<Order> orders) {
+        return saveAll(orders);
+    }
+
+    @Override
+    public Flux<Order> findPage(OrderStatus status, String bookIsbn, OrderCursor after, int limit) {
+        return Flux.fromStream(() -> orders.values().stream()
+                .filter(order -> status == null || order.status() == status)
+                .filter(order -> bookIsbn == null || bookIsbn.equals(order.bookIsbn()))
+                .filter(order -> after == null || isBefore(order, after))
+                .sorted(Comparator.comparing(Order::createdDate).thenComparing(Order::id).reversed())
+                .limit(limit));
+    }
+
+    @Override
+    public Flux<Order> findCreatedBetween(Instant from, Instant to, OrderStatus status, int fetchSize) {
+        return Flux.fromStream(() -> orders.values().stream()
+                .filter(order -> status == null || order.status() == status)
+                .filter(order -> !order.createdDate().isBefore(from) && order.createdDate().isBefore(to))
+                .sorted(Comparator.comparing(Order::createdDate).thenComparing(Order::id)));
+    }
+
+    @Override
+    public Flux<Order> updateStatusToDispatched(Long[] ids, Instant lastModifiedDate) {
+        return Flux.defer(() -> {
+            var dispatchedOrders = new ArrayList<Order>();
+            for (var id : ids) {
+                orders.computeIfPresent(id, (key, order) -> {
+                    if (order.status() == OrderStatus.DISPATCHED) {
+                        return order; //이미 발송된 주문은 변경하지 않음
+                    }
+                    var dispatchedOrder = withModification(OrderService.buildDispatchedOrder(order), lastModifiedDate);
+                    dispatchedOrders.add(dispatchedOrder);
+                    return dispatchedOrder;
+                });
+            }
+            return Flux.fromIterable(dispatchedOrders);
+        });
+    }
+
+    //보관 테이블이 따로 없으므로 조건에 맞는 주문을 limit개까지 삭제만 함
+    @Override
+    public Mono<Integer> archiveDispatchedBefore(Instant createdBefore, int limit) {
+        return Mono.fromSupplier(() -> {
+            var archivedCount = 0;
+            for (var order : orders.values()) {
+                if (archivedCount == limit) {
+                    break;
+                }
+                if (order.status() == OrderStatus.DISPATCHED && order.createdDate().isBefore(createdBefore)
+                        && orders.remove(order.id(), order)) {
+                    archivedCount++;
+                }
+            }
+            return archivedCount;
+        });
+    }
+
+    @Override
+    public Mono<Void> createPartitions(int monthsAhead) {
+        return Mono.empty(); //메모리 저장소는 파티션이 없음
+    }
+
+    private static boolean isBefore(Order order, OrderCursor cursor) {
+        return order.createdDate().isBefore(cursor.createdDate())
+                || (order.createdDate().equals(cursor.createdDate()) && order.id() < cursor.id());
+    }
+
+    private static Order withModification(Order order, Instant lastModifiedDate) {
+        return new Order(order.id(), order.bookIsbn(), order.bookName(), order.bookPrice(), order.quantity(),
+                order.status(), order.createdDate(), lastModifiedDate, order.version() + 1);
+    }
+}
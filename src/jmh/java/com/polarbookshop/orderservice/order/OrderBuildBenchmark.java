@@ -0,0 +1,41 @@
+package com.polarbookshop.orderservice.order;
+
+import com.polarbookshop.orderservice.book.Book;
+import com.polarbookshop.orderservice.order.domain.Order;
+import com.polarbookshop.orderservice.order.domain.OrderService;
+import com.polarbookshop.orderservice.order.domain.OrderStatus;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+//주문 접수, 거부, 발송 시 Order 객체를 만드는 비용 측정
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OrderBuildBenchmark {
+    private Book book;
+    private Order acceptedOrder;
+
+    @Setup
+    public void setUp() {
+        book = new Book("1234567890", "Title", "Author", 9.90);
+        acceptedOrder = new Order(1L, book.isbn(), "Title - Author", book.price(), 1, OrderStatus.ACCEPTED,
+                Instant.now(), Instant.now(), 1);
+    }
+
+    @Benchmark
+    public Order buildAcceptedOrder() {
+        return OrderService.buildAcceptedOrder(book, 3);
+    }
+
+    @Benchmark
+    public Order buildRejectedOrder() {
+        return OrderService.buildRejectedOrder(book.isbn(), 3);
+    }
+
+    @Benchmark
+    public Order buildDispatchedOrder() {
+        return OrderService.buildDispatchedOrder(acceptedOrder);
+    }
+}
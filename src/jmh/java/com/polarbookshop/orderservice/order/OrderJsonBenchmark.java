@@ -0,0 +1,64 @@
+package com.polarbookshop.orderservice.order;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.polarbookshop.orderservice.order.domain.Order;
+import com.polarbookshop.orderservice.order.domain.OrderStatus;
+import com.polarbookshop.orderservice.order.event.OrderAcceptedMessage;
+import com.polarbookshop.orderservice.order.event.OrderDispatchedMessage;
+import com.polarbookshop.orderservice.order.web.OrderRequest;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+//REST API와 메시지 브로커에서 주고받는 객체의 JSON 직렬화/역직렬화 비용 측정
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OrderJsonBenchmark {
+    private ObjectMapper objectMapper;
+    private Order order;
+    private byte[] orderJson;
+    private byte[] orderRequestJson;
+    private OrderAcceptedMessage orderAcceptedMessage;
+    private byte[] orderDispatchedMessageJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        //스프링 부트가 자동 설정하는 ObjectMapper와 같은 모듈(JavaTimeModule 등)을 등록
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        order = new Order(394L, "1234567890", "Title - Author", 9.90, 1, OrderStatus.ACCEPTED,
+                Instant.now(), Instant.now(), 1);
+        orderJson = objectMapper.writeValueAsBytes(order);
+        orderRequestJson = objectMapper.writeValueAsBytes(new OrderRequest("1234567890", 1));
+        orderAcceptedMessage = new OrderAcceptedMessage(394L);
+        orderDispatchedMessageJson = objectMapper.writeValueAsBytes(new OrderDispatchedMessage(394L));
+    }
+
+    @Benchmark
+    public byte[] encodeOrder() throws IOException {
+        return objectMapper.writeValueAsBytes(order);
+    }
+
+    @Benchmark
+    public Order decodeOrder() throws IOException {
+        return objectMapper.readValue(orderJson, Order.class);
+    }
+
+    @Benchmark
+    public OrderRequest decodeOrderRequest() throws IOException {
+        return objectMapper.readValue(orderRequestJson, OrderRequest.class);
+    }
+
+    @Benchmark
+    public byte[] encodeOrderAcceptedMessage() throws IOException {
+        return objectMapper.writeValueAsBytes(orderAcceptedMessage);
+    }
+
+    @Benchmark
+    public OrderDispatchedMessage decodeOrderDispatchedMessage() throws IOException {
+        return objectMapper.readValue(orderDispatchedMessageJson, OrderDispatchedMessage.class);
+    }
+}
@@ -0,0 +1,54 @@
+package com.polarbookshop.orderservice.order;
+
+import com.polarbookshop.orderservice.order.event.BinaryOrderMessageCodec;
+import com.polarbookshop.orderservice.order.event.JsonOrderMessageCodec;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+//OutboxRelay의 묶음 하나(batch-size개 주문 id)를 JSON 메시지 여러 개로 보낼 때와 바이너리 메시지 하나로 보낼 때의 비용 비교
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OrderMessageCodecBenchmark {
+    @Param({"1", "100"})
+    private int orderCount;
+
+    private JsonOrderMessageCodec jsonCodec;
+    private BinaryOrderMessageCodec binaryCodec;
+    private List<Long> orderIds;
+    private List<byte[]> jsonPayloads;
+    private byte[] binaryPayload;
+
+    @Setup
+    public void setUp() {
+        jsonCodec = new JsonOrderMessageCodec(Jackson2ObjectMapperBuilder.json().build());
+        binaryCodec = new BinaryOrderMessageCodec();
+        orderIds = LongStream.range(1_000_000, 1_000_000 + orderCount).boxed().toList();
+        jsonPayloads = orderIds.stream().map(orderId -> jsonCodec.encode(List.of(orderId))).toList();
+        binaryPayload = binaryCodec.encode(orderIds);
+    }
+
+    @Benchmark
+    public List<byte[]> encodeJsonMessages() {
+        return orderIds.stream().map(orderId -> jsonCodec.encode(List.of(orderId))).toList();
+    }
+
+    @Benchmark
+    public byte[] encodeBinaryEnvelope() {
+        return binaryCodec.encode(orderIds);
+    }
+
+    @Benchmark
+    public List<List<Long>> decodeJsonMessages() {
+        return jsonPayloads.stream().map(jsonCodec::decode).toList();
+    }
+
+    @Benchmark
+    public List<Long> decodeBinaryEnvelope() {
+        return binaryCodec.decode(binaryPayload);
+    }
+}
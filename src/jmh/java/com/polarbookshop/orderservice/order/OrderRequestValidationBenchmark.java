@@ -0,0 +1,45 @@
+package com.polarbookshop.orderservice.order;
+
+import com.polarbookshop.orderservice.order.web.OrderRequest;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+//POST /orders 요청마다 실행되는 OrderRequest의 빈 유효성 검사 비용 측정
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OrderRequestValidationBenchmark {
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private OrderRequest validRequest;
+    private OrderRequest invalidRequest;
+
+    @Setup
+    public void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        validRequest = new OrderRequest("1234567890", 1);
+        invalidRequest = new OrderRequest("", 7);
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<OrderRequest>> validRequest() {
+        return validator.validate(validRequest);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<OrderRequest>> invalidRequest() {
+        return validator.validate(invalidRequest);
+    }
+}
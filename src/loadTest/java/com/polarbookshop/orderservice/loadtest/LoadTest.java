@@ -0,0 +1,190 @@
+package com.polarbookshop.orderservice.loadtest;
+
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.polarbookshop.orderservice.OrderServiceApplication;
+import com.polarbookshop.orderservice.config.OrderProperties;
+import com.polarbookshop.orderservice.order.event.OrderMessageCodecs;
+import com.polarbookshop.orderservice.order.web.OrderRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import okhttp3.mockwebserver.MockWebServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.cloud.stream.binder.test.InputDestination;
+import org.springframework.cloud.stream.binder.test.OutputDestination;
+import org.springframework.cloud.stream.binder.test.TestChannelBinderConfiguration;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+* 외부 시스템 없이 한 대의 리눅스 머신에서 실행하는 부하 테스트(./gradlew loadTest).
+* PostgreSQL은 임베디드 PostgreSQL로, catalog-service는 MockWebServer(StubCatalog)로, RabbitMQ는 Spring Cloud Stream test-binder로 대신하고
+* 애플리케이션을 같은 프로세스에서 띄운 뒤 두 가지 열린 모델 부하를 동시에 보낸다.
+* - POST /orders: 무작위 ISBN과 수량으로 주문
+* - order-dispatched: 발행된 order-accepted 이벤트의 주문에 대한 발송 메시지
+* 결과는 loadtest.results-file(기본 build/results/loadtest/results.json)에 JSON으로 저장한다.
+* 스키마가 파티셔닝과 PL/pgSQL 함수를 사용하므로 H2 같은 인메모리 DB 대신 설치 없이 jar에 포함된 바이너리로 실행하는 임베디드 PostgreSQL을 사용한다.
+* */
+public final class LoadTest {
+    private static final Logger log = LoggerFactory.getLogger(LoadTest.class);
+    private static final String ORDER_ACCEPTED = "order-accepted";
+    private static final String ORDER_DISPATCHED = "order-dispatched";
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(30);
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        var settings = LoadTestSettings.fromSystemProperties();
+        var objectMapper = JsonMapper.builder()
+                .findAndAddModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, SerializationFeature.WRITE_DURATIONS_AS_TIMESTAMPS)
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .build();
+        var stubCatalog = new StubCatalog(settings.catalog(), objectMapper);
+        try (var postgres = EmbeddedPostgres.builder().start();
+             var catalog = new MockWebServer()) {
+            catalog.setDispatcher(stubCatalog);
+            catalog.start();
+            try (var context = startApplication(postgres.getPort(), catalog.url("/").toString())) {
+                var results = run(settings, context, stubCatalog);
+                var resultsFile = Path.of(settings.resultsFile());
+                Files.createDirectories(resultsFile.toAbsolutePath().getParent());
+                objectMapper.writeValue(resultsFile.toFile(), results);
+                log.info("Load test results written to {}", resultsFile.toAbsolutePath());
+            }
+        }
+    }
+
+    //명령행 인자는 application.yaml보다 우선하므로 외부 시스템 주소를 임베디드 대체물로 바꿈
+    private static ConfigurableApplicationContext startApplication(int postgresPort, String catalogServiceUri) {
+        return new SpringApplicationBuilder(OrderServiceApplication.class, TestChannelBinderConfiguration.class)
+                .run(
+                        "--server.port=0",
+                        "--spring.r2dbc.url=r2dbc:postgresql://localhost:%d/postgres".formatted(postgresPort),
+                        "--spring.r2dbc.username=postgres",
+                        "--spring.r2dbc.password=postgres",
+                        "--spring.flyway.url=jdbc:postgresql://localhost:%d/postgres".formatted(postgresPort),
+                        "--spring.cloud.config.enabled=false",
+                        "--polar.catalog-service-uri=" + catalogServiceUri,
+                        "--polar.order.outbox.publisher-confirms=false" //test-binder는 브로커의 확인(publisher confirm)을 보내지 않음
+                );
+    }
+
+    private static LoadTestResults run(LoadTestSettings settings, ConfigurableApplicationContext context,
+                                       StubCatalog stubCatalog) throws InterruptedException {
+        var port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+        var webClient = WebClient.builder()
+                .baseUrl("http://localhost:" + port)
+                //응답을 기다리는 요청 수만큼 연결을 열 수 있어야 생성기가 연결 풀에서 기다리지 않음
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(ConnectionProvider.builder("loadtest")
+                        .maxConnections(settings.maxOutstanding())
+                        .pendingAcquireMaxCount(-1)
+                        .build())))
+                .build();
+        var input = context.getBean(InputDestination.class);
+        var output = context.getBean(OutputDestination.class);
+        var meterRegistry = context.getBean(MeterRegistry.class);
+        var codecs = context.getBean(OrderMessageCodecs.class);
+        //발송 메시지는 애플리케이션이 발행하는 것과 같은 형식으로 보냄
+        var dispatchCodec = codecs.forContentType(context.getBean(OrderProperties.class).outbox().contentType());
+
+        //발행된 order-accepted 이벤트를 읽어 발송 메시지를 보낼 주문 id로 사용
+        Queue<Long> acceptedOrders = new ConcurrentLinkedQueue<>();
+        var acceptedReader = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                var message = output.receive(100, ORDER_ACCEPTED);
+                if (message != null) {
+                    try {
+                        acceptedOrders.addAll(codecs.decode(message)); //envelope이면 메시지 하나에 여러 주문이 담겨 있음
+                    } catch (IllegalArgumentException exception) {
+                        log.warn("Failed to read order accepted event", exception);
+                    }
+                }
+            }
+        }, "loadtest-accepted-reader");
+        acceptedReader.setDaemon(true);
+        acceptedReader.start();
+
+        var orders = new OpenLoadGenerator("orders", settings.orderRate());
+        var dispatches = new OpenLoadGenerator("dispatches", settings.dispatchRate());
+        var startedAt = Instant.now();
+        log.info("Running load test for {} after {} warm-up: {} orders/s, {} dispatches/s",
+                settings.duration(), settings.warmup(), settings.orderRate(), settings.dispatchRate());
+        Mono.when(
+                orders.run(settings.warmup(), settings.duration(), settings.maxOutstanding(), () -> webClient.post()
+                        .uri("/orders")
+                        .bodyValue(randomOrder(settings))
+                        .retrieve()
+                        .toBodilessEntity()),
+                dispatches.run(settings.warmup(), settings.duration(), settings.maxOutstanding(), () -> {
+                    var orderId = acceptedOrders.poll();
+                    if (orderId == null) {
+                        return null; //아직 발송할 주문이 없음
+                    }
+                    return Mono.fromCallable(() -> dispatchCodec.encode(List.of(orderId)))
+                            .doOnNext(payload -> input.send(MessageBuilder.withPayload(payload)
+                                    .setHeader(MessageHeaders.CONTENT_TYPE, dispatchCodec.contentType())
+                                    .build(), ORDER_DISPATCHED));
+                })
+        ).block();
+
+        awaitDispatchDrained(meterRegistry);
+        acceptedReader.interrupt();
+
+        return new LoadTestResults(
+                startedAt,
+                settings,
+                List.of(orders.result(settings.duration()), dispatches.result(settings.duration())),
+                metrics(meterRegistry, stubCatalog)
+        );
+    }
+
+    private static OrderRequest randomOrder(LoadTestSettings settings) {
+        var random = ThreadLocalRandom.current();
+        return new OrderRequest("%010d".formatted(random.nextInt(settings.isbnCount())), random.nextInt(1, 6));
+    }
+
+    //발송 메시지는 비동기로 묶어서 처리되므로 남은 메시지가 처리될 때까지 기다린 뒤 메트릭을 읽음
+    private static void awaitDispatchDrained(MeterRegistry meterRegistry) throws InterruptedException {
+        var deadline = System.nanoTime() + DRAIN_TIMEOUT.toNanos();
+        var pending = meterRegistry.find("orders.dispatch.pending").gauge();
+        while (pending != null && pending.value() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+        }
+    }
+
+    private static Map<String, Double> metrics(MeterRegistry meterRegistry, StubCatalog stubCatalog) {
+        var metrics = new TreeMap<String, Double>();
+        meterRegistry.find("orders.submitted").counters()
+                .forEach(counter -> metrics.put("orders.submitted." + counter.getId().getTag("status"), counter.count()));
+        metrics.put("orders.dispatch.received", count(meterRegistry, "orders.dispatch.received"));
+        metrics.put("orders.dispatch.applied", count(meterRegistry, "orders.dispatch.applied"));
+        metrics.put("catalog.requests", (double) stubCatalog.requests());
+        return metrics;
+    }
+
+    private static double count(MeterRegistry meterRegistry, String name) {
+        return meterRegistry.find(name).counters().stream().mapToDouble(Counter::count).sum();
+    }
+}
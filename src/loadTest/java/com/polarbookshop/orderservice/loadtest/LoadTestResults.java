@@ -0,0 +1,17 @@
+package com.polarbookshop.orderservice.loadtest;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/*
+* 부하 테스트 결과 파일(JSON)의 내용.
+* 실행마다 결과를 비교할 수 있도록 설정과 시나리오별 처리량/지연 시간, 실행 후 애플리케이션 메트릭을 함께 기록한다.
+* */
+record LoadTestResults(
+        Instant startedAt,
+        LoadTestSettings settings,
+        List<OpenLoadGenerator.ScenarioResult> scenarios,
+        Map<String, Double> metrics
+) {
+}
@@ -0,0 +1,48 @@
+package com.polarbookshop.orderservice.loadtest;
+
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+import java.time.Duration;
+
+/*
+* 부하 테스트 설정. loadtest. 으로 시작하는 시스템 속성에서 바인딩하며(./gradlew loadTest -Ploadtest.order-rate=500),
+* 지정하지 않은 속성은 @DefaultValue의 기본값으로 채워진다.
+* */
+public record LoadTestSettings(
+        @DefaultValue("200")
+        int orderRate, //초당 POST /orders 요청 수
+        @DefaultValue("100")
+        int dispatchRate, //초당 발송 메시지 수
+        @DefaultValue("10s")
+        Duration warmup, //결과에 포함하지 않는 예열 시간
+        @DefaultValue("60s")
+        Duration duration, //예열 이후 측정 시간
+        @DefaultValue("10000")
+        int maxOutstanding, //응답을 기다리는 요청이 이 수를 넘으면 요청을 보내지 않고 dropped로 셈
+        @DefaultValue("1000")
+        int isbnCount, //주문에 사용할 서로 다른 ISBN 수
+        @DefaultValue("build/results/loadtest/results.json")
+        String resultsFile,
+        @DefaultValue
+        Catalog catalog
+) {
+
+    public record Catalog(
+            @DefaultValue("20ms")
+            Duration latency, //catalog-service 응답 지연 시간
+            @DefaultValue("10ms")
+            Duration latencyJitter, //latency에 더하는 0~latencyJitter 사이의 무작위 지연 시간
+            @DefaultValue("0.0")
+            double errorRate, //500 응답을 보내는 비율
+            @DefaultValue("0.05")
+            double notFoundRate //catalog-service에 없는 ISBN의 비율
+    ) {
+    }
+
+    public static LoadTestSettings fromSystemProperties() {
+        return new Binder(new MapConfigurationPropertySource(System.getProperties()))
+                .bindOrCreate("loadtest", LoadTestSettings.class);
+    }
+}
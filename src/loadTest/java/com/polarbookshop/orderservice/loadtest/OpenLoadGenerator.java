@@ -0,0 +1,121 @@
+package com.polarbookshop.orderservice.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/*
+* 열린 모델(open model)로 부하를 만드는 생성기.
+* 이전 요청의 응답을 기다리지 않고 rate에 맞춰 요청을 보내므로, 서비스가 느려져도 도착률은 줄어들지 않는다.
+* 지연 시간은 실제로 보낸 시각이 아니라 보냈어야 하는 시각부터 재므로 생성기가 밀려서 생기는 지연도 결과에 포함된다
+* (coordinated omission 보정).
+* 예열 시간 동안 보낸 요청은 결과에 포함하지 않는다.
+* */
+class OpenLoadGenerator {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final String name;
+    private final int rate;
+    private final Histogram latencies = new ConcurrentHistogram(3); //값이 커지면 범위를 자동으로 늘림
+    private final AtomicLong outstanding = new AtomicLong();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    OpenLoadGenerator(String name, int rate) {
+        this.name = name;
+        this.rate = rate;
+    }
+
+    /*
+    * warmup + duration 동안 초당 rate개의 요청을 보낸다.
+    * request가 null을 반환하면 보낼 요청이 없는 것이고, 응답을 기다리는 요청이 maxOutstanding개 이상이면 보내지 않으며,
+    * 두 경우 모두 dropped로 센다.
+    * */
+    Mono<Void> run(Duration warmup, Duration duration, int maxOutstanding, Supplier<Mono<?>> request) {
+        if (rate <= 0) {
+            return Mono.empty();
+        }
+        return Mono.defer(() -> {
+            var intervalNanos = Math.max(1, 1_000_000_000L / rate);
+            var start = System.nanoTime();
+            var measuredFrom = start + warmup.toNanos();
+            var total = warmup.plus(duration).toNanos() / intervalNanos;
+            return Flux.interval(Duration.ofNanos(intervalNanos))
+                    .take(total)
+                    .flatMap(tick -> send(start + (tick + 1) * intervalNanos, measuredFrom, maxOutstanding, request),
+                            Integer.MAX_VALUE) //응답을 기다리지 않고 다음 요청을 보냄
+                    .then();
+        });
+    }
+
+    private Mono<Void> send(long intendedStart, long measuredFrom, int maxOutstanding, Supplier<Mono<?>> request) {
+        var measured = intendedStart >= measuredFrom;
+        var call = outstanding.get() < maxOutstanding ? request.get() : null;
+        if (call == null) {
+            if (measured) {
+                dropped.incrementAndGet();
+            }
+            return Mono.empty();
+        }
+        outstanding.incrementAndGet();
+        return call
+                .doOnSuccess(ignored -> {
+                    if (measured) {
+                        succeeded.incrementAndGet();
+                        latencies.recordValue(System.nanoTime() - intendedStart);
+                    }
+                })
+                .doOnError(exception -> {
+                    if (measured) {
+                        failed.incrementAndGet();
+                    }
+                })
+                .onErrorResume(exception -> Mono.empty())
+                .doFinally(signal -> outstanding.decrementAndGet())
+                .then();
+    }
+
+    ScenarioResult result(Duration duration) {
+        return new ScenarioResult(
+                name,
+                rate,
+                succeeded.get(),
+                failed.get(),
+                dropped.get(),
+                succeeded.get() / (duration.toNanos() / 1_000_000_000.0),
+                new ScenarioResult.Latency(
+                        millis(latencies.getValueAtPercentile(50)),
+                        millis(latencies.getValueAtPercentile(90)),
+                        millis(latencies.getValueAtPercentile(99)),
+                        millis(latencies.getValueAtPercentile(99.9)),
+                        millis(latencies.getMaxValue()),
+                        latencies.getMean() / NANOS_PER_MILLI
+                )
+        );
+    }
+
+    private static double millis(long nanos) {
+        return nanos / NANOS_PER_MILLI;
+    }
+
+    //throughput은 측정 시간 동안 성공한 요청의 초당 수, latency는 밀리초 단위
+    record ScenarioResult(
+            String name,
+            int targetRate,
+            long succeeded,
+            long failed,
+            long dropped,
+            double throughput,
+            Latency latency
+    ) {
+
+        record Latency(double p50, double p90, double p99, double p999, double max, double mean) {
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.polarbookshop.orderservice.loadtest;
+
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import okhttp3.mockwebserver.MockWebServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+* 기본 모드와 시작 시간을 줄인 모드(AOT, AOT+CDS)를 같은 조건에서 번갈아 실행하여 비교하는 벤치마크(./gradlew startupBenchmark).
+* bootJar를 추출한 뒤 모드마다 새 JVM 프로세스로 애플리케이션을 띄우고, 준비 완료까지 걸린 시간과 첫 요청의 응답 시간을 잰다.
+* PostgreSQL은 임베디드 PostgreSQL로, catalog-service는 지연 없는 MockWebServer(StubCatalog)로 대신하며 RabbitMQ는 띄우지 않는다
+* (바인더는 백그라운드에서 연결을 재시도하고 readiness에는 포함되지 않음).
+* AOT+CDS 모드의 CDS 아카이브는 이미지 빌드와 같이 컨텍스트 refresh까지만 실행하는 학습 실행으로 만든다.
+* 결과는 startup.results-file(기본 build/results/startup/results.json)에 JSON으로 저장한다.
+* */
+public final class StartupBenchmark {
+    private static final Logger log = LoggerFactory.getLogger(StartupBenchmark.class);
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(10);
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(30);
+    private static final String ORDER_REQUEST = """
+            {"isbn": "0000000001", "quantity": 1}""";
+
+    private StartupBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        var settings = StartupBenchmarkSettings.fromSystemProperties();
+        if (settings.jar() == null) {
+            throw new IllegalArgumentException("startup.jar must point to the application jar");
+        }
+        var objectMapper = JsonMapper.builder()
+                .findAndAddModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, SerializationFeature.WRITE_DURATIONS_AS_TIMESTAMPS)
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .build();
+        var workDir = Path.of(settings.workDir()).toAbsolutePath();
+        var application = extract(Path.of(settings.jar()), workDir.resolve("application"), settings.readyTimeout());
+        var archive = workDir.resolve("application.jsa");
+        var logs = Files.createDirectories(workDir.resolve("logs"));
+        var http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        var stubCatalog = new StubCatalog(new LoadTestSettings.Catalog(Duration.ZERO, Duration.ZERO, 0.0, 0.0), objectMapper);
+        try (var postgres = EmbeddedPostgres.builder().start();
+             var catalog = new MockWebServer()) {
+            catalog.setDispatcher(stubCatalog);
+            catalog.start();
+            var applicationArgs = applicationArgs(postgres.getPort(), catalog.url("/").toString());
+            if (settings.modes().contains(StartupMode.AOT_CDS)) {
+                train(application, archive, applicationArgs, logs.resolve("training.log"), settings.readyTimeout());
+            }
+            //DB 마이그레이션과 파일 캐시가 첫 측정에만 포함되지 않도록 측정하지 않는 실행을 한 번 먼저 함
+            measure(0, http, application, StartupMode.DEFAULT, archive, applicationArgs, logs.resolve("priming.log"), settings.readyTimeout());
+
+            var startedAt = Instant.now();
+            Map<StartupMode, List<StartupBenchmarkResults.Run>> runs = new EnumMap<>(StartupMode.class);
+            for (int run = 1; run <= settings.runs(); run++) {
+                for (var mode : settings.modes()) {
+                    var logFile = logs.resolve("%s-%d.log".formatted(mode.name().toLowerCase(), run));
+                    var result = measure(run, http, application, mode, archive, applicationArgs, logFile, settings.readyTimeout());
+                    log.info("{} run {}: ready in {} ms, first order in {} ms", mode, run, result.timeToReady(), result.firstOrder());
+                    runs.computeIfAbsent(mode, key -> new ArrayList<>()).add(result);
+                }
+            }
+            var results = new StartupBenchmarkResults(startedAt, settings, runs.entrySet().stream()
+                    .map(entry -> StartupBenchmarkResults.ModeResult.of(entry.getKey(), entry.getValue()))
+                    .toList());
+            var resultsFile = Path.of(settings.resultsFile());
+            Files.createDirectories(resultsFile.toAbsolutePath().getParent());
+            objectMapper.writeValue(resultsFile.toFile(), results);
+            log.info("Startup benchmark results written to {}", resultsFile.toAbsolutePath());
+        }
+    }
+
+    //명령행 인자는 application.yaml보다 우선하므로 외부 시스템 주소를 임베디드 대체물로 바꾸고, polar.* 시스템 속성을 그대로 넘김
+    private static List<String> applicationArgs(int postgresPort, String catalogServiceUri) {
+        var args = new ArrayList<>(List.of(
+                "--spring.r2dbc.url=r2dbc:postgresql://localhost:%d/postgres".formatted(postgresPort),
+                "--spring.r2dbc.username=postgres",
+                "--spring.r2dbc.password=postgres",
+                "--spring.flyway.url=jdbc:postgresql://localhost:%d/postgres".formatted(postgresPort),
+                "--spring.cloud.config.enabled=false",
+                "--polar.catalog-service-uri=" + catalogServiceUri
+        ));
+        System.getProperties().stringPropertyNames().stream()
+                .filter(name -> name.startsWith("polar."))
+                .sorted()
+                .forEach(name -> args.add("--" + name + "=" + System.getProperty(name)));
+        return args;
+    }
+
+    //컨테이너 이미지와 같이 추출한 jar로 실행해야 CDS 아카이브를 사용할 수 있음(fat jar 안의 jar는 아카이브할 수 없음)
+    private static Path extract(Path jar, Path destination, Duration timeout) throws IOException, InterruptedException {
+        FileSystemUtils.deleteRecursively(destination);
+        run(List.of(javaCommand(), "-Djarmode=tools", "-jar", jar.toAbsolutePath().toString(),
+                "extract", "--destination", destination.toString()), destination.resolveSibling("extract.log"), timeout);
+        try (var files = Files.list(destination)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".jar"))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("No application jar extracted to " + destination));
+        }
+    }
+
+    //컨텍스트 refresh 직후 종료하는 학습 실행에서 로드된 클래스를 CDS 아카이브로 기록
+    private static void train(Path application, Path archive, List<String> applicationArgs, Path logFile, Duration timeout)
+            throws IOException, InterruptedException {
+        Files.deleteIfExists(archive);
+        var command = new ArrayList<>(List.of(javaCommand(), "-XX:ArchiveClassesAtExit=" + archive,
+                "-Dspring.context.exit=onRefresh", "-Dspring.aot.enabled=true", "-jar", application.toString()));
+        command.addAll(applicationArgs);
+        command.add("--server.port=0");
+        run(command, logFile, timeout);
+        if (!Files.exists(archive)) {
+            throw new IllegalStateException("Training run did not create " + archive + ", see " + logFile);
+        }
+    }
+
+    //준비 완료까지 걸린 시간, 첫 POST /orders와 GET /orders의 응답 시간(밀리초)
+    private static StartupBenchmarkResults.Run measure(int run, HttpClient http, Path application, StartupMode mode, Path archive,
+                                                       List<String> applicationArgs, Path logFile, Duration timeout) throws Exception {
+        var port = freePort();
+        var baseUri = URI.create("http://localhost:" + port);
+        var command = new ArrayList<String>();
+        command.add(javaCommand());
+        command.addAll(mode.jvmArgs(archive));
+        command.addAll(List.of("-jar", application.toString()));
+        command.addAll(applicationArgs);
+        command.add("--server.port=" + port);
+
+        var startedAt = System.nanoTime();
+        var process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(logFile.toFile()).start();
+        try {
+            var deadline = startedAt + timeout.toNanos();
+            while (!isReady(http, baseUri)) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("%s exited with %d before it was ready, see %s".formatted(mode, process.exitValue(), logFile));
+                }
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException("%s was not ready within %s, see %s".formatted(mode, timeout, logFile));
+                }
+                Thread.sleep(POLL_INTERVAL.toMillis());
+            }
+            var timeToReady = millisSince(startedAt);
+            var firstOrder = time(http, HttpRequest.newBuilder(baseUri.resolve("/orders"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(ORDER_REQUEST))
+                    .build(), logFile);
+            var firstOrderPage = time(http, HttpRequest.newBuilder(baseUri.resolve("/orders")).GET().build(), logFile);
+            return new StartupBenchmarkResults.Run(run, timeToReady, firstOrder, firstOrderPage);
+        } finally {
+            stop(process);
+        }
+    }
+
+    private static boolean isReady(HttpClient http, URI baseUri) throws IOException, InterruptedException {
+        try {
+            var response = http.send(HttpRequest.newBuilder(baseUri.resolve("/actuator/health/readiness")).GET().build(),
+                    HttpResponse.BodyHandlers.discarding());
+            return response.statusCode() == 200;
+        } catch (ConnectException exception) {
+            return false; //아직 서버가 포트를 열지 않음
+        }
+    }
+
+    private static double time(HttpClient http, HttpRequest request, Path logFile) throws IOException, InterruptedException {
+        var startedAt = System.nanoTime();
+        var response = http.send(request, HttpResponse.BodyHandlers.discarding());
+        var elapsed = millisSince(startedAt);
+        if (response.statusCode() / 100 != 2) {
+            throw new IllegalStateException("%s %s returned %d, see %s".formatted(request.method(), request.uri(), response.statusCode(), logFile));
+        }
+        return elapsed;
+    }
+
+    private static void run(List<String> command, Path logFile, Duration timeout) throws IOException, InterruptedException {
+        Files.createDirectories(logFile.toAbsolutePath().getParent());
+        var process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(logFile.toFile()).start();
+        if (!process.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            process.destroyForcibly();
+            throw new IllegalStateException("%s did not finish within %s, see %s".formatted(command, timeout, logFile));
+        }
+        if (process.exitValue() != 0) {
+            throw new IllegalStateException("%s exited with %d, see %s".formatted(command, process.exitValue(), logFile));
+        }
+    }
+
+    //SIGTERM으로 정상 종료시켜 다음 실행이 DB 연결과 포트를 두고 경쟁하지 않도록 함
+    private static void stop(Process process) throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(SHUTDOWN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+            process.destroyForcibly().waitFor();
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (var socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static String javaCommand() {
+        return Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    private static double millisSince(long startedAt) {
+        return (System.nanoTime() - startedAt) / 1_000_000.0;
+    }
+}
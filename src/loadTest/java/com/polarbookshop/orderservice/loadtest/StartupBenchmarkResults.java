@@ -0,0 +1,42 @@
+package com.polarbookshop.orderservice.loadtest;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/*
+* 시작 시간 벤치마크 결과 파일(JSON)의 내용, 시간은 모두 밀리초.
+* - timeToReady: 프로세스를 시작한 뒤 /actuator/health/readiness가 UP이 될 때까지(warm-up 포함)
+* - firstOrder, firstOrderPage: 준비된 뒤 처음 보낸 POST /orders와 GET /orders의 응답 시간
+* */
+record StartupBenchmarkResults(
+        Instant startedAt,
+        StartupBenchmarkSettings settings,
+        List<ModeResult> modes
+) {
+
+    record Run(int run, double timeToReady, double firstOrder, double firstOrderPage) {
+    }
+
+    record ModeResult(StartupMode mode, Summary timeToReady, Summary firstOrder, Summary firstOrderPage, List<Run> runs) {
+
+        static ModeResult of(StartupMode mode, List<Run> runs) {
+            return new ModeResult(mode, Summary.of(runs, Run::timeToReady), Summary.of(runs, Run::firstOrder),
+                    Summary.of(runs, Run::firstOrderPage), runs);
+        }
+    }
+
+    record Summary(double median, double min, double max) {
+
+        static Summary of(List<Run> runs, ToDoubleFunction<Run> value) {
+            var sorted = runs.stream().map(value::applyAsDouble).sorted(Comparator.naturalOrder()).toList();
+            if (sorted.isEmpty()) {
+                return new Summary(0, 0, 0);
+            }
+            var middle = sorted.size() / 2;
+            var median = sorted.size() % 2 == 1 ? sorted.get(middle) : (sorted.get(middle - 1) + sorted.get(middle)) / 2;
+            return new Summary(median, sorted.get(0), sorted.get(sorted.size() - 1));
+        }
+    }
+}
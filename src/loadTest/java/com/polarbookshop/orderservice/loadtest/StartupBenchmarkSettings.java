@@ -0,0 +1,32 @@
+package com.polarbookshop.orderservice.loadtest;
+
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+import java.time.Duration;
+import java.util.List;
+
+/*
+* 시작 시간 벤치마크 설정. startup. 으로 시작하는 시스템 속성에서 바인딩하며(./gradlew startupBenchmark -Pstartup.runs=10),
+* jar는 Gradle이 bootJar 결과물로 채운다.
+* */
+public record StartupBenchmarkSettings(
+        String jar, //측정할 bootJar
+        @DefaultValue("build/startup")
+        String workDir, //추출한 jar, CDS 아카이브, 실행별 로그를 두는 디렉터리
+        @DefaultValue("5")
+        int runs, //모드별 측정 횟수, 모드를 번갈아 가며 실행
+        @DefaultValue({"default", "aot", "aot-cds"})
+        List<StartupMode> modes,
+        @DefaultValue("120s")
+        Duration readyTimeout, //준비 완료(readiness UP)까지 기다리는 최대 시간
+        @DefaultValue("build/results/startup/results.json")
+        String resultsFile
+) {
+
+    public static StartupBenchmarkSettings fromSystemProperties() {
+        return new Binder(new MapConfigurationPropertySource(System.getProperties()))
+                .bindOrCreate("startup", StartupBenchmarkSettings.class);
+    }
+}
@@ -0,0 +1,19 @@
+package com.polarbookshop.orderservice.loadtest;
+
+import java.nio.file.Path;
+import java.util.List;
+
+//시작 시간 벤치마크에서 비교하는 실행 방법, 모두 추출한(extract) jar로 실행하므로 차이는 JVM 옵션뿐이다.
+enum StartupMode {
+    DEFAULT,
+    AOT, //빌드할 때 생성한 AOT 코드로 빈 정의 처리와 클래스패스 스캔을 건너뜀
+    AOT_CDS; //AOT에 더해 학습 실행으로 만든 CDS 아카이브에서 클래스를 읽음
+
+    List<String> jvmArgs(Path archive) {
+        return switch (this) {
+            case DEFAULT -> List.of();
+            case AOT -> List.of("-Dspring.aot.enabled=true");
+            case AOT_CDS -> List.of("-Dspring.aot.enabled=true", "-XX:SharedArchiveFile=" + archive);
+        };
+    }
+}
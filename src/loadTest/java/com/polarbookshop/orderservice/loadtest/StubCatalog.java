@@ -0,0 +1,84 @@
+package com.polarbookshop.orderservice.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.polarbookshop.orderservice.book.Book;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+* 부하 테스트에서 catalog-service 대신 MockWebServer가 사용하는 응답 규칙.
+* GET /books/{isbn}과 POST /books/bulk에 설정한 지연 시간만큼 늦게 응답하고, error-rate 비율만큼 500으로 응답한다.
+* ISBN의 해시로 존재 여부를 정하므로 같은 ISBN은 항상 같은 결과(Book 또는 404)를 받는다.
+* */
+class StubCatalog extends Dispatcher {
+    private static final String BOOKS_API = "/books/";
+    private static final String BOOKS_BULK_API = "/books/bulk";
+    private static final int BUCKETS = 10_000;
+
+    private final LoadTestSettings.Catalog settings;
+    private final ObjectMapper objectMapper;
+    private final AtomicLong requests = new AtomicLong();
+
+    StubCatalog(LoadTestSettings.Catalog settings, ObjectMapper objectMapper) {
+        this.settings = settings;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public MockResponse dispatch(RecordedRequest request) {
+        requests.incrementAndGet();
+        var path = request.getPath() == null ? "" : request.getPath();
+        if (ThreadLocalRandom.current().nextDouble() < settings.errorRate()) {
+            return delayed(new MockResponse().setResponseCode(500));
+        }
+        try {
+            if ("POST".equals(request.getMethod()) && BOOKS_BULK_API.equals(path)) {
+                var isbns = objectMapper.readValue(request.getBody().readUtf8(), String[].class);
+                return delayed(json(Arrays.stream(isbns).filter(this::exists).map(StubCatalog::book).toList()));
+            }
+            if ("GET".equals(request.getMethod()) && path.startsWith(BOOKS_API)) {
+                var isbn = path.substring(BOOKS_API.length());
+                return delayed(exists(isbn) ? json(book(isbn)) : new MockResponse().setResponseCode(404));
+            }
+        } catch (JsonProcessingException exception) {
+            return new MockResponse().setResponseCode(400);
+        }
+        return new MockResponse().setResponseCode(404);
+    }
+
+    long requests() {
+        return requests.get();
+    }
+
+    private boolean exists(String isbn) {
+        return Math.floorMod(isbn.hashCode(), BUCKETS) >= settings.notFoundRate() * BUCKETS;
+    }
+
+    private MockResponse json(Object body) throws JsonProcessingException {
+        return new MockResponse()
+                .addHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .setBody(objectMapper.writeValueAsString(body));
+    }
+
+    private MockResponse delayed(MockResponse response) {
+        var delay = settings.latency().toNanos();
+        var jitter = settings.latencyJitter().toNanos();
+        if (jitter > 0) {
+            delay += ThreadLocalRandom.current().nextLong(jitter);
+        }
+        return response.setHeadersDelay(delay, TimeUnit.NANOSECONDS);
+    }
+
+    private static Book book(String isbn) {
+        return new Book(isbn, "Title " + isbn, "Author", 9.90);
+    }
+}
@@ -0,0 +1,75 @@
+package com.polarbookshop.orderservice.book;
+
+import com.polarbookshop.orderservice.config.ClientProperties;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+* catalog-service에 동시에 보내는 요청 수를 AIMD 방식으로 조절하는 limiter.
+* 한도 안에서만 요청을 허용하고, 빠르게 성공한 응답마다 한도를 1/limit씩(한도만큼 성공하면 1) 늘리며,
+* 실패하거나 latency-threshold보다 느린 응답을 받으면 한도에 backoff-ratio를 곱해 줄인다.
+* 취소된 요청(예: 다른 요청이 먼저 응답한 경우)은 한도를 조절하지 않는다.
+* */
+class AdaptiveConcurrencyLimiter {
+    private final ClientProperties.CatalogConcurrencyLimit properties;
+    private final long latencyThresholdNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private double limit;
+
+    AdaptiveConcurrencyLimiter(ClientProperties.CatalogConcurrencyLimit properties) {
+        this.properties = properties;
+        this.latencyThresholdNanos = properties.latencyThreshold().toNanos();
+        this.limit = properties.initialLimit();
+    }
+
+    //한도를 넘지 않으면 요청 슬롯을 하나 차지하고 true를 반환
+    boolean tryAcquire() {
+        while (true) {
+            var current = inFlight.get();
+            if (current >= limit()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void onSuccess(long latencyNanos) {
+        var inFlightBeforeRelease = inFlight.getAndDecrement();
+        synchronized (this) {
+            if (latencyNanos > latencyThresholdNanos) {
+                decrease();
+            } else if (inFlightBeforeRelease >= limit / 2) { //한도를 충분히 사용하고 있을 때만 늘려서 한가할 때 한도가 무한히 커지지 않도록 함
+                limit = Math.min(properties.maxLimit(), limit + 1 / limit);
+            }
+        }
+    }
+
+    void onFailure() {
+        release();
+        synchronized (this) {
+            decrease();
+        }
+    }
+
+    void onIgnore() {
+        release();
+    }
+
+    synchronized int limit() {
+        return (int) limit;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    private void release() {
+        inFlight.decrementAndGet();
+    }
+
+    private void decrease() {
+        limit = Math.max(properties.minLimit(), limit * properties.backoffRatio());
+    }
+}
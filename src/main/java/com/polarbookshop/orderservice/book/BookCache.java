@@ -0,0 +1,75 @@
+package com.polarbookshop.orderservice.book;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.polarbookshop.orderservice.config.ClientProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/*
+* catalog-service에서 받은 Book을 ISBN 기준으로 보관하는 로컬 캐시.
+* 값이 Optional.empty()이면 catalog-service에 해당 책이 없다는 의미(404)이며, 짧은 TTL로 따로 보관한다(negative cache).
+* Caffeine의 AsyncCache는 같은 키에 대해 로딩 중인 CompletableFuture를 공유하기 때문에,
+* 동시에 들어온 같은 ISBN 조회는 하나의 WebClient 호출로 합쳐진다(single-flight).
+* 로딩이 실패(타임아웃, 재시도 소진 등)한 경우에는 캐시에 남기지 않으므로 다음 조회에서 다시 시도한다.
+* */
+class BookCache {
+    private final AsyncCache<String, Optional<Book>> cache;
+
+    BookCache(ClientProperties.BookCache properties) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.maximumSize()) //크기 기반 제거
+                .expireAfter(new BookExpiry(properties.ttl(), properties.negativeTtl())) //존재 여부에 따라 TTL을 다르게 적용
+                .recordStats() //hit, miss, eviction 횟수 기록
+                .buildAsync();
+    }
+
+    Mono<Optional<Book>> get(String isbn, Function<String, Mono<Optional<Book>>> loader) {
+        //한 구독자가 취소하더라도 같은 Future를 기다리는 다른 구독자에게 영향을 주지 않도록 취소를 전파하지 않음
+        return Mono.fromFuture(() -> cache.get(isbn, (key, executor) -> loader.apply(key).toFuture()), true);
+    }
+
+    //캐시에 없는 ISBN만 모아서 loader로 한 번에 조회, loader 결과에 없는 ISBN은 캐시에 남기지 않고 결과에서도 빠짐
+    Mono<Map<String, Optional<Book>>> getAll(Collection<String> isbns, Function<Set<String>, Mono<Map<String, Optional<Book>>>> loader) {
+        return Mono.fromFuture(() -> cache.getAll(isbns, (keys, executor) -> loader.apply(new LinkedHashSet<>(keys)).toFuture()), true);
+    }
+
+    CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+
+    //hit, miss, eviction 횟수와 캐시 크기를 cache.* 메트릭으로 노출
+    void bindTo(MeterRegistry meterRegistry) {
+        new CaffeineCacheMetrics<>(cache.synchronous(), "books", Tags.empty()).bindTo(meterRegistry);
+    }
+
+    private record BookExpiry(Duration ttl, Duration negativeTtl) implements Expiry<String, Optional<Book>> {
+
+        @Override
+        public long expireAfterCreate(String isbn, Optional<Book> book, long currentTime) {
+            return book.isPresent() ? ttl.toNanos() : negativeTtl.toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String isbn, Optional<Book> book, long currentTime, long currentDuration) {
+            return expireAfterCreate(isbn, book, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String isbn, Optional<Book> book, long currentTime, long currentDuration) {
+            return currentDuration; //조회는 만료 시간을 연장하지 않음
+        }
+    }
+}
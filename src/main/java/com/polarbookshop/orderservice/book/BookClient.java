@@ -1,41 +1,247 @@
 package com.polarbookshop.orderservice.book;
 
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.polarbookshop.orderservice.config.ClientProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
 
 import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 
 /*
 * WebClinet 빈의 Fluent API를 통해 catalog-service의 GET /books/{bookIsbn} 엔드포인트로 HTTP 요청을 보내는 BookClient 생성.
 * 최종적으로는 Mono 퍼블리셔로 포장된 Book 객체를 반환
+* 같은 ISBN에 대한 반복 조회는 BookCache를 통해 네트워크를 거치지 않고 처리한다.
+* 여러 ISBN은 catalog-service의 POST /books/bulk 엔드포인트(ISBN 배열을 받아 존재하는 Book 배열을 반환)로 한 번에 조회하며,
+* 해당 엔드포인트가 없으면(404, 405, 501) 일정 시간 동안 단건 조회로 대체한다.
+* 모든 요청은 CatalogCallGuard(서킷 브레이커와 adaptive concurrency limiter)를 거치므로 catalog-service가 불안정하면 바로 실패한다.
 * */
 
 @Component
 public class BookClient {
     private static final String BOOKS_ROOT_API = "/books/";
+    private static final String BOOKS_BULK_API = "/books/bulk";
     private final WebClient webClient; //ClientConfig에서 설정된 WebClinet 빈
+    private final BookCache bookCache;
+    private final ClientProperties.BookBatch bookBatch;
+    private final Function<String, Mono<Optional<Book>>> bookLoader; //캐시에 없는 단건 조회를 처리하는 loader
+    private final CatalogCallGuard catalogCallGuard;
+    private final BookRequestHedger hedger; //hedging을 사용하지 않는 경우 null
+    private final MeterRegistry meterRegistry;
+    private final Counter retryCounter;
+    private volatile Instant bulkRetryAt = Instant.MIN; //이 시각 전까지는 bulk 엔드포인트를 사용하지 않음
 
-    public BookClient(WebClient webClient) {
+    public BookClient(WebClient webClient, ClientProperties clientProperties, MeterRegistry meterRegistry) {
         this.webClient = webClient;
+        this.bookCache = new BookCache(clientProperties.bookCache());
+        this.bookCache.bindTo(meterRegistry);
+        this.bookBatch = clientProperties.bookBatch();
+        //micro-batching을 사용하면 서로 다른 ISBN의 동시 조회도 bulk 요청 하나로 합쳐짐
+        this.bookLoader = bookBatch.enabled()
+                ? new BookLookupBatcher(bookBatch, this::fetchBooksByIsbns)::lookup
+                : this::fetchBookByIsbn;
+        this.catalogCallGuard = new CatalogCallGuard(clientProperties.catalogCircuitBreaker(),
+                clientProperties.catalogConcurrencyLimit(), meterRegistry);
+        this.hedger = clientProperties.bookHedge().enabled() ? new BookRequestHedger(clientProperties.bookHedge(), meterRegistry) : null;
+        this.meterRegistry = meterRegistry;
+        this.retryCounter = Counter.builder("catalog.lookup.retries")
+                .description("Number of retried catalog-service lookups")
+                .register(meterRegistry);
     }
 
     public Mono<Book> getBookByIsbn(String isbn) {
+        return bookCache.get(isbn, bookLoader) //캐시에 없으면 catalog-service를 호출하고, 동시에 들어온 같은 ISBN 조회는 하나의 호출을 공유
+                .flatMap(Mono::justOrEmpty) //negative cache(404)는 빈 객체로 변환
+                .onErrorResume(Exception.class, exception -> Mono.empty()); //타임아웃 혹은 3회의 재시도 동안 오류가 발생하면 예외를 포착하고 빈 객체 반환
+    }
+
+    /*
+    * 여러 ISBN을 한 번에 조회하여 ISBN별 Book을 반환한다.
+    * 캐시에 있는 ISBN은 네트워크를 거치지 않고, 나머지는 max-size 단위의 bulk 요청으로 조회한다.
+    * catalog-service에 없거나 조회에 실패한 ISBN은 결과 Map에서 빠진다.
+    * */
+    public Mono<Map<String, Book>> getBooksByIsbns(Collection<String> isbns) {
+        return bookCache.getAll(isbns, this::fetchBooksByIsbns)
+                .map(books -> {
+                    Map<String, Book> found = new HashMap<>();
+                    books.forEach((isbn, book) -> book.ifPresent(b -> found.put(isbn, b)));
+                    return found;
+                })
+                .onErrorResume(Exception.class, exception -> Mono.just(Map.of())); //bulk 조회 전체가 실패하면 모든 ISBN을 없는 책으로 처리
+    }
+
+    //캐시에서 catalog-service의 hit, miss, eviction 횟수를 확인하기 위해 사용
+    public CacheStats cacheStats() {
+        return bookCache.stats();
+    }
+
+    /*
+    * 404는 Optional.empty()로 변환하여 negative cache에 보관되도록 하고,
+    * 타임아웃과 재시도 소진은 에러로 전달하여 캐시에 남지 않도록 한다.
+    * */
+    private Mono<Optional<Book>> fetchBookByIsbn(String isbn) {
+        //재시도와 타임아웃을 포함한 전체 조회 시간을 결과(outcome)별로 기록하고, JFR 레코딩에도 같은 결과로 남김
+        return Mono.defer(() -> {
+            var sample = Timer.start(meterRegistry);
+            var event = CatalogLookupEvent.single(isbn);
+            return requestBookByIsbn(isbn, event)
+                    .doOnSuccess(book -> {
+                        var outcome = book == null || book.isEmpty() ? "not_found" : "found";
+                        sample.stop(lookupTimer(outcome));
+                        event.end(outcome);
+                    })
+                    .doOnError(exception -> {
+                        sample.stop(lookupTimer(outcome(exception)));
+                        event.end(outcome(exception));
+                    });
+        });
+    }
+
+    private static String outcome(Throwable exception) {
+        if (exception instanceof TimeoutException) {
+            return "timeout";
+        }
+        return exception instanceof CatalogCallGuard.CatalogCallRejectedException ? "rejected" : "error";
+    }
+
+    private Timer lookupTimer(String outcome) {
+        return lookupTimer("single", outcome);
+    }
+
+    private Timer lookupTimer(String mode, String outcome) {
+        return Timer.builder("catalog.lookup")
+                .description("Time taken to look up a book in catalog-service, including retries")
+                .tag("mode", mode)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /*
+    * 요청한 모든 ISBN에 대해 결과를 채워서 반환한다. 응답에 없는 ISBN은 Optional.empty()로 negative cache에 보관되고,
+    * 단건 조회로 대체하던 중 실패한 ISBN은 결과에서 빼서 캐시에 남지 않도록 한다.
+    * */
+    private Mono<Map<String, Optional<Book>>> fetchBooksByIsbns(Set<String> isbns) {
+        if (Instant.now().isBefore(bulkRetryAt)) {
+            return fetchBooksOneByOne(isbns);
+        }
+        return Flux.fromIterable(isbns)
+                .buffer(bookBatch.maxSize()) //bulk 요청 하나가 너무 커지지 않도록 max-size 단위로 나눔
+                .flatMap(this::fetchBookChunk, bookBatch.maxConcurrency())
+                .flatMapIterable(Map::entrySet)
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue);
+    }
+
+    private Mono<Map<String, Optional<Book>>> fetchBookChunk(Collection<String> isbns) {
+        return Mono.defer(() -> {
+                    var sample = Timer.start(meterRegistry);
+                    var event = CatalogLookupEvent.bulk(isbns.size());
+                    return requestBooksByIsbns(isbns, event)
+                            .doOnSuccess(books -> {
+                                sample.stop(lookupTimer("bulk", "success"));
+                                event.end("success");
+                            })
+                            .doOnError(exception -> {
+                                sample.stop(lookupTimer("bulk", outcome(exception)));
+                                event.end(outcome(exception));
+                            });
+                })
+                .onErrorResume(BookClient::isBulkUnsupported, exception -> {
+                    //이전 버전의 catalog-service처럼 bulk 엔드포인트가 없으면 일정 시간 동안 단건 조회로 대체
+                    bulkRetryAt = Instant.now().plus(bookBatch.unsupportedRetryInterval());
+                    return fetchBooksOneByOne(isbns);
+                });
+    }
+
+    private Mono<Map<String, Optional<Book>>> fetchBooksOneByOne(Collection<String> isbns) {
+        return Flux.fromIterable(isbns)
+                .flatMap(isbn -> fetchBookByIsbn(isbn)
+                                .map(book -> Map.entry(isbn, book))
+                                .onErrorResume(Exception.class, exception -> Mono.empty()), //실패한 ISBN은 캐시에 남기지 않음
+                        bookBatch.fallbackConcurrency())
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue);
+    }
+
+    private Mono<Map<String, Optional<Book>>> requestBooksByIsbns(Collection<String> isbns, CatalogLookupEvent event) {
+        return webClient
+                .post()
+                .uri(BOOKS_BULK_API)
+                .bodyValue(isbns) //ISBN 배열을 JSON으로 전송
+                .retrieve()
+                .bodyToFlux(Book.class) //존재하는 Book만 배열로 반환됨
+                .collectMap(Book::isbn)
+                .map(found -> {
+                    Map<String, Optional<Book>> books = new HashMap<>();
+                    isbns.forEach(isbn -> books.put(isbn, Optional.ofNullable(found.get(isbn)))); //응답에 없는 ISBN은 존재하지 않는 책으로 기록
+                    return books;
+                })
+                .timeout(Duration.ofSeconds(3))
+                .transform(catalogCallGuard::guard)
+                .retryWhen(
+                        Retry.backoff(3, Duration.ofMillis(100))
+                                .filter(exception -> isRetryable(exception) && !isBulkUnsupported(exception))
+                                .doBeforeRetry(retrySignal -> {
+                                    retryCounter.increment();
+                                    event.retried();
+                                })
+                );
+    }
+
+    private static boolean isBulkUnsupported(Throwable exception) {
+        return exception instanceof WebClientResponseException responseException
+                && (responseException.getStatusCode().isSameCodeAs(HttpStatus.NOT_FOUND)
+                || responseException.getStatusCode().isSameCodeAs(HttpStatus.METHOD_NOT_ALLOWED)
+                || responseException.getStatusCode().isSameCodeAs(HttpStatus.NOT_IMPLEMENTED));
+    }
+
+    private Mono<Optional<Book>> requestBookByIsbn(String isbn, CatalogLookupEvent event) {
+        //hedging을 사용하면 응답이 늦을 때 같은 요청을 한 번 더 보내고 먼저 도착한 응답을 사용
+        var attempt = hedger != null ? hedger.hedge(() -> attemptBookByIsbn(isbn)) : attemptBookByIsbn(isbn);
+        return attempt
+                .retryWhen( //retryWhen이 timeout 뒤에 올 경우 각 재시도에 대한 timeout이 3초이며, 그 반대일 경우 요청보내고 모든 재시도까지 3초안에 해야함
+                        //exponential backoff를 retry 전략으로 사용, 100밀리초의 초기 백오프로 총 3회까지 시도
+                        Retry.backoff(3, Duration.ofMillis(100)) //timeout이 된 후 100ms 후에 재시도를 시도, 그 다음은 200ms
+                                .filter(BookClient::isRetryable) //기존처럼 타임아웃은 재시도하지 않음
+                                .doBeforeRetry(retrySignal -> {
+                                    retryCounter.increment();
+                                    event.retried();
+                                })
+                );
+    }
+
+    //한 번의 요청, 재시도와 hedge는 이 요청을 다시 구독하여 보냄
+    private Mono<Optional<Book>> attemptBookByIsbn(String isbn) {
         return webClient
                 .get()
                 .uri(BOOKS_ROOT_API + isbn)
                 .retrieve() //요청을 보내고 응답을 받음
                 .bodyToMono(Book.class) //받은 객체를 Mono<book>으로 반환
+                .map(Optional::of)
                 //실제 프로덕션 환경에서는 timout 설정을 외부화하여 애플리케이션을 다시 빌드하지 않고도 환경에 따라 값을 변경할 수 있게 함
-                .timeout(Duration.ofSeconds(3), Mono.empty()) //GET 요청에 대한 타임아웃 3초로 설정, 그리고 타임아웃에 대한 폴백으로 빈 결과를 반환
+                .timeout(Duration.ofSeconds(3)) //GET 요청에 대한 타임아웃 3초로 설정, 타임아웃은 캐싱하지 않도록 에러로 전달
+                .transform(catalogCallGuard::guard) //서킷이 열려 있거나 동시 요청 한도를 넘으면 요청을 보내지 않고 바로 실패
                 //retryWhen의 경우 404를 포함한 모든 에러에 대하여 재시도를 수행하기 때문에, 404같은 에러에 대하여 재시도를 안하도록 설정할 필요가 있음.
-                .onErrorResume(WebClientResponseException.NotFound.class, exception -> Mono.empty()) //404에러를 받으면 빈 객체를 반환
-                .retryWhen( //retryWhen이 timeout 뒤에 올 경우 각 재시도에 대한 timeout이 3초이며, 그 반대일 경우 요청보내고 모든 재시도까지 3초안에 해야함
-                        //exponential backoff를 retry 전략으로 사용, 100밀리초의 초기 백오프로 총 3회까지 시도
-                        Retry.backoff(3, Duration.ofMillis(100)) //timeout이 된 후 100ms 후에 재시도를 시도, 그 다음은 200ms
-                )
-                .onErrorResume(Exception.class, exception -> Mono.empty()); //3회의 재시도 동안 오류가 발생하면 예외를 포착하고 빈 객체 반환
+                //hedge도 404를 정상 응답으로 받아 먼저 도착한 응답이 될 수 있도록 요청 안에서 변환
+                .onErrorResume(WebClientResponseException.NotFound.class, exception -> Mono.just(Optional.empty())); //404에러를 받으면 존재하지 않는 책으로 기록
+    }
+
+    //타임아웃과 CatalogCallGuard가 거절한 호출은 재시도해도 부하만 늘어나므로 재시도하지 않음
+    private static boolean isRetryable(Throwable exception) {
+        return !(exception instanceof TimeoutException)
+                && !(exception instanceof CatalogCallGuard.CatalogCallRejectedException);
     }
 }
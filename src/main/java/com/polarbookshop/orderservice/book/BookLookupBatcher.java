@@ -0,0 +1,62 @@
+package com.polarbookshop.orderservice.book;
+
+import com.polarbookshop.orderservice.config.ClientProperties;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/*
+* 동시에 들어온 ISBN 조회를 잠깐(window) 모았다가 하나의 bulk 요청으로 합치는 micro-batcher.
+* window가 지나거나 max-size개가 모이면 bulk 요청을 보내고, 결과를 각 호출자의 Mono로 나눠서 돌려준다.
+* bulk 결과에 없는 ISBN(요청 실패)은 에러로 전달하여 캐시에 남지 않도록 한다.
+* */
+class BookLookupBatcher {
+    //여러 스레드에서 동시에 emit하면 실패할 수 있으므로 잠깐 재시도(busy looping)하도록 함
+    private static final Sinks.EmitFailureHandler RETRY_ON_CONCURRENT_EMIT = Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100));
+
+    private final Sinks.Many<Lookup> lookups = Sinks.many().unicast().onBackpressureBuffer();
+
+    BookLookupBatcher(ClientProperties.BookBatch properties,
+                      Function<Set<String>, Mono<Map<String, Optional<Book>>>> bulkLoader) {
+        lookups.asFlux()
+                //fairBackpressure를 사용해야 flatMap의 동시성 제한으로 요청이 없을 때 타이머에 의해 묶음이 넘치지 않음
+                .bufferTimeout(properties.maxSize(), properties.window(), true)
+                .flatMap(batch -> resolve(batch, bulkLoader), properties.maxConcurrency())
+                .subscribe();
+    }
+
+    Mono<Optional<Book>> lookup(String isbn) {
+        return Mono.defer(() -> {
+            var result = Sinks.<Optional<Book>>one();
+            lookups.emitNext(new Lookup(isbn, result), RETRY_ON_CONCURRENT_EMIT);
+            return result.asMono();
+        });
+    }
+
+    private Mono<Void> resolve(List<Lookup> batch, Function<Set<String>, Mono<Map<String, Optional<Book>>>> bulkLoader) {
+        var isbns = new LinkedHashSet<String>();
+        batch.forEach(lookup -> isbns.add(lookup.isbn()));
+        return bulkLoader.apply(isbns)
+                .doOnNext(books -> batch.forEach(lookup -> {
+                    var book = books.get(lookup.isbn());
+                    if (book != null) {
+                        lookup.result().tryEmitValue(book);
+                    } else {
+                        lookup.result().tryEmitError(new IllegalStateException("Book lookup failed for ISBN " + lookup.isbn()));
+                    }
+                }))
+                .doOnError(exception -> batch.forEach(lookup -> lookup.result().tryEmitError(exception)))
+                .onErrorResume(exception -> Mono.empty()) //한 묶음의 실패가 batcher 전체를 멈추지 않도록 함
+                .then();
+    }
+
+    private record Lookup(String isbn, Sinks.One<Optional<Book>> result) {
+    }
+}
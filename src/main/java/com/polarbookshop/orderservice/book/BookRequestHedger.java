@@ -0,0 +1,108 @@
+package com.polarbookshop.orderservice.book;
+
+import com.polarbookshop.orderservice.config.ClientProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/*
+* 느린 응답 하나가 꼬리 지연(p99)을 늘리지 않도록, 일정 시간 안에 응답이 없으면 같은 요청을 한 번 더 보내고(hedge)
+* 먼저 도착한 응답을 사용한다. 늦게 도착하는 쪽은 구독을 취소하여 요청을 끊는다.
+* hedge를 보내기까지의 시간은 설정값(delay) 혹은 최근 응답 시간의 p95이며,
+* 요청마다 budget-ratio만큼 쌓이는 예산(token bucket) 안에서만 hedge를 보내 catalog-service에 주는 추가 부하를 제한한다.
+* */
+class BookRequestHedger {
+    private static final int DELAY_REFRESH_INTERVAL = 16; //p95를 다시 계산하는 기록 간격
+    private final ClientProperties.BookHedge properties;
+    private final long[] latencies; //최근 성공한 요청들의 응답 시간(ns)을 담는 ring buffer
+    private int latencyCount;
+    private long hedgeDelayNanos;
+    private double budget;
+    private final Counter firedCounter;
+    private final Counter wonCounter;
+    private final Counter deniedCounter;
+
+    BookRequestHedger(ClientProperties.BookHedge properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.latencies = new long[properties.sampleSize()];
+        this.hedgeDelayNanos = properties.delay().toNanos();
+        this.budget = properties.maxBudget();
+        this.firedCounter = hedgeCounter("catalog.hedge.fired", "Hedged catalog-service requests sent", meterRegistry);
+        this.wonCounter = hedgeCounter("catalog.hedge.won", "Hedged catalog-service requests that answered first", meterRegistry);
+        this.deniedCounter = hedgeCounter("catalog.hedge.denied", "Hedged catalog-service requests skipped because the hedge budget was exhausted", meterRegistry);
+        Gauge.builder("catalog.hedge.delay", this, hedger -> hedger.hedgeDelay().toNanos() / 1e6)
+                .description("Current delay in milliseconds before a hedged catalog-service request is sent")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    /*
+    * request는 구독할 때마다 새 요청을 보내야 한다.
+    * hedge의 에러는 무시하고 원래 요청의 결과를 기다리며, 원래 요청의 에러는 그대로 전달하여 재시도와 타임아웃 처리를 유지한다.
+    * */
+    <T> Mono<T> hedge(Supplier<Mono<T>> request) {
+        return Mono.defer(() -> {
+            deposit();
+            var delay = hedgeDelay();
+            var primary = timed(request.get());
+            var hedged = Mono.delay(delay)
+                    .flatMap(tick -> {
+                        if (!tryWithdraw()) {
+                            deniedCounter.increment();
+                            return Mono.<T>never(); //예산이 없으면 원래 요청만 기다림
+                        }
+                        firedCounter.increment();
+                        return timed(request.get())
+                                .doOnNext(value -> wonCounter.increment()) //먼저 도착한 쪽만 값을 내보내므로 hedge가 이긴 경우
+                                .onErrorResume(exception -> Mono.never());
+                    });
+            return Mono.firstWithSignal(primary, hedged); //먼저 도착한 신호를 사용하고 나머지는 취소
+        });
+    }
+
+    synchronized Duration hedgeDelay() {
+        return Duration.ofNanos(hedgeDelayNanos);
+    }
+
+    private <T> Mono<T> timed(Mono<T> request) {
+        return Mono.defer(() -> {
+            var start = System.nanoTime();
+            return request.doOnNext(value -> recordLatency(System.nanoTime() - start));
+        });
+    }
+
+    private synchronized void recordLatency(long latencyNanos) {
+        latencies[latencyCount % latencies.length] = latencyNanos;
+        latencyCount++;
+        //표본이 충분히 쌓인 뒤부터 일정 간격으로 p95를 다시 계산
+        if (properties.adaptive() && latencyCount >= latencies.length && latencyCount % DELAY_REFRESH_INTERVAL == 0) {
+            var sorted = latencies.clone();
+            Arrays.sort(sorted);
+            var p95 = sorted[(int) Math.ceil(sorted.length * 0.95) - 1];
+            hedgeDelayNanos = Math.max(properties.minDelay().toNanos(), p95);
+        }
+    }
+
+    private synchronized void deposit() {
+        budget = Math.min(properties.maxBudget(), budget + properties.budgetRatio());
+    }
+
+    private synchronized boolean tryWithdraw() {
+        if (budget < 1) {
+            return false;
+        }
+        budget--;
+        return true;
+    }
+
+    private static Counter hedgeCounter(String name, String description, MeterRegistry meterRegistry) {
+        return Counter.builder(name)
+                .description(description)
+                .register(meterRegistry);
+    }
+}
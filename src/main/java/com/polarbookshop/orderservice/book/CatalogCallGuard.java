@@ -0,0 +1,127 @@
+package com.polarbookshop.orderservice.book;
+
+import com.polarbookshop.orderservice.config.ClientProperties;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+* catalog-service 호출 한 번(재시도 한 번)을 서킷 브레이커와 adaptive concurrency limiter로 감싼다.
+* 서킷이 열려 있거나 동시 요청 한도를 넘으면 네트워크를 거치지 않고 CatalogCallRejectedException으로 바로 실패하며,
+* 거절 이유는 catalog.lookup.rejected 메트릭의 reason 태그(circuit_open, concurrency_limit)로 기록된다.
+* 타임아웃, 연결 실패, 5xx만 catalog-service의 장애로 보고 4xx(404 등)는 정상 응답으로 취급한다.
+* */
+class CatalogCallGuard {
+    private static final Logger log = LoggerFactory.getLogger(CatalogCallGuard.class);
+    private final CircuitBreaker circuitBreaker;
+    private final AdaptiveConcurrencyLimiter limiter; //비활성화된 경우 null
+    private final Counter circuitOpenCounter;
+    private final Counter concurrencyLimitCounter;
+
+    CatalogCallGuard(ClientProperties.CatalogCircuitBreaker circuitBreakerProperties,
+                     ClientProperties.CatalogConcurrencyLimit concurrencyLimitProperties,
+                     MeterRegistry meterRegistry) {
+        var circuitBreakerRegistry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .failureRateThreshold(circuitBreakerProperties.failureRateThreshold())
+                .slowCallRateThreshold(circuitBreakerProperties.slowCallRateThreshold())
+                .slowCallDurationThreshold(circuitBreakerProperties.slowCallDurationThreshold())
+                .slidingWindowSize(circuitBreakerProperties.slidingWindowSize())
+                .minimumNumberOfCalls(circuitBreakerProperties.minimumNumberOfCalls())
+                .waitDurationInOpenState(circuitBreakerProperties.waitDurationInOpenState())
+                .permittedNumberOfCallsInHalfOpenState(circuitBreakerProperties.permittedCallsInHalfOpenState())
+                .recordException(CatalogCallGuard::isCatalogFailure)
+                .ignoreExceptions(CatalogCallRejectedException.class) //limiter가 거절한 호출은 서킷의 실패 비율에 포함하지 않음
+                .build());
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker("catalog");
+        this.circuitBreaker.getEventPublisher()
+                .onStateTransition(event -> log.warn("Catalog circuit breaker changed from {} to {}",
+                        event.getStateTransition().getFromState(), event.getStateTransition().getToState()));
+        //resilience4j.circuitbreaker.* 메트릭으로 서킷 상태, 실패 비율, 호출 수를 노출
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakerRegistry).bindTo(meterRegistry);
+
+        this.limiter = concurrencyLimitProperties.enabled() ? new AdaptiveConcurrencyLimiter(concurrencyLimitProperties) : null;
+        if (limiter != null) {
+            Gauge.builder("catalog.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::limit)
+                    .description("Current adaptive limit of in-flight catalog-service requests")
+                    .register(meterRegistry);
+            Gauge.builder("catalog.concurrency.in.flight", limiter, AdaptiveConcurrencyLimiter::inFlight)
+                    .description("Number of in-flight catalog-service requests")
+                    .register(meterRegistry);
+        }
+        this.circuitOpenCounter = rejectedCounter("circuit_open", meterRegistry);
+        this.concurrencyLimitCounter = rejectedCounter("concurrency_limit", meterRegistry);
+    }
+
+    <T> Mono<T> guard(Mono<T> call) {
+        return limit(call)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker)) //서킷이 열려 있으면 limiter에 도달하기 전에 실패
+                .onErrorMap(CallNotPermittedException.class, exception -> {
+                    circuitOpenCounter.increment();
+                    return new CatalogCallRejectedException("circuit_open", exception);
+                });
+    }
+
+    private <T> Mono<T> limit(Mono<T> call) {
+        if (limiter == null) {
+            return call;
+        }
+        return Mono.defer(() -> {
+            if (!limiter.tryAcquire()) {
+                concurrencyLimitCounter.increment();
+                return Mono.error(new CatalogCallRejectedException("concurrency_limit", null));
+            }
+            var start = System.nanoTime();
+            var failure = new AtomicReference<Throwable>();
+            return call
+                    .doOnError(failure::set)
+                    .doFinally(signal -> {
+                        switch (signal) {
+                            case ON_COMPLETE -> limiter.onSuccess(System.nanoTime() - start);
+                            case ON_ERROR -> {
+                                if (isCatalogFailure(failure.get())) {
+                                    limiter.onFailure();
+                                } else {
+                                    limiter.onSuccess(System.nanoTime() - start); //404 같은 4xx는 catalog-service가 정상적으로 응답한 것
+                                }
+                            }
+                            default -> limiter.onIgnore(); //취소된 요청은 한도를 조절하지 않음
+                        }
+                    });
+        });
+    }
+
+    private static Counter rejectedCounter(String reason, MeterRegistry meterRegistry) {
+        return Counter.builder("catalog.lookup.rejected")
+                .description("Catalog-service calls short-circuited without reaching the network")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    //타임아웃, 연결 실패, 5xx 응답만 catalog-service의 장애로 취급
+    static boolean isCatalogFailure(Throwable exception) {
+        return exception instanceof TimeoutException
+                || exception instanceof WebClientRequestException
+                || (exception instanceof WebClientResponseException responseException && responseException.getStatusCode().is5xxServerError());
+    }
+
+    //서킷 브레이커나 limiter가 네트워크를 거치지 않고 거절한 호출, 메시지에 거절 이유가 담김
+    static class CatalogCallRejectedException extends RuntimeException {
+        CatalogCallRejectedException(String reason, Throwable cause) {
+            super("Catalog call rejected: " + reason, cause, false, false); //빠른 실패가 목적이므로 스택 트레이스를 만들지 않음
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.polarbookshop.orderservice.book;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+* catalog-service 조회 한 번(재시도와 hedge 포함)을 JFR 레코딩에 남기는 이벤트.
+* 캐시에 있는 ISBN은 네트워크를 거치지 않으므로 기록하지 않는다.
+* 스택 트레이스를 남기지 않아 레코딩이 꺼져 있을 때는 거의 비용이 들지 않는다.
+* */
+@Name("com.polarbookshop.orderservice.CatalogLookup")
+@Label("Catalog Lookup")
+@Category({"Polar Bookshop", "Order Service"})
+@Description("Book lookup in catalog-service, including retries")
+@StackTrace(false)
+final class CatalogLookupEvent extends Event {
+
+    @Label("Mode")
+    @Description("single or bulk")
+    String mode;
+
+    @Label("ISBN")
+    @Description("Looked up ISBN, empty for bulk lookups")
+    String isbn;
+
+    @Label("ISBN Count")
+    int isbnCount;
+
+    @Label("Attempts")
+    int attempts = 1;
+
+    @Label("Outcome")
+    String outcome;
+
+    static CatalogLookupEvent single(String isbn) {
+        var event = new CatalogLookupEvent();
+        event.mode = "single";
+        event.isbn = isbn;
+        event.isbnCount = 1;
+        event.begin();
+        return event;
+    }
+
+    static CatalogLookupEvent bulk(int isbnCount) {
+        var event = new CatalogLookupEvent();
+        event.mode = "bulk";
+        event.isbnCount = isbnCount;
+        event.begin();
+        return event;
+    }
+
+    void retried() {
+        attempts++;
+    }
+
+    void end(String outcome) {
+        if (shouldCommit()) {
+            this.outcome = outcome;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.polarbookshop.orderservice.config;
+
+import com.polarbookshop.orderservice.order.web.AdmissionControlFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.PoolMetrics;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/*
+* POST /orders 등이 과부하일 때 503으로 거절하는 AdmissionControlFilter를 등록.
+* AOT는 @ConditionalOnProperty를 빌드할 때 확정하므로, 필터는 항상 등록하고 polar.order.admission.enabled는 필터가 실행할 때 확인한다.
+* */
+@Configuration
+public class AdmissionControlConfig {
+
+    @Bean
+    AdmissionControlFilter admissionControlFilter(OrderProperties orderProperties,
+                                                  ObjectProvider<ConnectionFactory> connectionFactoryProvider,
+                                                  MeterRegistry meterRegistry) {
+        //연결 풀을 사용하지 않으면(embedded-store 프로필 포함) 기다리는 요청 수를 알 수 없으므로 0으로 간주
+        var connectionFactory = connectionFactoryProvider.getIfAvailable();
+        return new AdmissionControlFilter(orderProperties.admission(), () -> connectionFactory instanceof ConnectionPool pool
+                ? pool.getMetrics().map(PoolMetrics::pendingAcquireSize).orElse(0)
+                : 0, meterRegistry);
+    }
+}
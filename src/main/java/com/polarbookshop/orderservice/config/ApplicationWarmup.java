@@ -0,0 +1,160 @@
+package com.polarbookshop.orderservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.polarbookshop.orderservice.book.Book;
+import com.polarbookshop.orderservice.order.domain.Order;
+import com.polarbookshop.orderservice.order.domain.OrderService;
+import com.polarbookshop.orderservice.order.web.OrderRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.ConnectionFactory;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/*
+* 배포 직후 첫 요청들이 JIT 컴파일, 비어 있는 연결 풀, Jackson 직렬화기 초기화 비용을 떠안지 않도록 시작할 때 미리 실행하는 warm-up.
+* - R2DBC 연결 풀을 initial-size까지 채우고 쿼리를 한 번 실행(R2DBC를 사용하지 않는 embedded-store 프로필에서는 건너뜀)
+* - catalog-service로 catalog-connections개의 요청을 동시에 보내 연결 풀을 채움(응답 상태는 무시)
+* - 주문 생성, Order/OrderRequest JSON 직렬화/역직렬화, OrderRequest 유효성 검사를 iterations번 실행
+* 끝나기 전까지는 WarmupHealthIndicator가 OUT_OF_SERVICE를 반환하므로 readiness 프로브가 실패하여 트래픽을 받지 않는다.
+* 각 단계는 실패해도 로그만 남기며, timeout이 지나면 끝나지 않은 단계를 중단하고 트래픽을 받는다.
+* */
+@Component
+public class ApplicationWarmup {
+    private static final Logger log = LoggerFactory.getLogger(ApplicationWarmup.class);
+    private static final byte[] ORDER_REQUEST_JSON = """
+            {"isbn": "1234567890", "quantity": 1}
+            """.getBytes(StandardCharsets.UTF_8);
+
+    private final WarmupProperties properties;
+    private final ConnectionFactory connectionFactory; //embedded-store 프로필에서는 null
+    private final DatabaseClient databaseClient;
+    private final WebClient webClient;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final MeterRegistry meterRegistry;
+    private volatile Duration duration; //warm-up이 끝나기 전에는 null
+    private Disposable warmup;
+
+    public ApplicationWarmup(WarmupProperties properties, ObjectProvider<ConnectionFactory> connectionFactory,
+                             ObjectProvider<DatabaseClient> databaseClient, WebClient webClient, ObjectMapper objectMapper,
+                             Validator validator, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.connectionFactory = connectionFactory.getIfAvailable();
+        this.databaseClient = databaseClient.getIfAvailable();
+        this.webClient = webClient;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!properties.enabled()) {
+            complete(Duration.ZERO);
+            return;
+        }
+        var startedAt = System.nanoTime();
+        warmup = Mono.when(
+                        step("database", fillDatabasePool()),
+                        step("catalog", fillCatalogPool()),
+                        step("order paths", Mono.fromRunnable(this::runOrderPaths).subscribeOn(Schedulers.boundedElastic()))
+                )
+                .timeout(properties.timeout(), Mono.fromRunnable(() ->
+                        log.warn("Warm-up did not finish within {}, accepting traffic anyway", properties.timeout())))
+                .doFinally(signal -> complete(Duration.ofNanos(System.nanoTime() - startedAt)))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (warmup != null) {
+            warmup.dispose();
+        }
+    }
+
+    public boolean isComplete() {
+        return duration != null;
+    }
+
+    //warm-up이 끝나기 전에는 null
+    public Duration duration() {
+        return duration;
+    }
+
+    private Mono<Void> step(String name, Mono<?> step) {
+        var startedAt = System.nanoTime();
+        return step
+                .doOnSuccess(result -> log.debug("Warm-up step '{}' finished in {} ms", name,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt)))
+                .onErrorResume(exception -> {
+                    log.warn("Warm-up step '{}' failed", name, exception);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private Mono<Void> fillDatabasePool() {
+        if (databaseClient == null) {
+            return Mono.empty();
+        }
+        var filled = connectionFactory instanceof ConnectionPool pool ? pool.warmup().then() : Mono.<Void>empty();
+        return filled.then(databaseClient.sql("SELECT 1").fetch().rowsUpdated().then());
+    }
+
+    //연결 수만큼 요청을 동시에 보내야 요청마다 새 연결이 열리고, keep-alive로 풀에 남음
+    private Mono<Void> fillCatalogPool() {
+        return Flux.range(0, properties.catalogConnections())
+                .flatMap(i -> webClient.head()
+                        .uri("/")
+                        .retrieve()
+                        .toBodilessEntity()
+                        .onErrorResume(WebClientResponseException.class, exception -> Mono.empty()), //응답을 받았으면 연결은 열린 것
+                        properties.catalogConnections())
+                .then();
+    }
+
+    //POST /orders와 GET /orders가 요청마다 실행하는 CPU 경로를 반복하여 JIT 컴파일을 유도
+    private void runOrderPaths() {
+        var book = new Book("1234567890", "Title", "Author", 9.90);
+        try {
+            for (var i = 0; i < properties.iterations(); i++) {
+                var orderRequest = objectMapper.readValue(ORDER_REQUEST_JSON, OrderRequest.class);
+                validator.validate(orderRequest);
+                var order = i % 2 == 0
+                        ? OrderService.buildAcceptedOrder(book, orderRequest.quantity())
+                        : OrderService.buildRejectedOrder(orderRequest.isbn(), orderRequest.quantity());
+                objectMapper.readValue(objectMapper.writeValueAsBytes(order), Order.class);
+            }
+        } catch (IOException exception) {
+            throw new IllegalStateException("Failed to run order paths during warm-up", exception);
+        }
+    }
+
+    private void complete(Duration duration) {
+        this.duration = duration;
+        TimeGauge.builder("application.warmup.time", duration, TimeUnit.MILLISECONDS, Duration::toMillis)
+                .description("Time taken to warm up the application before accepting traffic")
+                .register(meterRegistry);
+        log.info("Warm-up finished in {} ms, accepting traffic", duration.toMillis());
+    }
+}
@@ -1,20 +1,58 @@
 package com.polarbookshop.orderservice.config;
 
+import io.netty.channel.ChannelOption;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 //REST 클라이언트인 WebClient를 만들 수 있는 방법 중 WebClient.Builder를 사용
 @Configuration
 public class ClientConfig {
 
+    //catalog-service 전용 연결 풀, 애플리케이션이 종료될 때 연결을 모두 닫음
+    @Bean(destroyMethod = "dispose")
+    ConnectionProvider catalogConnectionProvider(ClientProperties clientProperties) {
+        return connectionProvider(clientProperties.catalogConnection());
+    }
+
     @Bean
     WebClient webClient(
             ClientProperties clientProperties,
+            ConnectionProvider catalogConnectionProvider,
             WebClient.Builder webClientBuilder  //WebClient 빈을 만들기 위해 스프링 부트가 자동 설정한 객체
     ) {
         return webClientBuilder
                 .baseUrl(clientProperties.catalogServiceUri().toString())
+                .clientConnector(new ReactorClientHttpConnector(
+                        httpClient(catalogConnectionProvider, clientProperties.catalogConnection())))
                 .build();
     }
+
+    /*
+    * 기본 연결 풀은 유휴 연결을 정리하지 않고 수명 제한도 없어서, catalog-service나 로드 밸런서가 먼저 닫은 연결을 재사용하다 실패하거나
+    * 요청이 몰릴 때 연결을 새로 맺고 닫기를 반복한다. 풀 크기와 대기열, 유휴/수명 제한을 설정으로 조절하고 풀 메트릭을 노출한다.
+    * */
+    public static ConnectionProvider connectionProvider(ClientProperties.CatalogConnection connection) {
+        return ConnectionProvider.builder("catalog")
+                .maxConnections(connection.maxConnections())
+                .pendingAcquireMaxCount(connection.pendingAcquireMaxCount())
+                .pendingAcquireTimeout(connection.pendingAcquireTimeout())
+                .maxIdleTime(connection.maxIdleTime())
+                .maxLifeTime(connection.maxLifeTime())
+                .evictInBackground(connection.evictionInterval())
+                .metrics(true) //reactor.netty.connection.provider.* 메트릭을 Micrometer 전역 레지스트리에 등록
+                .build();
+    }
+
+    public static HttpClient httpClient(ConnectionProvider connectionProvider, ClientProperties.CatalogConnection connection) {
+        return HttpClient.create(connectionProvider)
+                .protocol(connection.protocols().toArray(HttpProtocol[]::new))
+                .compress(connection.compression())
+                .keepAlive(connection.keepAlive())
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connection.connectTimeout().toMillis());
+    }
 }
@@ -2,12 +2,141 @@ package com.polarbookshop.orderservice.config;
 
 import jakarta.validation.constraints.NotNull;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import reactor.netty.http.HttpProtocol;
 
 import java.net.URI;
+import java.time.Duration;
+import java.util.List;
 
 @ConfigurationProperties(prefix = "polar") //@ConfigurationPropertiesScan를 @SpringBootApplication가 있는 곳에 추가해야 함
 public record ClientProperties(
         @NotNull
-        URI catalogServiceUri
+        URI catalogServiceUri,
+        @DefaultValue //설정이 없어도 기본값으로 채워진 객체가 바인딩되도록 함
+        BookCache bookCache,
+        @DefaultValue
+        BookBatch bookBatch,
+        @DefaultValue
+        CatalogCircuitBreaker catalogCircuitBreaker,
+        @DefaultValue
+        CatalogConcurrencyLimit catalogConcurrencyLimit,
+        @DefaultValue
+        BookHedge bookHedge,
+        @DefaultValue
+        CatalogConnection catalogConnection
 ) {
+    //catalog-service에서 받은 Book을 로컬에 캐싱할 때 사용하는 설정
+    public record BookCache(
+            @DefaultValue("10000")
+            long maximumSize, //캐시에 보관할 수 있는 최대 Book 수, 넘어가면 오래 사용되지 않은 항목부터 제거
+            @DefaultValue("10m")
+            Duration ttl, //존재하는 Book을 캐시에 보관하는 시간
+            @DefaultValue("30s")
+            Duration negativeTtl //catalog-service가 404로 응답한 ISBN을 캐시에 보관하는 시간
+    ) {
+    }
+
+    //동시에 들어온 ISBN 조회를 catalog-service의 bulk 엔드포인트(POST /books/bulk) 요청 하나로 합칠 때 사용하는 설정
+    public record BookBatch(
+            @DefaultValue("false")
+            boolean enabled, //단건 조회도 micro-batcher를 거쳐 bulk 요청으로 합칠지 여부
+            @DefaultValue("50")
+            int maxSize, //bulk 요청 하나에 담을 최대 ISBN 수
+            @DefaultValue("5ms")
+            Duration window, //bulk 요청을 보내기 전에 조회를 모으는 최대 시간
+            @DefaultValue("4")
+            int maxConcurrency, //동시에 보낼 수 있는 최대 bulk 요청 수
+            @DefaultValue("16")
+            int fallbackConcurrency, //bulk 엔드포인트가 없어 단건 조회로 대체할 때 동시에 보낼 수 있는 최대 요청 수
+            @DefaultValue("10m")
+            Duration unsupportedRetryInterval //bulk 엔드포인트가 없다고 판단한 뒤 다시 시도하기까지의 시간
+    ) {
+    }
+
+    //catalog-service가 불안정할 때 호출을 보내지 않고 바로 실패시키는 서킷 브레이커 설정
+    public record CatalogCircuitBreaker(
+            @DefaultValue("50")
+            float failureRateThreshold, //실패 비율(%)이 이 값 이상이면 서킷을 엶
+            @DefaultValue("100")
+            float slowCallRateThreshold, //느린 호출 비율(%)이 이 값 이상이면 서킷을 엶
+            @DefaultValue("2s")
+            Duration slowCallDurationThreshold, //이 시간보다 오래 걸린 호출을 느린 호출로 기록
+            @DefaultValue("20")
+            int slidingWindowSize, //실패 비율을 계산할 최근 호출 수
+            @DefaultValue("10")
+            int minimumNumberOfCalls, //실패 비율을 계산하기 위한 최소 호출 수
+            @DefaultValue("10s")
+            Duration waitDurationInOpenState, //서킷을 연 뒤 half-open으로 전환하기까지의 시간
+            @DefaultValue("3")
+            int permittedCallsInHalfOpenState //half-open 상태에서 시험 삼아 보내는 호출 수
+    ) {
+    }
+
+    /*
+    * catalog-service에 동시에 보내는 요청 수를 AIMD(Additive Increase Multiplicative Decrease) 방식으로 조절하는 설정.
+    * 응답이 빠르면 한도를 조금씩 늘리고, 실패하거나 latency-threshold보다 느리면 backoff-ratio만큼 줄인다.
+    * */
+    public record CatalogConcurrencyLimit(
+            @DefaultValue("true")
+            boolean enabled,
+            @DefaultValue("20")
+            int initialLimit, //시작 한도
+            @DefaultValue("2")
+            int minLimit, //한도의 하한
+            @DefaultValue("200")
+            int maxLimit, //한도의 상한
+            @DefaultValue("0.9")
+            double backoffRatio, //실패하거나 느린 응답을 받으면 한도에 곱하는 비율
+            @DefaultValue("500ms")
+            Duration latencyThreshold //이 시간보다 오래 걸린 응답은 과부하 신호로 보고 한도를 줄임
+    ) {
+    }
+
+    //단건 ISBN 조회가 늦어지면 같은 요청을 한 번 더 보내고 먼저 도착한 응답을 사용하는 hedging 설정
+    public record BookHedge(
+            @DefaultValue("false")
+            boolean enabled,
+            @DefaultValue("100ms")
+            Duration delay, //hedge를 보내기까지 기다리는 시간, adaptive인 경우 표본이 쌓이기 전까지 사용
+            @DefaultValue("true")
+            boolean adaptive, //최근 응답 시간의 p95를 hedge를 보내기까지의 시간으로 사용할지 여부
+            @DefaultValue("10ms")
+            Duration minDelay, //p95가 아무리 짧아도 이 시간보다 먼저 hedge를 보내지 않음
+            @DefaultValue("200")
+            int sampleSize, //p95를 계산할 최근 응답 수
+            @DefaultValue("0.1")
+            double budgetRatio, //요청 하나마다 쌓이는 hedge 예산, 0.1이면 요청 10개당 hedge 1개까지 허용
+            @DefaultValue("10")
+            double maxBudget //쌓아 둘 수 있는 최대 hedge 예산, 짧은 순간에 몰리는 hedge 수를 제한
+    ) {
+    }
+
+    /*
+    * catalog-service와의 HTTP 연결 설정(ClientConfig).
+    * 연결 풀의 상태는 reactor.netty.connection.provider.*{name="catalog"} 메트릭으로 노출된다.
+    * */
+    public record CatalogConnection(
+            @DefaultValue("100")
+            int maxConnections, //풀이 가질 수 있는 최대 연결 수
+            @DefaultValue("1000")
+            int pendingAcquireMaxCount, //연결을 기다릴 수 있는 최대 요청 수, 넘어가면 바로 실패
+            @DefaultValue("2s")
+            Duration pendingAcquireTimeout, //연결을 얻을 때까지 기다리는 최대 시간
+            @DefaultValue("30s")
+            Duration maxIdleTime, //이 시간 동안 사용되지 않은 연결은 닫음
+            @DefaultValue("5m")
+            Duration maxLifeTime, //연결을 맺은 지 이 시간이 지나면 닫아 catalog-service 인스턴스 사이에 연결이 다시 분산되도록 함
+            @DefaultValue("30s")
+            Duration evictionInterval, //유휴 연결과 수명이 다한 연결을 백그라운드에서 정리하는 주기
+            @DefaultValue("2s")
+            Duration connectTimeout, //TCP 연결을 맺을 때까지 기다리는 최대 시간
+            @DefaultValue("true")
+            boolean keepAlive, //응답을 받은 뒤 연결을 닫지 않고 풀에 돌려주어 재사용
+            @DefaultValue("HTTP11")
+            List<HttpProtocol> protocols, //h2c만 지정하면 prior knowledge로, h2c와 http11을 함께 지정하면 Upgrade로 HTTP/2를 사용
+            @DefaultValue("true")
+            boolean compression //Accept-Encoding: gzip을 보내고 압축된 응답을 풀어서 읽음
+    ) {
+    }
 }
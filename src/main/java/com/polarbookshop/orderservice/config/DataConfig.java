@@ -1,9 +1,32 @@
 package com.polarbookshop.orderservice.config;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
 import org.springframework.data.r2dbc.config.EnableR2dbcAuditing;
 
 @Configuration
+@Profile("!embedded-store") //embedded-store 프로필은 R2DBC와 Flyway를 사용하지 않음(EmbeddedOrderStoreConfig)
 @EnableR2dbcAuditing //지속성 entity에 대한 R2DBC Auditing 활성화
 public class DataConfig {
+    private static final Logger log = LoggerFactory.getLogger(DataConfig.class);
+
+    /*
+    * CDS 아카이브를 만드는 학습 실행(-Dspring.context.exit=onRefresh)은 컨텍스트를 만든 뒤 바로 종료하고 DB가 없을 수 있으므로 마이그레이션을 건너뛴다.
+    * AOT 모드에서는 spring.flyway.enabled가 빌드할 때 정해져 실행할 때 끌 수 없으므로 여기서 판단한다.
+    * */
+    @Bean
+    FlywayMigrationStrategy flywayMigrationStrategy(Environment environment) {
+        return flyway -> {
+            if (environment.containsProperty("spring.context.exit")) {
+                log.info("Skipping database migration during training run");
+                return;
+            }
+            flyway.migrate();
+        };
+    }
 }
@@ -0,0 +1,59 @@
+package com.polarbookshop.orderservice.config;
+
+import com.polarbookshop.orderservice.order.domain.AppendOnlyOrderRepository;
+import com.polarbookshop.orderservice.order.domain.EmbeddedIdempotencyKeyRepository;
+import com.polarbookshop.orderservice.order.domain.EmbeddedOrderLineRepository;
+import com.polarbookshop.orderservice.order.domain.EmbeddedOrderStatsRepository;
+import com.polarbookshop.orderservice.order.domain.EmbeddedOutboxRepository;
+import com.polarbookshop.orderservice.order.domain.EmbeddedStore;
+import com.polarbookshop.orderservice.order.domain.EmbeddedTransactionManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.io.IOException;
+
+/*
+* embedded-store 프로필이 활성화되면 PostgreSQL 없이 로컬 append-only 로그(EmbeddedStore)에 모든 데이터를 보관한다.
+* application.yaml의 embedded-store 문서에서 R2DBC, DataSource, Flyway 자동 설정을 제외하므로
+* 리포지토리와 트랜잭션 관리자는 여기서 등록한 EmbeddedStore 구현을 사용한다.
+* */
+@Configuration
+@Profile("embedded-store")
+public class EmbeddedOrderStoreConfig {
+
+    @Bean
+    EmbeddedStore embeddedStore(OrderProperties orderProperties) throws IOException {
+        return new EmbeddedStore(orderProperties);
+    }
+
+    @Bean
+    EmbeddedTransactionManager transactionManager(EmbeddedStore embeddedStore) {
+        return new EmbeddedTransactionManager(embeddedStore);
+    }
+
+    @Bean
+    AppendOnlyOrderRepository orderRepository(EmbeddedStore embeddedStore) {
+        return new AppendOnlyOrderRepository(embeddedStore);
+    }
+
+    @Bean
+    EmbeddedOrderLineRepository orderLineRepository(EmbeddedStore embeddedStore) {
+        return new EmbeddedOrderLineRepository(embeddedStore);
+    }
+
+    @Bean
+    EmbeddedOutboxRepository outboxRepository(EmbeddedStore embeddedStore) {
+        return new EmbeddedOutboxRepository(embeddedStore);
+    }
+
+    @Bean
+    EmbeddedIdempotencyKeyRepository idempotencyKeyRepository(EmbeddedStore embeddedStore) {
+        return new EmbeddedIdempotencyKeyRepository(embeddedStore);
+    }
+
+    @Bean
+    EmbeddedOrderStatsRepository orderStatsRepository(EmbeddedStore embeddedStore) {
+        return new EmbeddedOrderStatsRepository(embeddedStore);
+    }
+}
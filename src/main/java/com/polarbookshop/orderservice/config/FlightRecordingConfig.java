@@ -0,0 +1,59 @@
+package com.polarbookshop.orderservice.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Recording;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.HashMap;
+
+/*
+* polar.flight-recording.enabled가 true이면 애플리케이션이 시작할 때 계속 실행되는 JFR 레코딩을 시작한다.
+* JDK 기본 설정(default.jfc)에 주문 처리 단계별 이벤트 설정(jfr/order-service.jfc)을 더하므로
+* GC, 스레드 데이터와 함께 catalog 조회, 저장, 발행, 발송 반영 시간을 볼 수 있다.
+* 최근 max-age, max-size만큼만 보관하며, 애플리케이션이 종료되면 destination 파일로 기록한다.
+* 실행 중에는 jcmd <pid> JFR.dump name=order-service filename=<파일>로 내려받을 수 있다.
+* AOT는 @ConditionalOnProperty를 빌드할 때 확정하므로, 이 설정은 항상 등록하고 enabled는 시작할 때 확인한다.
+* */
+@Configuration
+public class FlightRecordingConfig {
+    private static final String SETTINGS = "jfr/order-service.jfc";
+
+    private final FlightRecordingProperties properties;
+    private Recording recording; //enabled가 false이면 null
+
+    public FlightRecordingConfig(FlightRecordingProperties properties) {
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    public void start() throws IOException, ParseException {
+        if (!properties.enabled()) {
+            return;
+        }
+        var settings = new HashMap<>(jdk.jfr.Configuration.getConfiguration("default").getSettings());
+        try (var reader = new InputStreamReader(new ClassPathResource(SETTINGS).getInputStream(), StandardCharsets.UTF_8)) {
+            settings.putAll(jdk.jfr.Configuration.create(reader).getSettings());
+        }
+        recording = new Recording(settings);
+        recording.setName("order-service");
+        recording.setToDisk(true);
+        recording.setMaxAge(properties.maxAge());
+        recording.setMaxSize(properties.maxSize().toBytes());
+        recording.setDestination(Path.of(properties.destination()));
+        recording.start();
+    }
+
+    @PreDestroy //중지하면서 destination 파일로 기록
+    public void stop() {
+        if (recording != null) {
+            recording.stop();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.polarbookshop.orderservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+//애플리케이션이 직접 시작하는 JFR 레코딩 설정(FlightRecordingConfig)
+@ConfigurationProperties(prefix = "polar.flight-recording")
+public record FlightRecordingProperties(
+        @DefaultValue("false")
+        boolean enabled, //시작할 때 JDK 기본 설정(default.jfc)과 jfr/order-service.jfc를 합친 레코딩을 시작할지 여부
+        @DefaultValue("1h")
+        Duration maxAge, //레코딩에 보관할 최대 기간
+        @DefaultValue("250MB")
+        DataSize maxSize, //레코딩에 보관할 최대 크기
+        @DefaultValue("order-service.jfr")
+        String destination //종료할 때 레코딩을 기록할 파일
+) {
+}
@@ -0,0 +1,193 @@
+package com.polarbookshop.orderservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.MimeType;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "polar.order")
+public record OrderProperties(
+        @DefaultValue
+        Batch batch,
+        @DefaultValue
+        Cart cart,
+        @DefaultValue
+        Page page,
+        @DefaultValue
+        Export export,
+        @DefaultValue
+        Dispatch dispatch,
+        @DefaultValue
+        Outbox outbox,
+        @DefaultValue
+        Idempotency idempotency,
+        @DefaultValue
+        Stats stats,
+        @DefaultValue
+        Archive archive,
+        @DefaultValue
+        Store store,
+        @DefaultValue
+        Updates updates,
+        @DefaultValue
+        Admission admission
+) {
+    //POST /orders/batch 로 여러 주문을 한 번에 접수할 때 사용하는 설정
+    public record Batch(
+            @DefaultValue("500")
+            int maxSize //한 요청에 담을 수 있는 최대 주문 수
+    ) {
+    }
+
+    //POST /orders/cart 로 여러 책을 주문 하나로 접수할 때 사용하는 설정
+    public record Cart(
+            @DefaultValue("50")
+            int maxLines //한 장바구니에 담을 수 있는 최대 줄 수
+    ) {
+    }
+
+    //GET /orders의 페이지 크기 설정
+    public record Page(
+            @DefaultValue("50")
+            int defaultLimit, //limit을 지정하지 않았을 때의 페이지 크기
+            @DefaultValue("500")
+            int maxLimit //limit으로 요청할 수 있는 최대 페이지 크기
+    ) {
+    }
+
+    //GET /orders/export 로 기간 안의 주문을 스트리밍으로 내보낼 때 사용하는 설정
+    public record Export(
+            @DefaultValue("500")
+            int fetchSize, //DB 커서에서 한 번에 가져오는 행 수
+            @DefaultValue("32KB")
+            DataSize chunkSize, //응답에 한 번에 쓰는 버퍼의 크기
+            @DefaultValue("true")
+            boolean compression //클라이언트가 Accept-Encoding: gzip을 보내면 응답을 gzip으로 압축
+    ) {
+    }
+
+    //order-dispatched 메시지를 주문 id별 rail로 나누고 묶어서 처리할 때 사용하는 설정
+    public record Dispatch(
+            @DefaultValue("100")
+            int batchSize, //한 번의 UPDATE로 처리할 최대 메시지 수
+            @DefaultValue("50ms")
+            Duration batchTimeout, //묶음이 가득 차지 않아도 처리를 시작하기까지 기다리는 최대 시간
+            @DefaultValue("4")
+            int rails, //메시지를 주문 id의 해시로 나누어 동시에 처리하는 rail 수, 동시에 사용하는 DB 연결 수와 같음
+            @DefaultValue("3")
+            int maxAttempts, //실패한 묶음과 메시지를 처리할 최대 시도 횟수, 모두 실패한 메시지는 dead-letter로 보냄
+            @DefaultValue("100ms")
+            Duration retryBackoff //첫 재시도까지 기다리는 시간, 재시도마다 두 배로 늘어남
+    ) {
+    }
+
+    //outbox 테이블의 order-accepted 이벤트를 메시지 브로커로 발행하는 OutboxRelay 설정
+    public record Outbox(
+            @DefaultValue("100")
+            int batchSize, //한 번에 잠그고 발행할 최대 이벤트 수
+            @DefaultValue("200ms")
+            Duration pollInterval, //발행할 이벤트를 확인하는 주기
+            @DefaultValue("true")
+            boolean publisherConfirms, //브로커의 확인(publisher confirm)을 받은 이벤트만 발행된 것으로 표시할지 여부
+            @DefaultValue("5s")
+            Duration confirmTimeout, //브로커의 확인을 기다리는 최대 시간
+            @DefaultValue("1h")
+            Duration retention, //발행된 이벤트를 삭제하기 전까지 보관하는 시간
+            @DefaultValue("10m")
+            Duration purgeInterval, //발행된 이벤트를 정리하는 주기
+            @DefaultValue("1000")
+            int purgeBatchSize, //한 번의 DELETE로 삭제할 최대 이벤트 수
+            @DefaultValue("application/json")
+            MimeType contentType, //발행할 메시지의 형식, 소비자가 모두 해당 코덱을 지원한 뒤에 바꿔야 함
+            @DefaultValue("1")
+            int envelopeSize //메시지 하나에 담을 최대 주문 id 수, 1보다 크면 묶음을 지원하는 형식이어야 함
+    ) {
+    }
+
+    //POST /orders의 Idempotency-Key를 보관하는 IdempotencyKeyStore 설정
+    public record Idempotency(
+            @DefaultValue("24h")
+            Duration ttl, //같은 키로 재시도한 요청에 저장된 주문을 반환하는 기간
+            @DefaultValue("10000")
+            long maximumSize, //메모리에 보관할 최대 키 수, 넘어가면 테이블에서 조회
+            @DefaultValue("10m")
+            Duration purgeInterval, //만료된 키를 정리하는 주기
+            @DefaultValue("1000")
+            int purgeBatchSize //한 번의 DELETE로 삭제할 최대 키 수
+    ) {
+    }
+
+    //GET /orders/stats의 집계를 유지하는 OrderStatistics 설정
+    public record Stats(
+            @DefaultValue("5s")
+            Duration flushInterval, //메모리에 쌓인 변경분을 order_stats 테이블에 더하고 다시 읽는 주기
+            @DefaultValue("10")
+            int topBooks //주문 수량이 많은 순서로 반환할 ISBN 수
+    ) {
+    }
+
+    //월별로 파티션된 orders 테이블을 관리하는 OrderTableMaintenance 설정
+    public record Archive(
+            @DefaultValue("true")
+            boolean enabled, //오래된 DISPATCHED 주문을 orders_archive로 옮길지 여부
+            @DefaultValue("30d")
+            Duration age, //생성된 지 이 기간이 지난 DISPATCHED 주문을 옮김
+            @DefaultValue("500")
+            int batchSize, //한 번에 옮길 최대 주문 수
+            @DefaultValue("10m")
+            Duration interval, //보관 작업을 실행하는 주기
+            @DefaultValue("3")
+            int partitionMonthsAhead, //미리 만들어 둘 월별 파티션 수
+            @DefaultValue("1d")
+            Duration partitionInterval //파티션을 확인하고 만드는 주기
+    ) {
+    }
+
+    //embedded-store 프로필에서 PostgreSQL 대신 모든 데이터를 보관하는 EmbeddedStore 설정
+    public record Store(
+            @DefaultValue("data/orders.log")
+            String path, //append-only 로그 파일 경로
+            @DefaultValue("64MB")
+            DataSize initialSize, //처음 매핑할 로그 파일 크기, 가득 차면 두 배로 늘림(최대 2GB)
+            @DefaultValue("1s")
+            Duration syncInterval, //매핑된 변경분을 디스크에 기록(force)하는 주기
+            @DefaultValue("10m")
+            Duration compactionInterval, //compaction이 필요한지 확인하는 주기
+            @DefaultValue("0.5")
+            double compactionThreshold //로그에서 이전 값과 삭제된 값이 차지하는 비율이 이 값 이상이면 compaction
+    ) {
+    }
+
+    //GET /orders/stream으로 주문 변경을 전달하는 OrderUpdates 설정
+    public record Updates(
+            @DefaultValue("256")
+            int bufferSize //구독자마다 쌓아 둘 최대 변경 수, 넘어가면 오래된 변경부터 버림
+    ) {
+    }
+
+    /*
+    * /orders 요청을 처리하기 전에 과부하인지 판단하여 503으로 거절하는 AdmissionControlFilter 설정.
+    * 쓰기(POST)는 DB 연결과 catalog-service 호출을 사용하므로 읽기(GET)보다 먼저 거절한다.
+    * */
+    public record Admission(
+            @DefaultValue("true")
+            boolean enabled,
+            @DefaultValue("64")
+            int writeLimit, //동시에 처리할 수 있는 최대 쓰기 요청 수
+            @DefaultValue("256")
+            int readLimit, //동시에 처리할 수 있는 최대 읽기 요청 수
+            @DefaultValue("4")
+            int exportLimit, //동시에 처리할 수 있는 최대 GET /orders/export 요청 수, 내보내는 동안 DB 연결을 하나씩 점유하므로 읽기와 따로 제한
+            @DefaultValue("10")
+            int writePendingAcquireLimit, //R2DBC 연결을 기다리는 요청이 이 수 이상이면 쓰기 요청을 거절
+            @DefaultValue("50")
+            int readPendingAcquireLimit, //R2DBC 연결을 기다리는 요청이 이 수 이상이면 읽기 요청을 거절
+            @DefaultValue("500ms")
+            Duration writeLatencyTarget, //최근 쓰기 응답 시간이 이 값보다 길면 그 비율만큼 쓰기 한도를 줄임
+            @DefaultValue("1s")
+            Duration retryAfter //거절한 응답의 Retry-After 헤더 값
+    ) {
+    }
+}
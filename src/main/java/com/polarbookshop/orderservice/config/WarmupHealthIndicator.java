@@ -0,0 +1,23 @@
+package com.polarbookshop.orderservice.config;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+//readiness 그룹에 포함되어, ApplicationWarmup이 끝나기 전까지 /actuator/health/readiness가 OUT_OF_SERVICE(503)를 반환하도록 함
+@Component
+public class WarmupHealthIndicator implements HealthIndicator {
+    private final ApplicationWarmup applicationWarmup;
+
+    public WarmupHealthIndicator(ApplicationWarmup applicationWarmup) {
+        this.applicationWarmup = applicationWarmup;
+    }
+
+    @Override
+    public Health health() {
+        if (!applicationWarmup.isComplete()) {
+            return Health.outOfService().build();
+        }
+        return Health.up().withDetail("duration", applicationWarmup.duration().toString()).build();
+    }
+}
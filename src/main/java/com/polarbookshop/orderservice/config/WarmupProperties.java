@@ -0,0 +1,20 @@
+package com.polarbookshop.orderservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+//시작할 때 연결 풀을 채우고 주문 경로를 미리 실행하는 ApplicationWarmup 설정
+@ConfigurationProperties(prefix = "polar.warmup")
+public record WarmupProperties(
+        @DefaultValue("true")
+        boolean enabled, //false이면 warm-up 없이 바로 트래픽을 받음
+        @DefaultValue("30s")
+        Duration timeout, //warm-up이 이 시간 안에 끝나지 않으면 중단하고 트래픽을 받음
+        @DefaultValue("10000")
+        int iterations, //JSON, 유효성 검사, 주문 생성 경로를 실행할 횟수, JIT 컴파일이 일어날 만큼 충분해야 함
+        @DefaultValue("10")
+        int catalogConnections //catalog-service로 미리 열어 둘 연결 수
+) {
+}
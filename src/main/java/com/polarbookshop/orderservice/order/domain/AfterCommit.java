@@ -0,0 +1,35 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import reactor.core.publisher.Mono;
+
+//롤백될 수 있는 변경을 트랜잭션 밖(통계, 구독자)에 알리는 작업은 커밋된 뒤에 실행
+final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    //현재 트랜잭션이 있으면 커밋된 뒤에, 없으면 바로 실행
+    static Mono<Void> run(Runnable action) {
+        return TransactionSynchronizationManager.forCurrentTransaction()
+                .doOnNext(synchronizationManager -> {
+                    if (synchronizationManager.isSynchronizationActive()) {
+                        synchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                            @Override
+                            public Mono<Void> afterCommit() {
+                                return Mono.fromRunnable(action);
+                            }
+                        });
+                    } else {
+                        action.run();
+                    }
+                })
+                .onErrorResume(NoTransactionException.class, exception -> {
+                    action.run();
+                    return Mono.empty();
+                })
+                .then();
+    }
+}
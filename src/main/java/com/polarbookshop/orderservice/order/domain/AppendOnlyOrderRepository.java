@@ -0,0 +1,180 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/*
+* PostgreSQL 없이 EmbeddedStore의 append-only 로그에 주문을 보관하는 OrderRepository 구현(embedded-store 프로필, EmbeddedOrderStoreConfig).
+* R2DBC와 같은 규칙으로 @Version 낙관적 잠금과 @CreatedDate/@LastModifiedDate를 직접 적용한다.
+* 보관 테이블이 없으므로 오래된 주문을 옮기지 않고, 파티션도 만들지 않는다.
+* */
+public class AppendOnlyOrderRepository extends EmbeddedCrudRepository<Order, Long> implements OrderRepository {
+    private final EmbeddedStore store;
+
+    public AppendOnlyOrderRepository(EmbeddedStore store) {
+        this.store = store;
+    }
+
+    @Override
+    protected Long idOf(Order order) {
+        return order.id();
+    }
+
+    //R2DBC와 같이 version이 0이면 새 주문으로 저장하고, 아니면 저장된 버전과 같을 때만 수정
+    @Override
+    @SuppressWarnings("unchecked")
+    public <S extends Order> Mono<S> save(S order) {
+        var now = Instant.now();
+        if (order.version() != 0) {
+            return store.write(view -> (S) update(view, order, now));
+        }
+        var id = newId(order);
+        return store.write(view -> (S) insert(view, order, id, now));
+    }
+
+    //같은 시각으로 저장하고 최초 버전(1)을 부여하는 것은 OrderBatchRepositoryImpl과 같음
+    @Override
+    public Flux<Order> insertAll(List<Order> newOrders) {
+        return Flux.defer(() -> {
+            var now = Instant.now();
+            var ids = newOrders.stream().map(this::newId).toList();
+            return store.write(view -> {
+                var saved = new ArrayList<Order>(newOrders.size());
+                for (int i = 0; i < newOrders.size(); i++) {
+                    saved.add(insert(view, newOrders.get(i), ids.get(i), now));
+                }
+                return saved;
+            }).flatMapIterable(saved -> saved);
+        });
+    }
+
+    @Override
+    public Flux<Order> updateStatusToDispatched(Long[] ids, Instant lastModifiedDate) {
+        return store.write(view -> {
+            var dispatchedOrders = new ArrayList<Order>();
+            for (var id : ids) {
+                var current = view.order(id);
+                if (current != null && current.status() == OrderStatus.ACCEPTED) { //발송되었거나 거부된 주문은 변경하지 않음
+                    var order = OrderService.buildDispatchedOrder(current);
+                    var dispatchedOrder = new Order(order.id(), order.bookIsbn(), order.bookName(), order.bookPrice(),
+                            order.quantity(), order.status(), order.createdDate(), lastModifiedDate, order.version() + 1);
+                    view.put(new StoreEntry.OrderPut(dispatchedOrder));
+                    dispatchedOrders.add(dispatchedOrder);
+                }
+            }
+            return dispatchedOrders;
+        }).flatMapIterable(dispatchedOrders -> dispatchedOrders);
+    }
+
+    @Override
+    public Mono<Order> findById(Long id) {
+        return Mono.fromSupplier(() -> store.order(id));
+    }
+
+    @Override
+    public Flux<Order> findAll() {
+        return Flux.defer(() -> Flux.fromStream(store.orders()));
+    }
+
+    @Override
+    public Mono<Long> count() {
+        return Mono.fromSupplier(store::orderCount);
+    }
+
+    //정렬된 인덱스에서 after 다음 위치부터 읽으므로 전체 주문을 정렬하지 않음
+    @Override
+    public Flux<Order> findPage(OrderStatus status, String bookIsbn, OrderCursor after, int limit) {
+        return Flux.defer(() -> {
+            var ordersByCreatedDate = store.ordersNewestFirst();
+            var cursors = after == null ? ordersByCreatedDate : ordersByCreatedDate.tailSet(after, false);
+            return Flux.fromStream(cursors.stream()
+                    .map(cursor -> store.order(cursor.id()))
+                    .filter(Objects::nonNull)
+                    .filter(order -> status == null || order.status() == status)
+                    .filter(order -> bookIsbn == null || bookIsbn.equals(order.bookIsbn()))
+                    .limit(limit));
+        });
+    }
+
+    //인덱스가 최신순이므로 [from, to) 범위를 잘라 거꾸로 읽음, 메모리에 있으므로 fetchSize는 사용하지 않음
+    @Override
+    public Flux<Order> findCreatedBetween(Instant from, Instant to, OrderStatus status, int fetchSize) {
+        if (!from.isBefore(to)) {
+            return Flux.empty();
+        }
+        return Flux.defer(() -> Flux.fromStream(store.ordersNewestFirst()
+                .subSet(new OrderCursor(to, Long.MIN_VALUE), false, new OrderCursor(from, Long.MIN_VALUE), false)
+                .descendingSet()
+                .stream()
+                .map(cursor -> store.order(cursor.id()))
+                .filter(Objects::nonNull)
+                .filter(order -> status == null || order.status() == status)));
+    }
+
+    @Override
+    public Mono<Void> deleteById(Long id) {
+        return store.write(view -> {
+            if (view.order(id) != null) {
+                view.put(new StoreEntry.OrderDelete(id));
+            }
+            return null;
+        });
+    }
+
+    //남길 주문이 없으므로 주문마다 삭제 항목을 쓰는 대신 항목 하나로 모두 삭제
+    @Override
+    public Mono<Void> deleteAll() {
+        return store.write(view -> {
+            view.put(new StoreEntry.OrdersClear());
+            return null;
+        });
+    }
+
+    @Override
+    public Mono<Integer> archiveDispatchedBefore(Instant createdBefore, int limit) {
+        return Mono.just(0); //보관 테이블이 없으며, 로그 크기는 compaction으로 관리
+    }
+
+    @Override
+    public Mono<Void> createPartitions(int monthsAhead) {
+        return Mono.empty(); //파티션이 없음
+    }
+
+    //트랜잭션 안에서 커밋할 때 다시 실행해도 같은 id를 사용하도록 변경 밖에서 발급
+    private long newId(Order order) {
+        if (order.id() == null) {
+            return store.nextOrderId();
+        }
+        store.reserveOrderId(order.id());
+        return order.id();
+    }
+
+    private static Order insert(StoreView view, Order order, long id, Instant now) {
+        if (view.order(id) != null) {
+            throw new DuplicateKeyException("Order with id '%s' already exists".formatted(id));
+        }
+        var inserted = new Order(id, order.bookIsbn(), order.bookName(), order.bookPrice(), order.quantity(),
+                order.status(), now, now, 1);
+        view.put(new StoreEntry.OrderPut(inserted));
+        return inserted;
+    }
+
+    private static Order update(StoreView view, Order order, Instant now) {
+        var current = view.order(order.id());
+        if (current == null || current.version() != order.version()) {
+            throw new OptimisticLockingFailureException("Failed to update versioned entity with id '%s' (version '%s') in table [orders]"
+                    .formatted(order.id(), order.version()));
+        }
+        var updated = new Order(order.id(), order.bookIsbn(), order.bookName(), order.bookPrice(), order.quantity(),
+                order.status(), current.createdDate(), now, order.version() + 1);
+        view.put(new StoreEntry.OrderPut(updated));
+        return updated;
+    }
+}
@@ -0,0 +1,15 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import java.util.List;
+
+/*
+* 여러 줄로 이루어진 장바구니 주문.
+* 머리(order)는 orders에 저장되는 주문 하나로, 한 줄이라도 접수되면 ACCEPTED가 되어 하나의 order-accepted 이벤트를 만든다.
+* 머리의 book_isbn, book_name, book_price는 비어 있고, quantity는 접수된 줄의 수량 합계다(모두 거부되면 요청한 수량 합계).
+* book_price는 다른 주문처럼 단가를 뜻하므로 머리에 합계를 넣지 않으며, 금액은 접수된 줄의 book_price * quantity 합계다.
+* */
+public record CartOrder(
+        Order order,
+        List<OrderLine> lines
+) {
+}
@@ -0,0 +1,28 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+//order-dispatched 메시지 묶음 하나를 반영하는 시간을 JFR 레코딩에 남기는 이벤트(OrderMetrics.timeDispatchBatch)
+@Name("com.polarbookshop.orderservice.DispatchBatch")
+@Label("Dispatch Batch")
+@Category({"Polar Bookshop", "Order Service"})
+@Description("Update of a batch of orders to DISPATCHED")
+@StackTrace(false)
+final class DispatchBatchEvent extends Event {
+
+    @Label("Batch Size")
+    @Description("Number of order dispatched messages in the batch")
+    int batchSize;
+
+    @Label("Applied")
+    @Description("Number of orders changed to DISPATCHED")
+    int applied;
+
+    @Label("Failed")
+    boolean failed;
+}
@@ -0,0 +1,8 @@
+package com.polarbookshop.orderservice.order.domain;
+
+//다른 요청(다른 인스턴스 포함)이 같은 Idempotency-Key로 이미 주문을 접수한 경우, 트랜잭션을 롤백하기 위해 사용
+class DuplicateIdempotencyKeyException extends RuntimeException {
+    DuplicateIdempotencyKeyException(String idempotencyKey) {
+        super("The idempotency key " + idempotencyKey + " has already been used.");
+    }
+}
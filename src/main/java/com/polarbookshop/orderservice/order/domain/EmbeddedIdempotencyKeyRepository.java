@@ -0,0 +1,123 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+
+//embedded-store 프로필에서 idempotency_keys 테이블 대신 EmbeddedStore에 Idempotency-Key를 보관
+public class EmbeddedIdempotencyKeyRepository extends EmbeddedCrudRepository<IdempotencyKey, String>
+        implements IdempotencyKeyRepository {
+    private final EmbeddedStore store;
+
+    public EmbeddedIdempotencyKeyRepository(EmbeddedStore store) {
+        this.store = store;
+    }
+
+    @Override
+    protected String idOf(IdempotencyKey idempotencyKey) {
+        return idempotencyKey.idempotencyKey();
+    }
+
+    /*
+    * 만료된 키는 덮어쓰고, 아직 유효한 키가 있으면 0을 반환한다.
+    * 트랜잭션이 커밋되기 전에 다른 트랜잭션이 같은 키를 먼저 커밋했으면
+    * PostgreSQL에서 0을 받았을 때와 같이 DuplicateIdempotencyKeyException으로 롤백한다.
+    * */
+    @Override
+    public Mono<Integer> insertIfAbsent(String idempotencyKey, Long orderId, String requestHash, Instant createdDate,
+                                        Instant expiredBefore) {
+        return store.write(new EmbeddedStore.Change<>() {
+            @Override
+            public Integer apply(StoreView view) {
+                var current = view.idempotencyKey(idempotencyKey);
+                if (current != null && !current.createdDate().isBefore(expiredBefore)) {
+                    return 0;
+                }
+                view.put(new StoreEntry.IdempotencyKeyPut(new IdempotencyKey(idempotencyKey, orderId, requestHash, createdDate)));
+                return 1;
+            }
+
+            @Override
+            public RuntimeException conflict() {
+                return new DuplicateIdempotencyKeyException(idempotencyKey);
+            }
+        });
+    }
+
+    @Override
+    public Mono<IdempotencyKey> findUnexpired(String idempotencyKey, Instant createdAfter) {
+        return Mono.fromSupplier(() -> store.idempotencyKey(idempotencyKey))
+                .filter(stored -> !stored.createdDate().isBefore(createdAfter));
+    }
+
+    @Override
+    public Mono<Integer> deleteCreatedBefore(Instant createdBefore, int limit) {
+        return Mono.defer(() -> {
+            var expiredKeys = store.idempotencyKeys()
+                    .filter(stored -> stored.createdDate().isBefore(createdBefore))
+                    .limit(limit)
+                    .map(IdempotencyKey::idempotencyKey)
+                    .toList();
+            return deleteAll(expiredKeys, createdBefore);
+        });
+    }
+
+    //고른 뒤에 다시 기록된 키는 삭제하지 않음
+    private Mono<Integer> deleteAll(List<String> keys, Instant createdBefore) {
+        if (keys.isEmpty()) {
+            return Mono.just(0);
+        }
+        return store.write(view -> {
+            var deletedCount = 0;
+            for (var key : keys) {
+                var current = view.idempotencyKey(key);
+                if (current != null && current.createdDate().isBefore(createdBefore)) {
+                    view.put(new StoreEntry.IdempotencyKeyDelete(key));
+                    deletedCount++;
+                }
+            }
+            return deletedCount;
+        });
+    }
+
+    //Idempotency-Key는 클라이언트가 정하므로 새 키이든 기존 키이든 덮어씀
+    @Override
+    public <S extends IdempotencyKey> Mono<S> save(S idempotencyKey) {
+        return store.write(view -> {
+            view.put(new StoreEntry.IdempotencyKeyPut(idempotencyKey));
+            return idempotencyKey;
+        });
+    }
+
+    @Override
+    public Mono<IdempotencyKey> findById(String idempotencyKey) {
+        return Mono.fromSupplier(() -> store.idempotencyKey(idempotencyKey));
+    }
+
+    @Override
+    public Flux<IdempotencyKey> findAll() {
+        return Flux.defer(() -> Flux.fromStream(store.idempotencyKeys()));
+    }
+
+    @Override
+    public Mono<Long> count() {
+        return Mono.fromSupplier(store::idempotencyKeyCount);
+    }
+
+    @Override
+    public Mono<Void> deleteById(String idempotencyKey) {
+        return store.write(view -> {
+            if (view.idempotencyKey(idempotencyKey) != null) {
+                view.put(new StoreEntry.IdempotencyKeyDelete(idempotencyKey));
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public Mono<Void> deleteAll() {
+        return Mono.defer(() -> deleteAll(store.idempotencyKeys().map(IdempotencyKey::idempotencyKey).toList(), Instant.MAX)).then();
+    }
+}
@@ -0,0 +1,47 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import org.springframework.dao.DuplicateKeyException;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+//embedded-store 프로필에서 order_lines 테이블 대신 EmbeddedStore에 장바구니 주문의 줄을 보관
+public class EmbeddedOrderLineRepository implements OrderLineRepository {
+    private final EmbeddedStore store;
+
+    public EmbeddedOrderLineRepository(EmbeddedStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Flux<OrderLine> findByOrderId(Long orderId) {
+        return Flux.defer(() -> Flux.fromIterable(store.orderLines(orderId)));
+    }
+
+    //order_lines의 기본 키 (order_id, line_number)와 같이 이미 있는 줄 번호는 다시 저장하지 않음
+    @Override
+    public Flux<OrderLine> insertAll(Long orderId, List<OrderLine> lines) {
+        if (lines.isEmpty()) {
+            return Flux.empty();
+        }
+        return store.write(view -> {
+            var existing = view.orderLines(orderId);
+            var inserted = new ArrayList<OrderLine>(lines.size());
+            for (var line : lines) {
+                if (existing.stream().anyMatch(stored -> stored.lineNumber() == line.lineNumber())) {
+                    throw new DuplicateKeyException("Order line %s of order '%s' already exists".formatted(line.lineNumber(), orderId));
+                }
+                inserted.add(new OrderLine(orderId, line.lineNumber(), line.bookIsbn(), line.bookName(), line.bookPrice(),
+                        line.quantity(), line.status()));
+            }
+            inserted.sort(Comparator.comparingInt(OrderLine::lineNumber));
+            var all = new ArrayList<>(existing);
+            all.addAll(inserted);
+            all.sort(Comparator.comparingInt(OrderLine::lineNumber));
+            view.put(new StoreEntry.OrderLinesPut(orderId, List.copyOf(all)));
+            return inserted;
+        }).flatMapIterable(inserted -> inserted);
+    }
+}
@@ -0,0 +1,44 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+//embedded-store 프로필에서 order_stats 테이블 대신 EmbeddedStore에 집계를 보관
+public class EmbeddedOrderStatsRepository implements OrderStatsRepository {
+    private static final String QUANTITY = "quantity";
+
+    private final EmbeddedStore store;
+
+    public EmbeddedOrderStatsRepository(EmbeddedStore store) {
+        this.store = store;
+    }
+
+    //커밋할 때의 값에 더한 누적 값을 기록
+    @Override
+    public Mono<Void> addAll(List<OrderStat> deltas) {
+        if (deltas.isEmpty()) {
+            return Mono.empty();
+        }
+        return store.write(view -> {
+            for (var delta : deltas) {
+                var value = view.stat(delta.metric(), delta.dimension()) + delta.value();
+                view.put(new StoreEntry.StatPut(new OrderStat(delta.metric(), delta.dimension(), value)));
+            }
+            return null;
+        });
+    }
+
+    //ISBN별 수량은 상위 topBooks개만 반환
+    @Override
+    public Flux<OrderStat> findSummary(int topBooks) {
+        return Flux.defer(() -> Flux.fromStream(Stream.concat(
+                store.stats().filter(stat -> !QUANTITY.equals(stat.metric())),
+                store.stats().filter(stat -> QUANTITY.equals(stat.metric()))
+                        .sorted(Comparator.comparingDouble(OrderStat::value).reversed())
+                        .limit(topBooks))));
+    }
+}
@@ -0,0 +1,129 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import com.polarbookshop.orderservice.order.event.OutboxEvent;
+import com.polarbookshop.orderservice.order.event.OutboxRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+* embedded-store 프로필에서 outbox 테이블 대신 EmbeddedStore에 order-accepted 이벤트를 보관.
+* 주문과 같은 트랜잭션에서 기록하면 주문과 같은 로그 레코드로 커밋된다.
+* 인스턴스 하나만 로그를 사용하므로 findUnsentForUpdate는 잠그지 않고 조회만 한다.
+* */
+public class EmbeddedOutboxRepository extends EmbeddedCrudRepository<OutboxEvent, Long> implements OutboxRepository {
+    private final EmbeddedStore store;
+
+    public EmbeddedOutboxRepository(EmbeddedStore store) {
+        this.store = store;
+    }
+
+    @Override
+    protected Long idOf(OutboxEvent event) {
+        return event.id();
+    }
+
+    @Override
+    public Mono<Integer> insertAll(Long[] orderIds, Instant createdDate) {
+        return Mono.defer(() -> {
+            var ids = Arrays.stream(orderIds).map(orderId -> store.nextOutboxEventId()).toList();
+            return store.write(view -> {
+                for (int i = 0; i < orderIds.length; i++) {
+                    view.put(new StoreEntry.OutboxEventPut(new OutboxEvent(ids.get(i), orderIds[i], createdDate, null)));
+                }
+                return orderIds.length;
+            });
+        });
+    }
+
+    @Override
+    public Flux<OutboxEvent> findUnsentForUpdate(int limit) {
+        return Flux.defer(() -> Flux.fromStream(store.outboxEvents()
+                .filter(event -> event.sentDate() == null)
+                .limit(limit)));
+    }
+
+    @Override
+    public Mono<Integer> markSent(Long[] ids, Instant sentDate) {
+        return store.write(view -> {
+            var sentCount = 0;
+            for (var id : ids) {
+                var event = view.outboxEvent(id);
+                if (event != null) {
+                    view.put(new StoreEntry.OutboxEventPut(new OutboxEvent(event.id(), event.orderId(), event.createdDate(), sentDate)));
+                    sentCount++;
+                }
+            }
+            return sentCount;
+        });
+    }
+
+    @Override
+    public Mono<Integer> deleteSentBefore(Instant sentBefore, int limit) {
+        return Mono.defer(() -> deleteAll(store.outboxEvents()
+                .filter(event -> event.sentDate() != null && event.sentDate().isBefore(sentBefore))
+                .limit(limit)
+                .map(OutboxEvent::id)
+                .toList()));
+    }
+
+    private Mono<Integer> deleteAll(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Mono.just(0);
+        }
+        return store.write(view -> {
+            var deletedCount = 0;
+            for (var id : ids) {
+                if (view.outboxEvent(id) != null) {
+                    view.put(new StoreEntry.OutboxEventDelete(id));
+                    deletedCount++;
+                }
+            }
+            return deletedCount;
+        });
+    }
+
+    //id가 없으면 새 이벤트로 저장하고 @CreatedDate를 직접 채우며, 있으면 덮어씀
+    @Override
+    @SuppressWarnings("unchecked")
+    public <S extends OutboxEvent> Mono<S> save(S event) {
+        var id = event.id() == null ? store.nextOutboxEventId() : event.id();
+        if (event.id() != null) {
+            store.reserveOutboxEventId(id);
+        }
+        var saved = new OutboxEvent(id, event.orderId(), event.createdDate() == null ? Instant.now() : event.createdDate(),
+                event.sentDate());
+        return store.write(view -> {
+            view.put(new StoreEntry.OutboxEventPut(saved));
+            return (S) saved;
+        });
+    }
+
+    @Override
+    public Mono<OutboxEvent> findById(Long id) {
+        return Mono.fromSupplier(() -> store.outboxEvent(id));
+    }
+
+    @Override
+    public Flux<OutboxEvent> findAll() {
+        return Flux.defer(() -> Flux.fromStream(store.outboxEvents()));
+    }
+
+    @Override
+    public Mono<Long> count() {
+        return Mono.fromSupplier(store::outboxEventCount);
+    }
+
+    @Override
+    public Mono<Void> deleteById(Long id) {
+        return deleteAll(List.of(id)).then();
+    }
+
+    @Override
+    public Mono<Void> deleteAll() {
+        return Mono.defer(() -> deleteAll(store.outboxEvents().map(OutboxEvent::id).toList())).then();
+    }
+}
@@ -0,0 +1,422 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import com.polarbookshop.orderservice.config.OrderProperties;
+import com.polarbookshop.orderservice.order.event.OutboxEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/*
+* embedded-store 프로필에서 PostgreSQL 대신 주문, 장바구니 줄, outbox 이벤트, Idempotency-Key, 집계를 보관하는 저장소.
+* 모든 변경은 메모리 맵 append-only 로그(EmbeddedStoreLog)에 덧붙이고, 최신 값은 메모리의 인덱스에 보관한다.
+* 재시작하면 로그를 처음부터 다시 읽어 인덱스를 복구하며, 이전 값과 삭제된 값이 로그의 compaction-threshold 이상을
+* 차지하면 최신 값만 남도록 로그를 다시 쓴다(compaction).
+*
+* 변경(Change)은 EmbeddedTransactionManager의 트랜잭션 안에서는 트랜잭션에 모아 두었다가 커밋할 때 로그의 레코드 하나로 함께 쓰고,
+* 트랜잭션 밖에서는 바로 커밋한다. 따라서 주문과 그 outbox 이벤트는 함께 저장되거나 함께 버려진다.
+* 커밋은 잠금 하나로 순서대로 처리하며 boundedElastic 스레드에서 실행하고, 조회는 잠금 없이 인덱스에서 읽는다.
+* 트랜잭션 안에서 기록한 변경은 커밋되기 전까지 조회에 보이지 않는다.
+* */
+public class EmbeddedStore {
+    private static final Logger log = LoggerFactory.getLogger(EmbeddedStore.class);
+    //GET /orders와 같은 (created_date, id) 내림차순
+    private static final Comparator<OrderCursor> NEWEST_FIRST = Comparator.comparing(OrderCursor::createdDate)
+            .thenComparing(OrderCursor::id)
+            .reversed();
+
+    private final EmbeddedStoreLog storeLog;
+    private final OrderProperties.Store properties;
+    private final Map<Long, Stored<Order>> orders = new ConcurrentHashMap<>();
+    private final NavigableSet<OrderCursor> ordersByCreatedDate = new ConcurrentSkipListSet<>(NEWEST_FIRST);
+    private final Map<Long, Stored<List<OrderLine>>> orderLines = new ConcurrentHashMap<>();
+    private final NavigableMap<Long, Stored<OutboxEvent>> outboxEvents = new ConcurrentSkipListMap<>(); //id 순서
+    private final Map<String, Stored<IdempotencyKey>> idempotencyKeys = new ConcurrentHashMap<>();
+    private final Map<StatKey, Stored<OrderStat>> stats = new ConcurrentHashMap<>();
+    //트랜잭션이 롤백되어도 되돌리지 않으므로 id에 빈 자리가 생길 수 있음(PostgreSQL 시퀀스와 같음)
+    private final AtomicLong orderIds = new AtomicLong();
+    private final AtomicLong outboxEventIds = new AtomicLong();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Disposable.Composite schedules = Disposables.composite();
+    private long liveBytes; //로그에서 최신 값이 차지하는 크기
+    private boolean closed;
+
+    public EmbeddedStore(OrderProperties orderProperties) throws IOException {
+        this.properties = orderProperties.store();
+        this.storeLog = new EmbeddedStoreLog(Path.of(properties.path()), properties.initialSize().toBytes());
+        storeLog.open(this::apply);
+        log.info("Loaded {} orders, {} outbox events and {} idempotency keys from {}",
+                orders.size(), outboxEvents.size(), idempotencyKeys.size(), properties.path());
+    }
+
+    //애플리케이션이 요청을 받을 준비가 되면 주기적으로 디스크에 기록하고 compaction이 필요한지 확인
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        schedules.add(Flux.interval(properties.syncInterval())
+                .onBackpressureDrop() //이전 주기가 끝나지 않았으면 이번 주기는 건너뜀
+                .concatMap(tick -> Mono.fromRunnable(this::sync)
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .onErrorResume(exception -> {
+                            log.warn("Failed to sync store log", exception);
+                            return Mono.empty();
+                        }), 0)
+                .subscribe());
+        schedules.add(Flux.interval(properties.compactionInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> Mono.fromCallable(this::compactIfNeeded)
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .onErrorResume(exception -> {
+                            log.warn("Failed to compact store log", exception);
+                            return Mono.empty();
+                        }), 0)
+                .subscribe());
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        schedules.dispose();
+        writeLock.lock();
+        try {
+            closed = true;
+            storeLog.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    Order order(long id) {
+        var stored = orders.get(id);
+        return stored == null ? null : stored.value();
+    }
+
+    Stream<Order> orders() {
+        return orders.values().stream().map(Stored::value);
+    }
+
+    long orderCount() {
+        return orders.size();
+    }
+
+    //(created_date, id) 내림차순으로 정렬된 주문의 위치
+    NavigableSet<OrderCursor> ordersNewestFirst() {
+        return ordersByCreatedDate;
+    }
+
+    List<OrderLine> orderLines(long orderId) {
+        var stored = orderLines.get(orderId);
+        return stored == null ? List.of() : stored.value();
+    }
+
+    OutboxEvent outboxEvent(long id) {
+        var stored = outboxEvents.get(id);
+        return stored == null ? null : stored.value();
+    }
+
+    //id 순서
+    Stream<OutboxEvent> outboxEvents() {
+        return outboxEvents.values().stream().map(Stored::value);
+    }
+
+    long outboxEventCount() {
+        return outboxEvents.size();
+    }
+
+    IdempotencyKey idempotencyKey(String key) {
+        var stored = idempotencyKeys.get(key);
+        return stored == null ? null : stored.value();
+    }
+
+    Stream<IdempotencyKey> idempotencyKeys() {
+        return idempotencyKeys.values().stream().map(Stored::value);
+    }
+
+    long idempotencyKeyCount() {
+        return idempotencyKeys.size();
+    }
+
+    double stat(StatKey key) {
+        var stored = stats.get(key);
+        return stored == null ? 0 : stored.value().value();
+    }
+
+    Stream<OrderStat> stats() {
+        return stats.values().stream().map(Stored::value);
+    }
+
+    long nextOrderId() {
+        return orderIds.incrementAndGet();
+    }
+
+    //id를 지정해서 저장하는 주문의 id를 다시 발급하지 않도록 함
+    void reserveOrderId(long id) {
+        orderIds.accumulateAndGet(id, Math::max);
+    }
+
+    long nextOutboxEventId() {
+        return outboxEventIds.incrementAndGet();
+    }
+
+    void reserveOutboxEventId(long id) {
+        outboxEventIds.accumulateAndGet(id, Math::max);
+    }
+
+    //현재 트랜잭션이 있으면 변경을 트랜잭션에 모아 두고, 없으면 바로 커밋한 뒤 결과를 반환
+    <T> Mono<T> write(Change<T> change) {
+        return currentTransaction()
+                .map(transaction -> Optional.ofNullable(transaction.stage(change)))
+                .switchIfEmpty(Mono.fromCallable(() -> Optional.ofNullable(commit(change)))
+                        .subscribeOn(Schedulers.boundedElastic())) //잠금과 로그 쓰기로 이벤트 루프를 막지 않도록 함
+                .flatMap(Mono::justOrEmpty);
+    }
+
+    private Mono<Transaction> currentTransaction() {
+        return TransactionSynchronizationManager.forCurrentTransaction()
+                .mapNotNull(synchronizationManager -> (Transaction) synchronizationManager.getResource(this))
+                .onErrorResume(NoTransactionException.class, exception -> Mono.empty());
+    }
+
+    Transaction begin() {
+        return new Transaction(new StoreView(this));
+    }
+
+    //트랜잭션에 모아 둔 변경을 최신 상태로 다시 실행하여 확인한 뒤, 로그의 레코드 하나로 함께 커밋
+    Mono<Void> commit(Transaction transaction) {
+        var staged = transaction.staged();
+        if (staged.isEmpty()) {
+            return Mono.empty();
+        }
+        return Mono.<Void>fromRunnable(() -> commit(view -> {
+                    for (var change : staged) {
+                        change.verify(view);
+                    }
+                    return null;
+                }))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private <T> T commit(Change<T> change) {
+        writeLock.lock();
+        try {
+            if (closed) {
+                throw new DataAccessResourceFailureException("Embedded store " + properties.path() + " is closed");
+            }
+            var view = new StoreView(this);
+            var result = change.apply(view);
+            var entries = view.entries();
+            var entrySizes = storeLog.append(entries);
+            for (int i = 0; i < entries.size(); i++) {
+                apply(entries.get(i), entrySizes[i]);
+            }
+            return result;
+        } catch (IOException exception) {
+            //로그 파일에 쓰지 못하면 스프링의 데이터 접근 예외로 바꿔 R2DBC 저장소와 같은 방식으로 처리되도록 함
+            throw new DataAccessResourceFailureException("Failed to write store log " + properties.path(), exception);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    long logSize() {
+        writeLock.lock();
+        try {
+            return storeLog.size();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    //기록(force)하는 동안 커밋을 막지 않도록 잠금 없이 실행
+    void sync() {
+        storeLog.force();
+    }
+
+    /*
+    * 로그의 크기를 확인하고 위치를 기록하는 동안만 잠금을 잡고, 최신 값을 새 파일에 쓰는 동안에는 커밋을 막지 않는다.
+    * 새 파일을 쓰는 동안 바뀐 값은 기록한 위치 이후의 레코드에 모두 있으므로, 교체할 때 그 레코드를 새 파일 뒤에 복사한다.
+    * 삭제된 주문과 이벤트의 id를 다시 발급하지 않도록 발급한 가장 큰 id를 새 파일의 맨 앞에 기록한다.
+    * compaction을 했으면 true를 반환한다.
+    * */
+    boolean compactIfNeeded() throws IOException {
+        int from;
+        StoreEntry.Sequences sequences;
+        writeLock.lock();
+        try {
+            var logSize = storeLog.size();
+            if (closed || logSize == 0 || logSize - liveBytes < logSize * properties.compactionThreshold()) {
+                return false;
+            }
+            from = logSize;
+            sequences = new StoreEntry.Sequences(orderIds.get(), outboxEventIds.get());
+        } finally {
+            writeLock.unlock();
+        }
+        var snapshot = storeLog.writeSnapshot(Stream.of(
+                        Stream.<StoreEntry>of(sequences),
+                        orders().map(StoreEntry.OrderPut::new),
+                        orderLines.entrySet().stream()
+                                .map(entry -> new StoreEntry.OrderLinesPut(entry.getKey(), entry.getValue().value())),
+                        outboxEvents().map(StoreEntry.OutboxEventPut::new),
+                        idempotencyKeys().map(StoreEntry.IdempotencyKeyPut::new),
+                        stats().map(StoreEntry.StatPut::new))
+                .<StoreEntry>flatMap(entries -> entries)
+                .iterator());
+        writeLock.lock();
+        try {
+            if (closed) {
+                Files.deleteIfExists(snapshot);
+                return false;
+            }
+            storeLog.replaceWith(snapshot, from);
+            log.info("Compacted store log from {} to {} bytes", from, storeLog.size());
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    //로그를 다시 읽을 때와 커밋할 때 항목을 인덱스에 반영, 잠금을 잡은 상태에서 호출
+    private void apply(StoreEntry entry, int entrySize) {
+        if (entry instanceof StoreEntry.OrderPut put) {
+            var order = put.order();
+            var previous = replace(orders, order.id(), order, entrySize);
+            var cursor = OrderCursor.of(order);
+            ordersByCreatedDate.add(cursor);
+            if (previous != null && !OrderCursor.of(previous).equals(cursor)) {
+                ordersByCreatedDate.remove(OrderCursor.of(previous));
+            }
+            reserveOrderId(order.id());
+        } else if (entry instanceof StoreEntry.OrderDelete delete) {
+            var previous = remove(orders, delete.id());
+            if (previous != null) {
+                ordersByCreatedDate.remove(OrderCursor.of(previous));
+            }
+        } else if (entry instanceof StoreEntry.OrdersClear) {
+            orders.values().forEach(stored -> liveBytes -= stored.size());
+            orders.clear();
+            ordersByCreatedDate.clear();
+        } else if (entry instanceof StoreEntry.OrderLinesPut put) {
+            replace(orderLines, put.orderId(), put.lines(), entrySize);
+        } else if (entry instanceof StoreEntry.OutboxEventPut put) {
+            replace(outboxEvents, put.event().id(), put.event(), entrySize);
+            reserveOutboxEventId(put.event().id());
+        } else if (entry instanceof StoreEntry.OutboxEventDelete delete) {
+            remove(outboxEvents, delete.id());
+        } else if (entry instanceof StoreEntry.IdempotencyKeyPut put) {
+            replace(idempotencyKeys, put.idempotencyKey().idempotencyKey(), put.idempotencyKey(), entrySize);
+        } else if (entry instanceof StoreEntry.IdempotencyKeyDelete delete) {
+            remove(idempotencyKeys, delete.idempotencyKey());
+        } else if (entry instanceof StoreEntry.StatPut put) {
+            replace(stats, new StatKey(put.stat().metric(), put.stat().dimension()), put.stat(), entrySize);
+        } else if (entry instanceof StoreEntry.Sequences sequences) {
+            reserveOrderId(sequences.orderId());
+            reserveOutboxEventId(sequences.outboxEventId());
+        }
+    }
+
+    private <K, V> V replace(Map<K, Stored<V>> index, K key, V value, int entrySize) {
+        var previous = index.put(key, new Stored<>(value, entrySize));
+        liveBytes += entrySize;
+        if (previous == null) {
+            return null;
+        }
+        liveBytes -= previous.size();
+        return previous.value();
+    }
+
+    private <K, V> V remove(Map<K, Stored<V>> index, K key) {
+        var previous = index.remove(key);
+        if (previous == null) {
+            return null;
+        }
+        liveBytes -= previous.size();
+        return previous.value();
+    }
+
+    /*
+    * 저장소에 대한 변경 하나로, view에서 읽은 값으로 항목을 기록하고 결과를 반환한다.
+    * 트랜잭션 안에서는 기록할 때 한 번, 커밋할 때 최신 상태로 다시 한 번 실행되므로 같은 상태에서는 같은 결과를 내야 한다.
+    * 그래서 시각과 새 id는 Change 밖에서 정해서 넘긴다.
+    * 커밋할 때의 결과가 기록할 때와 다르면 다른 커밋과 충돌한 것으로 보고 conflict()의 예외로 트랜잭션을 롤백한다.
+    * */
+    @FunctionalInterface
+    interface Change<T> {
+        T apply(StoreView view);
+
+        default RuntimeException conflict() {
+            return new OptimisticLockingFailureException("Embedded store data was changed by a concurrent transaction");
+        }
+    }
+
+    //EmbeddedTransactionManager가 트랜잭션마다 만들어 리소스로 바인딩하는 변경 모음
+    static final class Transaction {
+        private final StoreView view; //기록할 때 같은 트랜잭션의 이전 변경을 보여주기 위한 view
+        private final List<Staged<?>> staged = new ArrayList<>();
+        private volatile boolean rollbackOnly;
+
+        private Transaction(StoreView view) {
+            this.view = view;
+        }
+
+        synchronized <T> T stage(Change<T> change) {
+            var result = change.apply(view);
+            staged.add(new Staged<>(change, result));
+            return result;
+        }
+
+        synchronized List<Staged<?>> staged() {
+            return List.copyOf(staged);
+        }
+
+        void setRollbackOnly() {
+            rollbackOnly = true;
+        }
+
+        boolean isRollbackOnly() {
+            return rollbackOnly;
+        }
+    }
+
+    private record Staged<T>(Change<T> change, T result) {
+
+        void verify(StoreView view) {
+            if (!Objects.equals(change.apply(view), result)) {
+                throw change.conflict();
+            }
+        }
+    }
+
+    record StatKey(String metric, String dimension) {
+    }
+
+    //값과 그 값의 항목이 compaction된 로그에서 차지하는 크기
+    private record Stored<T>(T value, int size) {
+    }
+}
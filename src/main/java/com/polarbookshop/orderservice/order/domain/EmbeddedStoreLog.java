@@ -0,0 +1,422 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import com.polarbookshop.orderservice.order.event.OutboxEvent;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+import java.util.zip.CRC32C;
+
+/*
+* EmbeddedStore가 변경을 기록하는 메모리 맵 append-only 로그 파일.
+* 레코드는 [길이(int)][CRC32C(int)][항목...] 형식이며, 커밋 하나의 항목을 레코드 하나에 담으므로 다시 읽을 때 커밋 단위로 적용된다.
+* 길이를 마지막에 써서 쓰다 만 레코드는 길이가 0으로 남고, 다시 열 때는 길이가 0이거나 CRC가 맞지 않는 레코드에서 멈춰 그 뒤를 잘라낸다.
+* 항목은 [종류(byte)][본문] 형식이며, 주문 PUT(1)과 DELETE(2)는 주문만 보관하던 이전 로그와 같은 형식이라 그대로 읽을 수 있다.
+* 쓰기는 매핑된 메모리에 복사하는 것으로 끝나므로 프로세스가 죽어도 운영체제의 페이지 캐시에 남지만,
+* 전원이 꺼지는 경우에는 마지막 force() 이후의 레코드를 잃을 수 있다.
+* 한 번에 매핑할 수 있는 크기(2GiB)를 넘으면 compaction으로 줄이기 전까지 쓰기가 실패한다.
+* append()와 replaceWith()는 호출하는 쪽에서 잠금을 잡아야 하며, force()와 writeSnapshot()은 잠금 없이 호출할 수 있다.
+* */
+final class EmbeddedStoreLog implements Closeable {
+    private static final int HEADER_SIZE = Integer.BYTES * 2;
+    private static final long MAX_MAPPED_SIZE = Integer.MAX_VALUE;
+    private static final byte ORDER_PUT = 1;
+    private static final byte ORDER_DELETE = 2;
+    private static final byte ORDERS_CLEAR = 3;
+    private static final byte ORDER_LINES_PUT = 4;
+    private static final byte OUTBOX_EVENT_PUT = 5;
+    private static final byte OUTBOX_EVENT_DELETE = 6;
+    private static final byte IDEMPOTENCY_KEY_PUT = 7;
+    private static final byte IDEMPOTENCY_KEY_DELETE = 8;
+    private static final byte STAT_PUT = 9;
+    private static final byte SEQUENCES = 10;
+    private static final byte IDEMPOTENCY_KEY_PUT_WITH_HASH = 11; //요청 내용의 해시를 포함, 7은 해시가 없는 이전 항목을 읽을 때만 사용
+    private static final int NULL_LENGTH = -1;
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+    private final Path path;
+    private final long initialSize;
+    private final Encoder encoder = new Encoder(); //append()에서 재사용
+    private FileChannel channel;
+    private volatile MappedByteBuffer buffer; //force()가 잠금 없이 읽음
+    private int size; //지금까지 쓴 레코드의 전체 크기
+
+    EmbeddedStoreLog(Path path, long initialSize) {
+        this.path = path;
+        this.initialSize = initialSize;
+    }
+
+    /*
+    * 로그를 처음부터 읽어 항목과 그 항목이 compaction된 로그에서 차지할 크기를 replay에 전달하고,
+    * 마지막 정상 레코드 뒤에 이어서 쓸 수 있도록 파일을 매핑한다.
+    * */
+    void open(ObjIntConsumer<StoreEntry> replay) throws IOException {
+        var parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        var fileSize = channel.size();
+        size = 0;
+        if (fileSize > 0) {
+            var existing = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(fileSize, MAX_MAPPED_SIZE));
+            size = replay(existing, replay);
+            channel.truncate(size); //쓰다 만 레코드와 비어 있는 뒷부분을 잘라내 다시 읽을 때 섞이지 않도록 함
+        }
+        map(capacity(size));
+    }
+
+    private int replay(MappedByteBuffer existing, ObjIntConsumer<StoreEntry> replay) {
+        var crc = new CRC32C();
+        var position = 0;
+        while (existing.limit() - position >= HEADER_SIZE) {
+            var length = existing.getInt(position);
+            if (length <= 0 || length > existing.limit() - position - HEADER_SIZE) {
+                break;
+            }
+            var body = existing.slice(position + HEADER_SIZE, length);
+            crc.reset();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != existing.getInt(position + Integer.BYTES)) {
+                break;
+            }
+            //레코드의 CRC를 확인한 뒤에 적용하므로 한 커밋의 항목은 모두 적용되거나 모두 버려짐
+            var entries = new ArrayList<StoreEntry>();
+            var entrySizes = new ArrayList<Integer>();
+            while (body.hasRemaining()) {
+                var start = body.position();
+                entries.add(decode(body));
+                entrySizes.add(HEADER_SIZE + body.position() - start);
+            }
+            for (int i = 0; i < entries.size(); i++) {
+                replay.accept(entries.get(i), entrySizes.get(i));
+            }
+            position += HEADER_SIZE + length;
+        }
+        return position;
+    }
+
+    /*
+    * 항목들을 레코드 하나로 덧붙이고, 각 항목이 compaction된 로그에서 차지할 크기(항목마다 레코드 하나)를 반환한다.
+    * 본문과 CRC를 먼저 쓰고 길이를 마지막에 써서, 길이가 보이는 레코드는 항상 완전한 레코드가 되도록 한다.
+    * */
+    int[] append(List<StoreEntry> entries) throws IOException {
+        var entrySizes = new int[entries.size()];
+        if (entries.isEmpty()) {
+            return entrySizes;
+        }
+        encoder.clear();
+        for (int i = 0; i < entries.size(); i++) {
+            entrySizes[i] = HEADER_SIZE + encoder.encode(entries.get(i));
+        }
+        var body = encoder.body();
+        var length = body.remaining();
+        var recordSize = HEADER_SIZE + length;
+        if ((long) size + recordSize > buffer.capacity()) {
+            grow(size + (long) recordSize);
+        }
+        buffer.put(size + HEADER_SIZE, body, 0, length);
+        buffer.putInt(size + Integer.BYTES, encoder.checksum());
+        buffer.putInt(size, length);
+        size += recordSize;
+        return entrySizes;
+    }
+
+    /*
+    * compaction의 첫 단계로, 잠금 없이 항목마다 레코드 하나씩 새 파일에 쓴다.
+    * 쓰는 동안 덧붙여진 레코드는 replaceWith()가 새 파일 뒤에 복사한다.
+    * */
+    Path writeSnapshot(Iterator<StoreEntry> entries) throws IOException {
+        var snapshot = path.resolveSibling(path.getFileName() + ".compact");
+        var snapshotEncoder = new Encoder();
+        var header = ByteBuffer.allocate(HEADER_SIZE);
+        try (var target = FileChannel.open(snapshot, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             var output = new BufferedOutputStream(Channels.newOutputStream(target), 64 * 1024)) {
+            while (entries.hasNext()) {
+                snapshotEncoder.clear();
+                snapshotEncoder.encode(entries.next());
+                var body = snapshotEncoder.body();
+                header.clear().putInt(body.remaining()).putInt(snapshotEncoder.checksum());
+                output.write(header.array());
+                output.write(body.array(), body.arrayOffset() + body.position(), body.remaining());
+            }
+            output.flush();
+            target.force(true);
+        }
+        return snapshot;
+    }
+
+    //snapshot을 쓰기 시작한 위치(from) 이후의 레코드를 snapshot 뒤에 복사한 뒤 원래 파일과 원자적으로 교체하고, 새 파일에 이어서 씀
+    void replaceWith(Path snapshot, int from) throws IOException {
+        try (var target = FileChannel.open(snapshot, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            var tail = buffer.slice(from, size - from);
+            while (tail.hasRemaining()) {
+                target.write(tail);
+            }
+        }
+        channel.close();
+        Files.move(snapshot, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        size = (int) channel.size();
+        map(capacity(size));
+    }
+
+    int size() {
+        return size;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            force();
+            channel.close();
+        }
+    }
+
+    //같은 파일을 더 크게 다시 매핑하면 페이지 캐시를 공유하므로 이전 매핑을 force()하지 않아도 됨
+    private void grow(long required) throws IOException {
+        if (required > MAX_MAPPED_SIZE) {
+            throw new IOException("Store log " + path + " exceeds the maximum mapped size, compaction is required");
+        }
+        map(Math.max(required, capacity(buffer.capacity())));
+    }
+
+    private long capacity(long size) {
+        return Math.min(Math.max(initialSize, size * 2L), MAX_MAPPED_SIZE);
+    }
+
+    //매핑 범위가 파일보다 크면 파일이 늘어나며, 늘어난 부분은 0으로 채워짐
+    private void map(long capacity) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    private StoreEntry decode(ByteBuffer body) {
+        return switch (body.get()) {
+            case ORDER_PUT -> new StoreEntry.OrderPut(readOrder(body));
+            case ORDER_DELETE -> new StoreEntry.OrderDelete(body.getLong());
+            case ORDERS_CLEAR -> new StoreEntry.OrdersClear();
+            case ORDER_LINES_PUT -> readOrderLines(body);
+            case OUTBOX_EVENT_PUT -> new StoreEntry.OutboxEventPut(readOutboxEvent(body));
+            case OUTBOX_EVENT_DELETE -> new StoreEntry.OutboxEventDelete(body.getLong());
+            case IDEMPOTENCY_KEY_PUT -> new StoreEntry.IdempotencyKeyPut(
+                    new IdempotencyKey(readString(body), body.getLong(), null, readInstant(body)));
+            case IDEMPOTENCY_KEY_PUT_WITH_HASH -> new StoreEntry.IdempotencyKeyPut(
+                    new IdempotencyKey(readString(body), body.getLong(), readString(body), readInstant(body)));
+            case IDEMPOTENCY_KEY_DELETE -> new StoreEntry.IdempotencyKeyDelete(readString(body));
+            case STAT_PUT -> new StoreEntry.StatPut(new OrderStat(readString(body), readString(body), body.getDouble()));
+            case SEQUENCES -> new StoreEntry.Sequences(body.getLong(), body.getLong());
+            default -> throw new IllegalStateException("Unknown entry type in store log " + path);
+        };
+    }
+
+    private static Order readOrder(ByteBuffer body) {
+        var id = body.getLong();
+        var version = body.getInt();
+        var createdDate = readInstant(body);
+        var lastModifiedDate = readInstant(body);
+        var status = STATUSES[body.get()];
+        var quantity = readInteger(body);
+        var bookPrice = readDouble(body);
+        var bookIsbn = readString(body);
+        var bookName = readString(body);
+        return new Order(id, bookIsbn, bookName, bookPrice, quantity, status, createdDate, lastModifiedDate, version);
+    }
+
+    private static StoreEntry readOrderLines(ByteBuffer body) {
+        var orderId = body.getLong();
+        var count = body.getInt();
+        var lines = new ArrayList<OrderLine>(count);
+        for (int i = 0; i < count; i++) {
+            var lineNumber = body.getInt();
+            var status = STATUSES[body.get()];
+            var quantity = readInteger(body);
+            var bookPrice = readDouble(body);
+            lines.add(new OrderLine(orderId, lineNumber, readString(body), readString(body), bookPrice, quantity, status));
+        }
+        return new StoreEntry.OrderLinesPut(orderId, List.copyOf(lines));
+    }
+
+    private static OutboxEvent readOutboxEvent(ByteBuffer body) {
+        var id = body.getLong();
+        var orderId = body.getLong();
+        var createdDate = readInstant(body);
+        var sentDate = body.get() == 1 ? readInstant(body) : null;
+        return new OutboxEvent(id, orderId, createdDate, sentDate);
+    }
+
+    private static Integer readInteger(ByteBuffer body) {
+        var value = body.getInt();
+        return value == NULL_LENGTH ? null : value;
+    }
+
+    private static Double readDouble(ByteBuffer body) {
+        var present = body.get() == 1;
+        var value = body.getDouble();
+        return present ? value : null;
+    }
+
+    private static Instant readInstant(ByteBuffer body) {
+        return Instant.ofEpochSecond(body.getLong(), body.getInt());
+    }
+
+    private static String readString(ByteBuffer body) {
+        var length = body.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        var bytes = new byte[length];
+        body.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    //항목을 인코딩하는 버퍼와 CRC, append()와 writeSnapshot()이 동시에 실행될 수 있으므로 각자 하나씩 사용
+    private static final class Encoder {
+        private static final int FIXED_FIELDS_SIZE = 64; //항목 하나에서 문자열을 뺀 필드의 최대 크기
+
+        private ByteBuffer record = ByteBuffer.allocate(4096);
+        private final CRC32C crc = new CRC32C();
+
+        void clear() {
+            record.clear();
+        }
+
+        //인코딩한 항목의 크기를 반환
+        int encode(StoreEntry entry) {
+            var start = record.position();
+            ensureRemaining(FIXED_FIELDS_SIZE);
+            if (entry instanceof StoreEntry.OrderPut put) {
+                record.put(ORDER_PUT);
+                writeOrder(put.order());
+            } else if (entry instanceof StoreEntry.OrderDelete delete) {
+                record.put(ORDER_DELETE);
+                record.putLong(delete.id());
+            } else if (entry instanceof StoreEntry.OrdersClear) {
+                record.put(ORDERS_CLEAR);
+            } else if (entry instanceof StoreEntry.OrderLinesPut put) {
+                record.put(ORDER_LINES_PUT);
+                record.putLong(put.orderId());
+                record.putInt(put.lines().size());
+                for (var line : put.lines()) {
+                    ensureRemaining(FIXED_FIELDS_SIZE);
+                    record.putInt(line.lineNumber());
+                    record.put((byte) line.status().ordinal());
+                    writeInteger(line.quantity());
+                    writeDouble(line.bookPrice());
+                    writeString(line.bookIsbn());
+                    writeString(line.bookName());
+                }
+            } else if (entry instanceof StoreEntry.OutboxEventPut put) {
+                record.put(OUTBOX_EVENT_PUT);
+                writeOutboxEvent(put.event());
+            } else if (entry instanceof StoreEntry.OutboxEventDelete delete) {
+                record.put(OUTBOX_EVENT_DELETE);
+                record.putLong(delete.id());
+            } else if (entry instanceof StoreEntry.IdempotencyKeyPut put) {
+                record.put(IDEMPOTENCY_KEY_PUT_WITH_HASH);
+                writeString(put.idempotencyKey().idempotencyKey());
+                record.putLong(put.idempotencyKey().orderId());
+                writeString(put.idempotencyKey().requestHash());
+                writeInstant(put.idempotencyKey().createdDate());
+            } else if (entry instanceof StoreEntry.IdempotencyKeyDelete delete) {
+                record.put(IDEMPOTENCY_KEY_DELETE);
+                writeString(delete.idempotencyKey());
+            } else if (entry instanceof StoreEntry.StatPut put) {
+                record.put(STAT_PUT);
+                writeString(put.stat().metric());
+                writeString(put.stat().dimension());
+                ensureRemaining(Double.BYTES);
+                record.putDouble(put.stat().value());
+            } else if (entry instanceof StoreEntry.Sequences sequences) {
+                record.put(SEQUENCES);
+                record.putLong(sequences.orderId());
+                record.putLong(sequences.outboxEventId());
+            }
+            return record.position() - start;
+        }
+
+        ByteBuffer body() {
+            return record.flip();
+        }
+
+        //body()를 호출한 뒤에 사용
+        int checksum() {
+            crc.reset();
+            crc.update(record.duplicate());
+            return (int) crc.getValue();
+        }
+
+        private void writeOrder(Order order) {
+            record.putLong(order.id());
+            record.putInt(order.version());
+            writeInstant(order.createdDate());
+            writeInstant(order.lastModifiedDate());
+            record.put((byte) order.status().ordinal());
+            writeInteger(order.quantity());
+            writeDouble(order.bookPrice());
+            writeString(order.bookIsbn());
+            writeString(order.bookName());
+        }
+
+        private void writeOutboxEvent(OutboxEvent event) {
+            record.putLong(event.id());
+            record.putLong(event.orderId());
+            writeInstant(event.createdDate());
+            record.put((byte) (event.sentDate() == null ? 0 : 1));
+            if (event.sentDate() != null) {
+                writeInstant(event.sentDate());
+            }
+        }
+
+        private void writeInteger(Integer value) {
+            record.putInt(value == null ? NULL_LENGTH : value);
+        }
+
+        private void writeDouble(Double value) {
+            record.put((byte) (value == null ? 0 : 1));
+            record.putDouble(value == null ? 0 : value);
+        }
+
+        private void writeInstant(Instant instant) {
+            record.putLong(instant.getEpochSecond());
+            record.putInt(instant.getNano());
+        }
+
+        private void writeString(String value) {
+            if (value == null) {
+                ensureRemaining(Integer.BYTES);
+                record.putInt(NULL_LENGTH);
+                return;
+            }
+            var bytes = value.getBytes(StandardCharsets.UTF_8);
+            ensureRemaining(Integer.BYTES + bytes.length + FIXED_FIELDS_SIZE);
+            record.putInt(bytes.length);
+            record.put(bytes);
+        }
+
+        //여러 항목을 한 레코드에 담거나 긴 문자열이 들어오면 버퍼를 늘림
+        private void ensureRemaining(int bytes) {
+            if (record.remaining() < bytes) {
+                record = ByteBuffer.allocate(Math.max(record.capacity() * 2, record.position() + bytes)).put(record.flip());
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.UnexpectedRollbackException;
+import org.springframework.transaction.reactive.AbstractReactiveTransactionManager;
+import org.springframework.transaction.reactive.GenericReactiveTransaction;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import reactor.core.publisher.Mono;
+
+/*
+* embedded-store 프로필에서 R2dbcTransactionManager 대신 @Transactional과 TransactionalOperator가 사용하는 트랜잭션 관리자.
+* 트랜잭션마다 EmbeddedStore.Transaction을 리소스로 바인딩하고, 저장소의 변경을 모아 두었다가 커밋할 때 함께 쓴다.
+* 롤백은 모아 둔 변경을 버리는 것으로 끝나며, 중첩(REQUIRES_NEW 등의 일시 중단)은 지원하지 않는다.
+* */
+public class EmbeddedTransactionManager extends AbstractReactiveTransactionManager {
+    private final EmbeddedStore store;
+
+    public EmbeddedTransactionManager(EmbeddedStore store) {
+        this.store = store;
+    }
+
+    @Override
+    protected Object doGetTransaction(TransactionSynchronizationManager synchronizationManager) {
+        return new TransactionObject((EmbeddedStore.Transaction) synchronizationManager.getResource(store));
+    }
+
+    @Override
+    protected boolean isExistingTransaction(Object transaction) {
+        return ((TransactionObject) transaction).transaction != null;
+    }
+
+    @Override
+    protected Mono<Void> doBegin(TransactionSynchronizationManager synchronizationManager, Object transaction,
+                                 TransactionDefinition definition) {
+        return Mono.fromRunnable(() -> {
+            var transactionObject = (TransactionObject) transaction;
+            transactionObject.transaction = store.begin();
+            synchronizationManager.bindResource(store, transactionObject.transaction);
+        });
+    }
+
+    @Override
+    protected Mono<Void> doCommit(TransactionSynchronizationManager synchronizationManager, GenericReactiveTransaction status) {
+        var transaction = ((TransactionObject) status.getTransaction()).transaction;
+        if (transaction.isRollbackOnly()) {
+            return Mono.error(new UnexpectedRollbackException("Transaction rolled back because it has been marked as rollback-only"));
+        }
+        return store.commit(transaction);
+    }
+
+    //커밋하지 않은 변경은 저장소에 반영되지 않으므로 버리기만 하면 됨
+    @Override
+    protected Mono<Void> doRollback(TransactionSynchronizationManager synchronizationManager, GenericReactiveTransaction status) {
+        return Mono.empty();
+    }
+
+    //참여한 트랜잭션이 실패하면 바깥 트랜잭션이 커밋하지 않도록 표시
+    @Override
+    protected Mono<Void> doSetRollbackOnly(TransactionSynchronizationManager synchronizationManager,
+                                           GenericReactiveTransaction status) {
+        return Mono.fromRunnable(() -> ((TransactionObject) status.getTransaction()).transaction.setRollbackOnly());
+    }
+
+    @Override
+    protected Mono<Void> doCleanupAfterCompletion(TransactionSynchronizationManager synchronizationManager, Object transaction) {
+        return Mono.fromRunnable(() -> synchronizationManager.unbindResource(store));
+    }
+
+    private static final class TransactionObject {
+        private EmbeddedStore.Transaction transaction;
+
+        private TransactionObject(EmbeddedStore.Transaction transaction) {
+            this.transaction = transaction;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.Instant;
+
+//POST /orders의 Idempotency-Key와 그 요청으로 생성된 주문의 id, 요청 내용의 해시(requestHash)
+@Table("idempotency_keys")
+public record IdempotencyKey(
+
+        @Id
+        String idempotencyKey,
+
+        Long orderId,
+
+        String requestHash, //키를 처음 사용한 요청 내용의 SHA-256, V10 이전에 기록된 키는 null
+
+
+        Instant createdDate
+) {
+}
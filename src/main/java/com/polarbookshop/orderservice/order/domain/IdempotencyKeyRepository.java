@@ -0,0 +1,41 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+public interface IdempotencyKeyRepository extends ReactiveCrudRepository<IdempotencyKey, String> {
+
+    /*
+    * 키를 기록하고 기록된 행 수를 반환한다.
+    * 이미 만료된(createdDate가 expiredBefore보다 이전인) 키는 덮어쓰고, 아직 유효한 키가 있으면 0을 반환한다.
+    * 다른 트랜잭션이 같은 키를 기록하는 중이면 그 트랜잭션이 끝날 때까지 기다린다.
+    * */
+    @Modifying
+    @Query("""
+            INSERT INTO idempotency_keys (idempotency_key, order_id, request_hash, created_date)
+            VALUES (:idempotencyKey, :orderId, :requestHash, :createdDate)
+            ON CONFLICT (idempotency_key) DO UPDATE
+            SET order_id = EXCLUDED.order_id, request_hash = EXCLUDED.request_hash, created_date = EXCLUDED.created_date
+            WHERE idempotency_keys.created_date < :expiredBefore
+            """)
+    Mono<Integer> insertIfAbsent(String idempotencyKey, Long orderId, String requestHash, Instant createdDate, Instant expiredBefore);
+
+    //만료되지 않은 키를 조회, 처음 요청의 주문 id와 요청 내용의 해시를 함께 반환
+    @Query("""
+            SELECT * FROM idempotency_keys
+            WHERE idempotency_key = :idempotencyKey AND created_date >= :createdAfter
+            """)
+    Mono<IdempotencyKey> findUnexpired(String idempotencyKey, Instant createdAfter);
+
+    //만료된 키를 limit개까지 삭제하여 테이블이 계속 커지지 않도록 함
+    @Modifying
+    @Query("""
+            DELETE FROM idempotency_keys
+            WHERE idempotency_key IN (SELECT idempotency_key FROM idempotency_keys WHERE created_date < :createdBefore LIMIT :limit)
+            """)
+    Mono<Integer> deleteCreatedBefore(Instant createdBefore, int limit);
+}
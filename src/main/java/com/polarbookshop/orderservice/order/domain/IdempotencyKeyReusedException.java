@@ -0,0 +1,8 @@
+package com.polarbookshop.orderservice.order.domain;
+
+//같은 Idempotency-Key를 처음 요청과 다른 내용(ISBN, 수량)의 요청에 다시 사용한 경우, 처음 요청의 주문을 반환하지 않기 위해 사용
+public class IdempotencyKeyReusedException extends RuntimeException {
+    public IdempotencyKeyReusedException(String idempotencyKey) {
+        super("The idempotency key " + idempotencyKey + " has already been used for a different request.");
+    }
+}
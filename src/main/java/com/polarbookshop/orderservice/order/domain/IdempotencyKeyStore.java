@@ -0,0 +1,157 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.polarbookshop.orderservice.config.OrderProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+/*
+* Idempotency-Key가 있는 POST /orders 요청을 한 번만 접수하기 위한 저장소.
+* 메모리(Caffeine AsyncCache)와 idempotency_keys 테이블의 두 단계로 구성된다.
+* 같은 키로 처리 중인 요청이 있으면 그 요청의 결과를 함께 기다리고(single-flight),
+* 이미 처리된 키는 catalog-service 호출이나 새 주문 저장 없이 저장된 주문을 반환한다.
+* 키는 처음 요청의 내용(ISBN, 수량)의 해시와 함께 보관하며, 같은 키로 내용이 다른 요청이 오면 IdempotencyKeyReusedException을 전달한다.
+* 접수가 실패한 키는 남기지 않으므로 클라이언트가 다시 시도할 수 있다.
+* */
+@Component
+public class IdempotencyKeyStore {
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyKeyStore.class);
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final OrderRepository orderRepository;
+    private final OrderProperties.Idempotency properties;
+    private final AsyncCache<String, Submitted> orders;
+    private final Counter memoryHitCounter;
+    private final Counter databaseHitCounter;
+    private Disposable purgeSchedule;
+
+    public IdempotencyKeyStore(IdempotencyKeyRepository idempotencyKeyRepository, OrderRepository orderRepository,
+                               OrderProperties orderProperties, MeterRegistry meterRegistry) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.orderRepository = orderRepository;
+        this.properties = orderProperties.idempotency();
+        this.orders = Caffeine.newBuilder()
+                .maximumSize(properties.maximumSize())
+                .expireAfterWrite(properties.ttl())
+                .buildAsync();
+        this.memoryHitCounter = hitCounter("memory", meterRegistry);
+        this.databaseHitCounter = hitCounter("database", meterRegistry);
+    }
+
+    private static Counter hitCounter(String tier, MeterRegistry meterRegistry) {
+        return Counter.builder("orders.idempotency.hits")
+                .description("Order submissions answered from a previous request with the same idempotency key")
+                .tag("tier", tier)
+                .register(meterRegistry);
+    }
+
+    /*
+    * submission은 같은 키로 주문을 접수하고 idempotency_keys에 기록하는 트랜잭션이어야 하며,
+    * 다른 인스턴스가 먼저 같은 키를 기록했으면 DuplicateIdempotencyKeyException으로 롤백되어야 한다.
+    * */
+    public Mono<Order> submitOnce(String idempotencyKey, OrderSubmission request, Supplier<Mono<Order>> submission) {
+        var requestHash = requestHash(request);
+        var completed = orders.getIfPresent(idempotencyKey);
+        if (completed != null) {
+            memoryHitCounter.increment();
+        }
+        //한 구독자가 취소하더라도 같은 Future를 기다리는 다른 요청에 영향을 주지 않도록 취소를 전파하지 않음
+        return Mono.fromFuture(() -> orders.get(idempotencyKey, (key, executor) -> findStoredOrder(key)
+                        .doOnNext(order -> databaseHitCounter.increment())
+                        .switchIfEmpty(Mono.defer(submission)
+                                .map(order -> new Submitted(requestHash, order))
+                                //다른 인스턴스가 먼저 커밋한 경우 그 주문을 반환
+                                .onErrorResume(DuplicateIdempotencyKeyException.class, exception -> findStoredOrder(key)))
+                        .toFuture()), true)
+                //처리 중인 요청을 함께 기다린 경우에도 처음 요청과 내용이 같을 때만 그 주문을 반환
+                .flatMap(submitted -> submitted.matches(requestHash)
+                        ? Mono.just(submitted.order())
+                        : Mono.error(new IdempotencyKeyReusedException(idempotencyKey)));
+    }
+
+    //저장된 키가 있으면 주문을 조회, 없거나 만료되었으면 빈 객체 반환
+    private Mono<Submitted> findStoredOrder(String idempotencyKey) {
+        return idempotencyKeyRepository.findUnexpired(idempotencyKey, Instant.now().minus(properties.ttl()))
+                .flatMap(stored -> orderRepository.findById(stored.orderId())
+                        .map(order -> new Submitted(stored.requestHash(), order)));
+    }
+
+    //OrderService가 주문과 같은 트랜잭션에서 키를 기록할 때 사용, 이미 유효한 키가 있으면 트랜잭션을 롤백하기 위해 에러를 전달
+    Mono<Order> record(String idempotencyKey, OrderSubmission request, Order order) {
+        var now = Instant.now();
+        return idempotencyKeyRepository.insertIfAbsent(idempotencyKey, order.id(), requestHash(request), now,
+                        now.minus(properties.ttl()))
+                .flatMap(insertedCount -> insertedCount == 0
+                        ? Mono.error(new DuplicateIdempotencyKeyException(idempotencyKey))
+                        : Mono.just(order));
+    }
+
+    //ISBN과 수량의 SHA-256, 구분자를 넣어 ISBN 끝의 숫자와 수량이 이어져 같은 문자열이 되지 않도록 함
+    static String requestHash(OrderSubmission request) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256")
+                    .digest((request.isbn() + "\n" + request.quantity()).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception); //모든 JDK가 SHA-256을 제공
+        }
+    }
+
+    //애플리케이션이 요청을 받을 준비가 되면 만료된 키를 주기적으로 정리
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        purgeSchedule = Flux.interval(properties.purgeInterval())
+                .onBackpressureDrop() //이전 주기가 끝나지 않았으면 이번 주기는 건너뜀
+                .concatMap(tick -> purge(), 0)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (purgeSchedule != null) {
+            purgeSchedule.dispose();
+        }
+    }
+
+    public Mono<Void> purge() {
+        return Mono.defer(() -> idempotencyKeyRepository.deleteCreatedBefore(
+                        Instant.now().minus(properties.ttl()), properties.purgeBatchSize()))
+                .repeat()
+                .takeUntil(deletedCount -> deletedCount < properties.purgeBatchSize())
+                .reduce(0, Integer::sum)
+                .doOnNext(deletedCount -> {
+                    if (deletedCount > 0) {
+                        log.info("Purged {} expired idempotency keys", deletedCount);
+                    }
+                })
+                .then()
+                .onErrorResume(exception -> {
+                    log.warn("Failed to purge expired idempotency keys", exception);
+                    return Mono.empty();
+                });
+    }
+
+    //requestHash가 없으면(V10 이전에 기록된 키) 요청 내용을 비교하지 않음
+    private record Submitted(String requestHash, Order order) {
+        private boolean matches(String otherRequestHash) {
+            return requestHash == null || requestHash.equals(otherRequestHash);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+/*
+* ReactiveCrudRepository가 제공하지 않는 연산을 위한 커스텀 repository fragment.
+* 구현은 이름 규칙(OrderBatchRepositoryImpl)에 따라 Spring Data가 찾아서 OrderRepository에 합쳐준다.
+* */
+public interface OrderBatchRepository {
+
+    //여러 주문을 하나의 multi-row INSERT 문으로 저장하고, 입력 순서대로 저장된 주문을 반환
+    Flux<Order> insertAll(List<Order> orders);
+}
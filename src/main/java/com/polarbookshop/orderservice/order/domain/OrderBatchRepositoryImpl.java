@@ -0,0 +1,67 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import reactor.core.publisher.Flux;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+
+/*
+* 주문 목록을 컬럼별 배열로 바인딩하고 unnest로 펼쳐서 한 번의 왕복으로 저장한다.
+* 주문 수와 상관없이 SQL 문이 같기 때문에 prepared statement 캐시를 그대로 활용할 수 있다.
+* 직접 SQL을 실행하므로 R2DBC auditing과 @Version 처리가 적용되지 않아, 저장 시점과 최초 버전(1)을 직접 채운다.
+* */
+public class OrderBatchRepositoryImpl implements OrderBatchRepository {
+    private static final String INSERT_ALL = """
+            INSERT INTO orders (book_isbn, book_name, book_price, quantity, status, created_date, last_modified_date, version)
+            SELECT line.book_isbn, line.book_name, line.book_price, line.quantity, line.status, :now, :now, 1
+            FROM unnest(
+                    CAST(:bookIsbns AS varchar[]),
+                    CAST(:bookNames AS varchar[]),
+                    CAST(:bookPrices AS float8[]),
+                    CAST(:quantities AS int[]),
+                    CAST(:statuses AS varchar[])
+                ) WITH ORDINALITY AS line(book_isbn, book_name, book_price, quantity, status, position)
+            ORDER BY line.position
+            RETURNING *
+            """;
+
+    private final R2dbcEntityTemplate template;
+
+    public OrderBatchRepositoryImpl(R2dbcEntityTemplate template) {
+        this.template = template;
+    }
+
+    @Override
+    public Flux<Order> insertAll(List<Order> orders) {
+        if (orders.isEmpty()) {
+            return Flux.empty();
+        }
+        var size = orders.size();
+        var bookIsbns = new String[size];
+        var bookNames = new String[size];
+        var bookPrices = new Double[size];
+        var quantities = new Integer[size];
+        var statuses = new String[size];
+        for (int i = 0; i < size; i++) {
+            var order = orders.get(i);
+            bookIsbns[i] = order.bookIsbn();
+            bookNames[i] = order.bookName();
+            bookPrices[i] = order.bookPrice();
+            quantities[i] = order.quantity();
+            statuses[i] = order.status().name();
+        }
+        return template.getDatabaseClient().sql(INSERT_ALL)
+                .bind("now", Instant.now())
+                .bind("bookIsbns", bookIsbns)
+                .bind("bookNames", bookNames)
+                .bind("bookPrices", bookPrices)
+                .bind("quantities", quantities)
+                .bind("statuses", statuses)
+                .map((row, metadata) -> template.getConverter().read(Order.class, row, metadata))
+                .all()
+                //id는 입력 순서대로 발급되므로, id로 정렬하면 RETURNING 순서와 상관없이 입력 순서를 보장
+                .sort(Comparator.comparing(Order::id));
+    }
+}
@@ -0,0 +1,35 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/*
+* keyset 페이지네이션에서 마지막으로 읽은 주문의 위치 (created_date, id).
+* 클라이언트에게는 내부 구조를 알 수 없는 불투명한(opaque) 문자열로 전달한다.
+* */
+public record OrderCursor(
+        Instant createdDate,
+        Long id
+) {
+
+    public static OrderCursor of(Order order) {
+        return new OrderCursor(order.createdDate(), order.id());
+    }
+
+    public String encode() {
+        var value = createdDate.toString() + "," + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    //잘못된 커서가 들어오면 IllegalArgumentException을 던짐
+    public static OrderCursor decode(String cursor) {
+        try {
+            var value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            var separator = value.lastIndexOf(',');
+            return new OrderCursor(Instant.parse(value.substring(0, separator)), Long.parseLong(value.substring(separator + 1)));
+        } catch (RuntimeException exception) {
+            throw new IllegalArgumentException("Invalid order cursor: " + cursor, exception);
+        }
+    }
+}
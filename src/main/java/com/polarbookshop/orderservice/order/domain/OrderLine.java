@@ -0,0 +1,20 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import org.springframework.data.relational.core.mapping.Table;
+
+//장바구니 주문의 책 한 줄, 책마다 catalog에 존재하는지에 따라 접수(ACCEPTED) 혹은 거부(REJECTED)된다.
+@Table("order_lines")
+public record OrderLine(
+        Long orderId,
+        int lineNumber, //1부터 시작하는 장바구니 안의 순서
+        String bookIsbn,
+        String bookName,
+        Double bookPrice,
+        Integer quantity,
+        OrderStatus status
+) {
+
+    public static OrderLine of(int lineNumber, String bookIsbn, String bookName, Double bookPrice, Integer quantity, OrderStatus status) {
+        return new OrderLine(null, lineNumber, bookIsbn, bookName, bookPrice, quantity, status);
+    }
+}
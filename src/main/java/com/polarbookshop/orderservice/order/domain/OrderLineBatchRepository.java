@@ -0,0 +1,12 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+//구현은 이름 규칙(OrderLineBatchRepositoryImpl)에 따라 Spring Data가 찾아서 OrderLineRepository에 합쳐준다.
+public interface OrderLineBatchRepository {
+
+    //주문 하나의 모든 줄을 하나의 multi-row INSERT 문으로 저장하고, 줄 번호 순서대로 저장된 줄을 반환
+    Flux<OrderLine> insertAll(Long orderId, List<OrderLine> lines);
+}
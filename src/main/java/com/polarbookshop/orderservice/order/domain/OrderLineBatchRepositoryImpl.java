@@ -0,0 +1,64 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import reactor.core.publisher.Flux;
+
+import java.util.Comparator;
+import java.util.List;
+
+//OrderBatchRepositoryImpl과 같이 줄을 컬럼별 배열로 바인딩하고 unnest로 펼쳐서 줄 수와 상관없이 한 번의 왕복으로 저장한다.
+public class OrderLineBatchRepositoryImpl implements OrderLineBatchRepository {
+    private static final String INSERT_ALL = """
+            INSERT INTO order_lines (order_id, line_number, book_isbn, book_name, book_price, quantity, status)
+            SELECT :orderId, line.line_number, line.book_isbn, line.book_name, line.book_price, line.quantity, line.status
+            FROM unnest(
+                    CAST(:lineNumbers AS int[]),
+                    CAST(:bookIsbns AS varchar[]),
+                    CAST(:bookNames AS varchar[]),
+                    CAST(:bookPrices AS float8[]),
+                    CAST(:quantities AS int[]),
+                    CAST(:statuses AS varchar[])
+                ) AS line(line_number, book_isbn, book_name, book_price, quantity, status)
+            RETURNING *
+            """;
+
+    private final R2dbcEntityTemplate template;
+
+    public OrderLineBatchRepositoryImpl(R2dbcEntityTemplate template) {
+        this.template = template;
+    }
+
+    @Override
+    public Flux<OrderLine> insertAll(Long orderId, List<OrderLine> lines) {
+        if (lines.isEmpty()) {
+            return Flux.empty();
+        }
+        var size = lines.size();
+        var lineNumbers = new Integer[size];
+        var bookIsbns = new String[size];
+        var bookNames = new String[size];
+        var bookPrices = new Double[size];
+        var quantities = new Integer[size];
+        var statuses = new String[size];
+        for (int i = 0; i < size; i++) {
+            var line = lines.get(i);
+            lineNumbers[i] = line.lineNumber();
+            bookIsbns[i] = line.bookIsbn();
+            bookNames[i] = line.bookName();
+            bookPrices[i] = line.bookPrice();
+            quantities[i] = line.quantity();
+            statuses[i] = line.status().name();
+        }
+        return template.getDatabaseClient().sql(INSERT_ALL)
+                .bind("orderId", orderId)
+                .bind("lineNumbers", lineNumbers)
+                .bind("bookIsbns", bookIsbns)
+                .bind("bookNames", bookNames)
+                .bind("bookPrices", bookPrices)
+                .bind("quantities", quantities)
+                .bind("statuses", statuses)
+                .map((row, metadata) -> template.getConverter().read(OrderLine.class, row, metadata))
+                .all()
+                .sort(Comparator.comparingInt(OrderLine::lineNumber));
+    }
+}
@@ -0,0 +1,12 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.Repository;
+import reactor.core.publisher.Flux;
+
+//장바구니 주문의 줄은 한 번에 저장하고 주문 id로만 조회하므로 CRUD 연산 대신 필요한 연산만 제공
+public interface OrderLineRepository extends Repository<OrderLine, Long>, OrderLineBatchRepository {
+
+    @Query("SELECT * FROM order_lines WHERE order_id = :orderId ORDER BY line_number")
+    Flux<OrderLine> findByOrderId(Long orderId);
+}
@@ -0,0 +1,179 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+* 주문 접수와 발송 처리의 단계별 메트릭.
+* 타이머의 percentile histogram은 application.yaml의 management.metrics.distribution 설정으로 켠다.
+* */
+@Component
+public class OrderMetrics {
+    private final MeterRegistry meterRegistry;
+    private final Timer submitTimer;
+    private final Counter acceptedCounter;
+    private final Counter rejectedCounter;
+    private final Counter dispatchReceivedCounter;
+    private final Counter dispatchAppliedCounter;
+    private final Counter dispatchDeadLetteredCounter;
+    private final DistributionSummary dispatchBatchSize;
+    private final Timer dispatchBatchTimer;
+    private final AtomicLong dispatchPending = new AtomicLong();
+    private final Map<Integer, DispatchRail> dispatchRails = new ConcurrentHashMap<>();
+
+    public OrderMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.submitTimer = Timer.builder("orders.submit")
+                .description("End-to-end time taken to submit an order")
+                .register(meterRegistry);
+        this.acceptedCounter = submittedCounter(OrderStatus.ACCEPTED);
+        this.rejectedCounter = submittedCounter(OrderStatus.REJECTED);
+        this.dispatchReceivedCounter = Counter.builder("orders.dispatch.received")
+                .description("Number of order dispatched messages received")
+                .register(meterRegistry);
+        this.dispatchAppliedCounter = Counter.builder("orders.dispatch.applied")
+                .description("Number of orders changed to DISPATCHED")
+                .register(meterRegistry);
+        this.dispatchDeadLetteredCounter = Counter.builder("orders.dispatch.dead_lettered")
+                .description("Number of order dispatched messages sent to the dead-letter destination after failing every attempt")
+                .register(meterRegistry);
+        this.dispatchBatchSize = DistributionSummary.builder("orders.dispatch.batch.size")
+                .description("Number of order dispatched messages applied in one batch")
+                .register(meterRegistry);
+        this.dispatchBatchTimer = Timer.builder("orders.dispatch.batch")
+                .description("Time taken to apply one batch of order dispatched messages")
+                .register(meterRegistry);
+        //받았지만 아직 DB에 반영되지 않은 메시지 수(소비 지연)
+        Gauge.builder("orders.dispatch.pending", dispatchPending, AtomicLong::get)
+                .description("Number of order dispatched messages received but not applied yet")
+                .register(meterRegistry);
+    }
+
+    private Counter submittedCounter(OrderStatus status) {
+        return Counter.builder("orders.submitted")
+                .description("Number of submitted orders by resulting status")
+                .tag("status", status.name())
+                .register(meterRegistry);
+    }
+
+    <T> Mono<T> timeSubmit(Mono<T> submission) {
+        return time(submission, submitTimer);
+    }
+
+    //table은 저장 대상 테이블(orders, outbox), 같은 구간을 JFR 레코딩에도 OrderPersistEvent로 남김
+    <T> Mono<T> timePersist(String table, Mono<T> persistence) {
+        return timePersist(table, persistence.flux()).singleOrEmpty();
+    }
+
+    <T> Flux<T> timePersist(String table, Flux<T> persistence) {
+        return Flux.defer(() -> {
+            var sample = Timer.start(meterRegistry);
+            var event = new OrderPersistEvent();
+            event.table = table;
+            event.begin();
+            return persistence
+                    .doOnNext(row -> event.rowCount++)
+                    .doOnError(exception -> event.failed = true)
+                    .doFinally(signal -> {
+                        sample.stop(persistTimer(table));
+                        event.commit();
+                    });
+        });
+    }
+
+    private Timer persistTimer(String table) {
+        return Timer.builder("orders.persist")
+                .description("Time taken to persist orders and their events")
+                .tag("table", table)
+                .register(meterRegistry);
+    }
+
+    void recordSubmitted(Order order) {
+        if (order.status() == OrderStatus.ACCEPTED) {
+            acceptedCounter.increment();
+        } else if (order.status() == OrderStatus.REJECTED) {
+            rejectedCounter.increment();
+        }
+    }
+
+    void recordDispatchReceived(int rail) {
+        dispatchReceivedCounter.increment();
+        dispatchPending.incrementAndGet();
+        dispatchRail(rail).pending.incrementAndGet();
+    }
+
+    //묶음의 첫 메시지를 받은 뒤 처리를 시작하기까지 걸린 시간(rail의 소비 지연)
+    void recordDispatchLag(int rail, long receivedNanos) {
+        dispatchRail(rail).lag.record(System.nanoTime() - receivedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    //재시도와 dead-letter까지 끝나 더 이상 처리하지 않는 메시지
+    void recordDispatchHandled(int rail, int messageCount) {
+        dispatchPending.addAndGet(-messageCount);
+        dispatchRail(rail).pending.addAndGet(-messageCount);
+    }
+
+    void recordDispatchDeadLettered() {
+        dispatchDeadLetteredCounter.increment();
+    }
+
+    private DispatchRail dispatchRail(int rail) {
+        return dispatchRails.computeIfAbsent(rail, index -> new DispatchRail(index, meterRegistry));
+    }
+
+    <T> Flux<T> timeDispatchBatch(int batchSize, Flux<T> batch) {
+        dispatchBatchSize.record(batchSize);
+        return Flux.defer(() -> {
+            var sample = Timer.start(meterRegistry);
+            var event = new DispatchBatchEvent();
+            event.batchSize = batchSize;
+            event.begin();
+            return batch
+                    .doOnNext(order -> {
+                        dispatchAppliedCounter.increment();
+                        event.applied++;
+                    })
+                    .doOnError(exception -> event.failed = true)
+                    .doFinally(signal -> {
+                        sample.stop(dispatchBatchTimer);
+                        event.commit();
+                    });
+        });
+    }
+
+    private <T> Mono<T> time(Mono<T> mono, Timer timer) {
+        return Mono.defer(() -> {
+            var sample = Timer.start(meterRegistry);
+            return mono.doFinally(signal -> sample.stop(timer));
+        });
+    }
+
+    //rail별 처리를 기다리는 메시지 수와 소비 지연
+    private static final class DispatchRail {
+        private final AtomicLong pending = new AtomicLong();
+        private final Timer lag;
+
+        private DispatchRail(int index, MeterRegistry meterRegistry) {
+            var rail = String.valueOf(index);
+            Gauge.builder("orders.dispatch.rail.pending", pending, AtomicLong::get)
+                    .description("Number of order dispatched messages waiting on a dispatch rail")
+                    .tag("rail", rail)
+                    .register(meterRegistry);
+            this.lag = Timer.builder("orders.dispatch.rail.lag")
+                    .description("Time order dispatched messages waited on a dispatch rail before their batch was applied")
+                    .tag("rail", rail)
+                    .register(meterRegistry);
+        }
+    }
+}
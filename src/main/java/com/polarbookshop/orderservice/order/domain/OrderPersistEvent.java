@@ -0,0 +1,26 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+//주문과 outbox 이벤트를 저장하는 시간을 JFR 레코딩에 남기는 이벤트(OrderMetrics.timePersist)
+@Name("com.polarbookshop.orderservice.OrderPersist")
+@Label("Order Persist")
+@Category({"Polar Bookshop", "Order Service"})
+@Description("Insert of orders or their outbox events")
+@StackTrace(false)
+final class OrderPersistEvent extends Event {
+
+    @Label("Table")
+    String table;
+
+    @Label("Row Count")
+    int rowCount;
+
+    @Label("Failed")
+    boolean failed;
+}
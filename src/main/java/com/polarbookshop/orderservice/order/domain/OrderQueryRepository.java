@@ -0,0 +1,21 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import reactor.core.publisher.Flux;
+
+import java.time.Instant;
+
+//조건에 따라 SQL이 달라지는 조회 연산을 위한 커스텀 repository fragment
+public interface OrderQueryRepository {
+
+    /*
+    * (created_date, id) 기준 내림차순으로 after 다음 위치부터 최대 limit개의 주문을 조회한다.
+    * status, bookIsbn, after는 null이면 조건에서 제외된다.
+    * */
+    Flux<Order> findPage(OrderStatus status, String bookIsbn, OrderCursor after, int limit);
+
+    /*
+    * from 이상 to 미만에 생성된 주문을 보관된 주문까지 포함해 (created_date, id) 오름차순으로 조회한다.
+    * status는 null이면 조건에서 제외되며, DB 커서에서 fetchSize개씩 읽으므로 결과 전체를 메모리에 올리지 않는다.
+    * */
+    Flux<Order> findCreatedBetween(Instant from, Instant to, OrderStatus status, int fetchSize);
+}
@@ -0,0 +1,78 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import reactor.core.publisher.Flux;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.StringJoiner;
+
+/*
+* OFFSET 대신 마지막으로 읽은 (created_date, id) 다음부터 읽는 keyset 페이지네이션.
+* 행 값 비교((created_date, id) < (...))를 사용해야 V2 마이그레이션의 인덱스를 범위 조건으로 사용할 수 있어,
+* 테이블이 커져도 페이지 조회 비용이 일정하게 유지된다.
+* */
+public class OrderQueryRepositoryImpl implements OrderQueryRepository {
+    private final R2dbcEntityTemplate template;
+
+    public OrderQueryRepositoryImpl(R2dbcEntityTemplate template) {
+        this.template = template;
+    }
+
+    @Override
+    public Flux<Order> findPage(OrderStatus status, String bookIsbn, OrderCursor after, int limit) {
+        var conditions = new StringJoiner(" AND ", " WHERE ", "").setEmptyValue("");
+        if (status != null) {
+            conditions.add("status = :status");
+        }
+        if (bookIsbn != null) {
+            conditions.add("book_isbn = :bookIsbn");
+        }
+        if (after != null) {
+            conditions.add("(created_date, id) < (:createdDate, :id)");
+        }
+        var sql = "SELECT * FROM orders" + conditions + " ORDER BY created_date DESC, id DESC LIMIT :limit";
+
+        var spec = template.getDatabaseClient().sql(sql).bind("limit", limit);
+        if (status != null) {
+            spec = spec.bind("status", status.name());
+        }
+        if (bookIsbn != null) {
+            spec = spec.bind("bookIsbn", bookIsbn);
+        }
+        if (after != null) {
+            //timestamp 컬럼은 읽을 때 시스템 시간대의 LocalDateTime으로 변환되므로, 같은 방식으로 되돌려 비교
+            spec = spec.bind("createdDate", LocalDateTime.ofInstant(after.createdDate(), ZoneId.systemDefault()))
+                    .bind("id", after.id());
+        }
+        return spec
+                .map((row, metadata) -> template.getConverter().read(Order.class, row, metadata))
+                .all();
+    }
+
+    /*
+    * fetchSize를 지정하면 드라이버가 결과를 한 번에 받지 않고 포털(서버 측 커서)에서 fetchSize개씩 요청하므로,
+    * 구독자가 요청한 만큼만 읽어 내보내기 크기와 상관없이 메모리 사용량이 일정하다.
+    * 파티션마다 (created_date, id) 인덱스로 읽은 결과를 병합하므로 전체를 정렬하지 않는다(보관 테이블의 범위만 정렬).
+    * */
+    @Override
+    public Flux<Order> findCreatedBetween(Instant from, Instant to, OrderStatus status, int fetchSize) {
+        var conditions = " WHERE created_date >= :from AND created_date < :to" + (status != null ? " AND status = :status" : "");
+        var sql = "SELECT * FROM orders" + conditions
+                + " UNION ALL SELECT * FROM orders_archive" + conditions
+                + " ORDER BY created_date, id";
+
+        //timestamp 컬럼은 시스템 시간대의 LocalDateTime으로 저장되므로 같은 방식으로 변환해 비교
+        var spec = template.getDatabaseClient().sql(sql)
+                .bind("from", LocalDateTime.ofInstant(from, ZoneId.systemDefault()))
+                .bind("to", LocalDateTime.ofInstant(to, ZoneId.systemDefault()));
+        if (status != null) {
+            spec = spec.bind("status", status.name());
+        }
+        return spec
+                .filter(statement -> statement.fetchSize(fetchSize))
+                .map((row, metadata) -> template.getConverter().read(Order.class, row, metadata))
+                .all();
+    }
+}
@@ -1,7 +1,63 @@
 package com.polarbookshop.orderservice.order.domain;
 
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-public interface OrderRepository extends ReactiveCrudRepository<Order,Long> {
+import java.time.Instant;
+
+public interface OrderRepository extends ReactiveCrudRepository<Order,Long>, OrderBatchRepository, OrderQueryRepository {
     //CRUD 연산을 제공하는 리액티브 repository가 관리할 엔티티의 유형(order)과 해당 엔티티의 primary key 유형(Long)을 지정하고 확장
+    //OrderBatchRepository는 여러 주문을 한 번에 저장하는 연산을, OrderQueryRepository는 keyset 페이지 조회를 추가
+
+    /*
+    * 여러 주문을 한 번의 UPDATE 문으로 DISPATCHED 상태로 변경하고, 실제로 변경된 주문만 반환한다.
+    * ACCEPTED인 주문만 변경하므로 이미 DISPATCHED인 주문은 같은 메시지를 다시 받아도 결과가 같고(멱등성),
+    * REJECTED인 주문은 발송되지 않는다. 반환된 주문은 모두 ACCEPTED였으므로 OrderStatistics가 그 상태에서 옮길 수 있다.
+    * 조회 후 저장하는 대신 DB에서 버전을 올리므로 낙관적 잠금 충돌도 발생하지 않는다.
+    * */
+    @Query("""
+            UPDATE orders
+            SET status = 'DISPATCHED', last_modified_date = :lastModifiedDate, version = version + 1
+            WHERE id = ANY(:ids) AND status = 'ACCEPTED'
+            RETURNING *
+            """)
+    Flux<Order> updateStatusToDispatched(Long[] ids, Instant lastModifiedDate);
+
+    //보관된(orders_archive) 주문도 id로 조회할 수 있도록 기본 findById를 대체
+    @Override
+    @Query("""
+            SELECT * FROM orders WHERE id = :id
+            UNION ALL
+            SELECT * FROM orders_archive WHERE id = :id
+            LIMIT 1
+            """)
+    Mono<Order> findById(Long id);
+
+    /*
+    * createdBefore 이전에 생성된 DISPATCHED 주문을 limit개까지 orders_archive로 옮기고, 옮긴 주문 수를 반환한다.
+    * SKIP LOCKED를 사용하므로 여러 인스턴스가 동시에 실행해도 같은 주문을 옮기려고 기다리지 않는다.
+    * */
+    @Modifying
+    @Query("""
+            WITH archived AS (
+                DELETE FROM orders
+                WHERE (id, created_date) IN (
+                    SELECT id, created_date FROM orders
+                    WHERE status = 'DISPATCHED' AND created_date < :createdBefore
+                    LIMIT :limit
+                    FOR UPDATE SKIP LOCKED
+                )
+                RETURNING *
+            )
+            INSERT INTO orders_archive SELECT * FROM archived
+            """)
+    Mono<Integer> archiveDispatchedBefore(Instant createdBefore, int limit);
+
+    //이번 달부터 monthsAhead개월 뒤까지의 월별 파티션을 만들고, 이미 있는 파티션은 건너뜀(V6__Orders_partitioning.sql)
+    @Modifying
+    @Query("SELECT create_orders_partitions(CAST(now() AS date), :monthsAhead)")
+    Mono<Void> createPartitions(int monthsAhead);
 }
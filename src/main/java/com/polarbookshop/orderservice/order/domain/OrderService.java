@@ -2,77 +2,297 @@ package com.polarbookshop.orderservice.order.domain;
 
 import com.polarbookshop.orderservice.book.Book;
 import com.polarbookshop.orderservice.book.BookClient;
-import com.polarbookshop.orderservice.order.event.OrderAcceptedMessage;
+import com.polarbookshop.orderservice.config.OrderProperties;
 import com.polarbookshop.orderservice.order.event.OrderDispatchedMessage;
+import com.polarbookshop.orderservice.order.event.OutboxEvent;
+import com.polarbookshop.orderservice.order.event.OutboxRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cloud.stream.function.StreamBridge;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiFunction;
 
 @Service
 public class OrderService {
     private static final Logger log = LoggerFactory.getLogger(OrderService.class);
 
     private final OrderRepository orderRepository;
+    private final OrderLineRepository orderLineRepository;
     private final BookClient bookClient;
-    private final StreamBridge streamBridge;
+    private final OutboxRepository outboxRepository;
+    private final OrderProperties orderProperties;
+    private final OrderMetrics orderMetrics;
+    private final IdempotencyKeyStore idempotencyKeyStore;
+    private final OrderStatistics orderStatistics;
+    private final OrderUpdates orderUpdates;
 
-    public OrderService(OrderRepository orderRepository, BookClient bookClient, StreamBridge streamBridge) {
+    public OrderService(OrderRepository orderRepository, OrderLineRepository orderLineRepository, BookClient bookClient, OutboxRepository outboxRepository,
+                        OrderProperties orderProperties, OrderMetrics orderMetrics, IdempotencyKeyStore idempotencyKeyStore,
+                        OrderStatistics orderStatistics, OrderUpdates orderUpdates) {
         this.orderRepository = orderRepository;
+        this.orderLineRepository = orderLineRepository;
         this.bookClient = bookClient;
-        this.streamBridge = streamBridge;
+        this.outboxRepository = outboxRepository;
+        this.orderProperties = orderProperties;
+        this.orderMetrics = orderMetrics;
+        this.idempotencyKeyStore = idempotencyKeyStore;
+        this.orderStatistics = orderStatistics;
+        this.orderUpdates = orderUpdates;
+    }
+
+    //전체 테이블을 읽는 대신 (created_date, id) 기준으로 한 페이지씩 조회, Flux는 여러 개의 주문을 위해 사용
+    public Flux<Order> getOrders(OrderStatus status, String bookIsbn, OrderCursor after, int limit) {
+        return orderRepository.findPage(status, bookIsbn, after, limit);
     }
 
-    public Flux<Order> getAllOrders() { //Flux는 여러 개의 주문을 위해 사용
-        return orderRepository.findAll();
+    //장바구니 주문의 줄을 줄 번호 순서대로 조회, 장바구니 주문이 아니면 비어 있음
+    public Flux<OrderLine> getOrderLines(Long orderId) {
+        return orderLineRepository.findByOrderId(orderId);
     }
 
-    //'order-accepted' 라는 채널에 메시지 큐잉
+    /*
+    * 기간 안의 주문을 DB 커서에서 fetch-size개씩 읽어 스트리밍한다.
+    * 읽기 전용 트랜잭션 하나에서 읽으므로 내보내는 동안 바뀐 주문이 섞이지 않지만, 내보내기가 끝날 때까지 연결 하나를 사용한다.
+    * */
+    @Transactional(readOnly = true)
+    public Flux<Order> exportOrders(Instant from, Instant to, OrderStatus status) {
+        return orderRepository.findCreatedBetween(from, to, status, orderProperties.export().fetchSize());
+    }
+
+    //주문 목록을 반복해서 조회하는 대신 접수와 발송으로 바뀐 주문을 구독
+    public Flux<Order> getOrderUpdates(OrderStatus status, String bookIsbn) {
+        return orderUpdates.updates(status, bookIsbn);
+    }
+
+    //원본 주문을 집계하지 않고 점진적으로 유지되는 집계를 반환
+    public OrderStats getOrderStats() {
+        return orderStatistics.stats();
+    }
+
+    //'order-accepted' 라는 채널로 보낼 메시지를 outbox에 큐잉
     @Transactional //매서드를 로컬 트랜잭션으로 실행
     public Mono<Order> submitOrder(String isbn, int quantity){
+        return placeOrder(isbn, quantity, null);
+    }
+
+    /*
+    * Idempotency-Key와 함께 주문을 접수한다. 키는 주문과 같은 트랜잭션에서 idempotency_keys에 기록되며,
+    * 이미 유효한 키가 있으면 DuplicateIdempotencyKeyException으로 주문과 이벤트를 모두 롤백한다.
+    * 같은 키의 재시도를 흡수하려면 IdempotencyKeyStore.submitOnce를 거쳐서 호출해야 한다.
+    * */
+    @Transactional
+    public Mono<Order> submitOrder(String isbn, int quantity, String idempotencyKey){
+        return placeOrder(isbn, quantity, idempotencyKey);
+    }
+
+    private Mono<Order> placeOrder(String isbn, int quantity, String idempotencyKey){
         return bookClient.getBookByIsbn(isbn)
                 .map(book -> buildAcceptedOrder(book,quantity)) //책 주문이 가능하면 접수
                 .defaultIfEmpty( //책이 catalog에 존재하지 않으면 주문을 거부
                         buildRejectedOrder(isbn,quantity)
                 )
-                .flatMap(orderRepository::save) //주문을 접수 혹은 거부 상태로 저장
-                .doOnNext(this::publishOrderAcceptedEvent); //주문이 접수되면 이벤트 발행
+                .flatMap(order -> orderMetrics.timePersist("orders", orderRepository.save(order))) //주문을 접수 혹은 거부 상태로 저장
+                .flatMap(order -> idempotencyKey == null ? Mono.just(order)
+                        : idempotencyKeyStore.record(idempotencyKey, new OrderSubmission(isbn, quantity), order))
+                .flatMap(this::enqueueOrderAcceptedEvent) //주문이 접수되면 같은 트랜잭션에서 이벤트를 outbox에 기록
+                .doOnNext(orderMetrics::recordSubmitted)
+                .flatMap(this::recordAfterCommit) //커밋된 뒤에 집계하고 GET /orders/stream 구독자에게 전달
+                .as(orderMetrics::timeSubmit);
+    }
+
+    /*
+    * 여러 주문을 한 번에 접수한다.
+    * 서로 다른 ISBN은 catalog-service의 bulk 엔드포인트로 한 번에 조회하고, 접수/거부된 주문은 하나의 multi-row INSERT로 저장한 뒤
+    * 접수된 주문의 이벤트를 한 번의 INSERT로 outbox에 기록한다. 반환되는 주문의 순서는 입력 순서와 같다.
+    * */
+    @Transactional
+    public Flux<Order> submitOrders(List<OrderSubmission> submissions){
+        var isbns = submissions.stream()
+                .map(OrderSubmission::isbn)
+                .distinct() //중복된 ISBN 조회를 제거
+                .toList();
+        return bookClient.getBooksByIsbns(isbns)
+                .map(books -> submissions.stream()
+                        .map(submission -> books.containsKey(submission.isbn())
+                                ? buildAcceptedOrder(books.get(submission.isbn()), submission.quantity())
+                                : buildRejectedOrder(submission.isbn(), submission.quantity()))
+                        .toList())
+                .flatMapMany(orders -> orderMetrics.timePersist("orders", orderRepository.insertAll(orders)))
+                .collectList()
+                .flatMap(this::enqueueOrderAcceptedEvents)
+                .flatMapIterable(orders -> orders)
+                .doOnNext(orderMetrics::recordSubmitted)
+                .concatMap(this::recordAfterCommit);
+    }
+
+    /*
+    * 여러 책을 담은 장바구니를 주문 하나로 접수한다.
+    * 줄의 ISBN은 catalog-service의 bulk 엔드포인트로 한 번에 조회하고(book-batch 설정에 따라 나누어 동시에 요청),
+    * 머리는 orders에, 모든 줄은 하나의 multi-row INSERT로 order_lines에 저장한 뒤 머리에 대한 이벤트 하나를 outbox에 기록한다.
+    * 줄 수와 상관없이 catalog-service와 DB 왕복 횟수가 일정하다.
+    * */
+    @Transactional
+    public Mono<CartOrder> submitCart(List<OrderSubmission> submissions){
+        var isbns = submissions.stream()
+                .map(OrderSubmission::isbn)
+                .distinct()
+                .toList();
+        return bookClient.getBooksByIsbns(isbns)
+                .map(books -> buildCartOrder(submissions, books))
+                .flatMap(cart -> orderMetrics.timePersist("orders", orderRepository.save(cart.order()))
+                        .flatMap(order -> orderMetrics.timePersist("order_lines", orderLineRepository.insertAll(order.id(), cart.lines()))
+                                .collectList()
+                                .map(lines -> new CartOrder(order, lines))))
+                .flatMap(cart -> enqueueOrderAcceptedEvent(cart.order()).thenReturn(cart))
+                .doOnNext(cart -> orderMetrics.recordSubmitted(cart.order()))
+                .flatMap(cart -> AfterCommit.run(() -> {
+                    orderStatistics.recordSubmitted(cart);
+                    orderUpdates.publish(cart.order());
+                }).thenReturn(cart));
+    }
+
+    //롤백된 주문이 집계되거나 구독자에게 보이지 않도록 커밋된 뒤에 반영
+    private Mono<Order> recordAfterCommit(Order order){
+        return AfterCommit.run(() -> {
+            orderStatistics.recordSubmitted(order);
+            orderUpdates.publish(order);
+        }).thenReturn(order);
+    }
+
+    private Mono<List<Order>> enqueueOrderAcceptedEvents(List<Order> orders){
+        var acceptedOrderIds = orders.stream()
+                .filter(order -> order.status().equals(OrderStatus.ACCEPTED))
+                .map(Order::id)
+                .toArray(Long[]::new);
+        if (acceptedOrderIds.length == 0) {
+            return Mono.just(orders);
+        }
+        log.info("Enqueueing {} order accepted events", acceptedOrderIds.length);
+        return orderMetrics.timePersist("outbox", outboxRepository.insertAll(acceptedOrderIds, Instant.now()))
+                .thenReturn(orders);
     }
-    private void publishOrderAcceptedEvent(Order order){
+    private Mono<Order> enqueueOrderAcceptedEvent(Order order){
         /*
         * RabbitMQ는 적어도 하나의 전달(at-least-one delivered)을 보증하기 때문에
         * 중복으로 메시지를 받을 수 있음을 유념해야 한다.
         * 따라서 연산이 멱등성(계속 실행해도 결과가 같음)을 가지도록 구현해야 한다.
         * */
         if(!order.status().equals(OrderStatus.ACCEPTED)){
-            return; //주문의 상태가 ACCEPTED가 아니면(REJECTED or DISPATCHED라면), 아무것도 하지 않음.
+            return Mono.just(order); //주문의 상태가 ACCEPTED가 아니면(REJECTED or DISPATCHED라면), 아무것도 하지 않음.
         }
-        var orderAcceptedMessage = new OrderAcceptedMessage(order.id());
-        log.info("Sending order accepted event with id: {}", order.id());
-        //메시지를 acceptOrder-out-0 바인딩에 명시적으로 보낸다. 실제 RabbitMQ에는 order-accepted라는 이름의 채널로 보내는 것
-        var result = streamBridge.send("acceptOrder-out-0", orderAcceptedMessage);
+        log.info("Enqueueing order accepted event with id: {}", order.id());
         /*
-        * 데이터의 발원지가 REST 엔드포인트이기 때문에 Spring Cloud Function에 등록할 수 있는 공급자 빈이 없고,
-        * 따라서 프레임워크가 RabbitMQ에 대해 필요한 바인딩을 생성할 수 있는 수단이 없다.
-        * 그래서 StreamBridge를 사용하여 'acceptOrder-out-0'라는 대상 바인딩에게 메시지를 보낸다.
-        * 그리고 acceptOrder라는 함수는 없지만 애플리케이션이 시작할 떄 Spring Cloud Stream은 내부적으로
-        * StreamBridge가 acceptOrder 바인딩을 통해 메시지를 발행하려는 것을 인식하고 이 바인딩 객체를 자동으로 생성한다.
+        * 메시지를 바로 브로커로 보내지 않고 주문과 같은 트랜잭션에서 outbox 테이블에 기록한다.
+        * 주문이 커밋될 때만 이벤트가 남기 때문에 DB와 브로커 사이의 불일치가 없고,
+        * 실제 발행은 OutboxRelay가 묶음 단위로 처리하므로 주문 접수 지연 시간에 브로커 지연이 포함되지 않는다.
         * */
-        log.info("Result of sending data for order with id {}; {}", order.id(), result);
+        return orderMetrics.timePersist("outbox", outboxRepository.save(OutboxEvent.of(order.id())))
+                .thenReturn(order);
     }
-    //'order-dispatched'라는 채널을 구독하여 생기는 메시지에 대한 소비
+    /*
+    * 'order-dispatched'라는 채널을 구독하여 생기는 메시지에 대한 소비.
+    * 메시지를 주문 id의 해시로 rails개의 rail에 나누고, rail마다 개수(batch-size)와 시간(batch-timeout) 기준으로 모아서
+    * 묶음마다 한 번의 UPDATE로 처리한다. 한 rail의 묶음은 차례대로 처리되므로 같은 주문의 메시지는 받은 순서대로 처리되고,
+    * 동시에 실행되는 UPDATE는 rail 수로 제한되어 R2DBC Connection Pool을 모두 점유하지 않는다.
+    * 처리에 실패한 메시지는 재시도한 뒤 로그로 남기고 건너뛰므로 스트림이 끝나지 않는다.
+    * */
     public Flux<Order> consumeOrderDispatchedEvent(
             Flux<OrderDispatchedMessage> flux //OrderDispatchedMessage의 리액티브 스트림을 입력으로 받는다.
     ){
+        return consumeOrderDispatchedEvent(flux, (message, exception) -> {
+            log.error("Discarding order dispatched message for order {} after every attempt failed", message.orderId(), exception);
+            return Mono.empty();
+        });
+    }
+
+    /*
+    * 재시도(max-attempts)까지 모두 실패한 메시지를 deadLetter로 넘긴다.
+    * 묶음이 실패하면 묶음 전체를 재시도하고, 그래도 실패하면 메시지를 하나씩 재시도하여 실패한 메시지만 골라낸다.
+    * */
+    public Flux<Order> consumeOrderDispatchedEvent(
+            Flux<OrderDispatchedMessage> flux,
+            BiFunction<OrderDispatchedMessage, Throwable, Mono<Void>> deadLetter
+    ){
+        var dispatch = orderProperties.dispatch();
         return flux
-                .flatMap(message -> orderRepository.findById(message.orderId()))
-                .map(this::buildDispatchedOrder)
-                .flatMap(orderRepository::save);
+                .filter(message -> message.orderId() != null)
+                .map(message -> new ReceivedDispatch(message, Math.floorMod(Long.hashCode(message.orderId()), dispatch.rails()), System.nanoTime()))
+                .doOnNext(received -> orderMetrics.recordDispatchReceived(received.rail()))
+                .groupBy(ReceivedDispatch::rail)
+                //rail 수만큼 동시에 구독해야 groupBy가 구독되지 않은 rail의 메시지를 쌓아두다 멈추지 않음
+                .flatMap(rail -> rail
+                        //fairBackpressure를 사용해야 concatMap이 이전 묶음을 처리하는 동안 타이머에 의해 묶음이 넘치지 않음
+                        .bufferTimeout(dispatch.batchSize(), dispatch.batchTimeout(), true)
+                        .concatMap(batch -> dispatchBatch(rail.key(), batch, deadLetter)), dispatch.rails());
+    }
+
+    private Flux<Order> dispatchBatch(int rail, List<ReceivedDispatch> batch,
+                                      BiFunction<OrderDispatchedMessage, Throwable, Mono<Void>> deadLetter){
+        orderMetrics.recordDispatchLag(rail, batch.get(0).receivedNanos()); //묶음에서 가장 오래 기다린 메시지 기준
+        var messages = batch.stream().map(ReceivedDispatch::message).toList();
+        return recordDispatched(withRetry(dispatchOrders(messages)))
+                .onErrorResume(exception -> {
+                    log.warn("Order dispatched batch of {} messages failed on rail {}, retrying one message at a time", messages.size(), rail, exception);
+                    return Flux.fromIterable(messages)
+                            .concatMap(message -> recordDispatched(withRetry(dispatchOrders(List.of(message))))
+                                    .onErrorResume(messageException -> deadLetter(message, messageException, deadLetter)));
+                })
+                .doFinally(signal -> orderMetrics.recordDispatchHandled(rail, batch.size()));
+    }
+
+    //UPDATE 결과를 모두 받은 뒤에 내보내야 재시도할 때 같은 주문이 두 번 나가지 않음
+    private Flux<Order> withRetry(Flux<Order> dispatchedOrders){
+        var dispatch = orderProperties.dispatch();
+        return dispatchedOrders.collectList()
+                .retryWhen(Retry.backoff(dispatch.maxAttempts() - 1, dispatch.retryBackoff())
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                .flatMapIterable(orders -> orders);
+    }
+
+    //재시도가 끝난 최종 결과에만 적용해야 실패한 시도에서 바뀐 주문이 통계와 구독자에게 두 번 반영되지 않음
+    private Flux<Order> recordDispatched(Flux<Order> dispatchedOrders){
+        return dispatchedOrders
+                .doOnNext(orderStatistics::recordDispatched) //실제로 상태가 바뀐 주문만 반환됨
+                .doOnNext(orderUpdates::publish);
     }
-    private Order buildDispatchedOrder(Order existingOrder){
+
+    //dead-letter로 보내지 못해도 다른 메시지는 계속 처리
+    private Flux<Order> deadLetter(OrderDispatchedMessage message, Throwable exception,
+                                   BiFunction<OrderDispatchedMessage, Throwable, Mono<Void>> deadLetter){
+        orderMetrics.recordDispatchDeadLettered();
+        return deadLetter.apply(message, exception)
+                .onErrorResume(deadLetterException -> {
+                    log.error("Failed to dead-letter order dispatched message for order {}", message.orderId(), deadLetterException);
+                    return Mono.empty();
+                })
+                .thenMany(Flux.empty());
+    }
+
+    private Flux<Order> dispatchOrders(List<OrderDispatchedMessage> messages){
+        var orderIds = messages.stream()
+                .map(OrderDispatchedMessage::orderId)
+                .filter(Objects::nonNull)
+                .distinct() //같은 묶음 안에서 중복 전달된 메시지 제거
+                .toArray(Long[]::new);
+        var dispatchedOrders = orderIds.length == 0
+                ? Flux.<Order>empty()
+                : orderRepository.updateStatusToDispatched(orderIds, Instant.now());
+        return orderMetrics.timeDispatchBatch(messages.size(), dispatchedOrders);
+    }
+
+    private record ReceivedDispatch(OrderDispatchedMessage message, int rail, long receivedNanos) {}
+
+    //UPDATE 문을 사용할 수 없는 곳에서 주문 하나를 DISPATCHED 상태로 만들 때 사용
+    public static Order buildDispatchedOrder(Order existingOrder){
         return new Order(
                 existingOrder.id(),
                 existingOrder.bookIsbn(),
@@ -86,6 +306,32 @@ public class OrderService {
         );
     }
 
+    /*
+    * catalog에 있는 책의 줄만 접수하고, 접수된 줄이 하나라도 있으면 장바구니 주문을 접수.
+    * 머리의 book_price는 다른 주문처럼 단가이므로 비워 두고(금액은 order_lines에서 계산), quantity는 접수된 줄의 수량만 더한다.
+    * */
+    public static CartOrder buildCartOrder(List<OrderSubmission> submissions, Map<String, Book> books){
+        var lines = new ArrayList<OrderLine>(submissions.size());
+        var acceptedQuantity = 0;
+        var requestedQuantity = 0;
+        for (int i = 0; i < submissions.size(); i++) {
+            var submission = submissions.get(i);
+            var book = books.get(submission.isbn());
+            requestedQuantity += submission.quantity();
+            if (book == null) {
+                lines.add(OrderLine.of(i + 1, submission.isbn(), null, null, submission.quantity(), OrderStatus.REJECTED));
+            } else {
+                lines.add(OrderLine.of(i + 1, book.isbn(), book.title() + " - " + book.author(), book.price(),
+                        submission.quantity(), OrderStatus.ACCEPTED));
+                acceptedQuantity += submission.quantity();
+            }
+        }
+        if (acceptedQuantity == 0) { //모두 거부되면 buildRejectedOrder처럼 요청한 수량을 남김
+            return new CartOrder(Order.of(null, null, null, requestedQuantity, OrderStatus.REJECTED), lines);
+        }
+        return new CartOrder(Order.of(null, null, null, acceptedQuantity, OrderStatus.ACCEPTED), lines);
+    }
+
     public static Order buildAcceptedOrder(Book book, int quantity){
         return Order.of(book.isbn(), book.title() + " - " + book.author(), book.price(), quantity, OrderStatus.ACCEPTED);
     }
@@ -0,0 +1,9 @@
+package com.polarbookshop.orderservice.order.domain;
+
+//order_stats 테이블의 한 행, metric(orders, revenue, quantity)과 dimension(상태, ISBN)별 누적 값
+public record OrderStat(
+        String metric,
+        String dimension,
+        double value
+) {
+}
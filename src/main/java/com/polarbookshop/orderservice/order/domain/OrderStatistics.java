@@ -0,0 +1,250 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import com.polarbookshop.orderservice.config.OrderProperties;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/*
+* GET /orders/stats를 위해 주문 접수와 발송 처리에서 점진적으로 유지하는 집계.
+* 변경분은 lock-free 카운터(DoubleAdder)에 쌓였다가 flush-interval마다 order_stats rollup 테이블에 더해지고,
+* 그 직후 rollup 테이블을 다시 읽어 다른 인스턴스가 누적한 값까지 반영한다.
+* 조회는 마지막으로 읽은 rollup과 아직 flush되지 않은 변경분을 더하기만 하므로 원본 주문을 집계하지 않는다.
+* ISBN별 수량 순위(topBooks)는 마지막으로 rollup을 읽은 시점 기준이다.
+* 발송 메시지는 접수된 주문에 대해서만 발행되므로, DISPATCHED로 바뀐 주문은 ACCEPTED에서 옮겨진 것으로 센다.
+* rollup, 테이블에 쓰지 못한 변경분, 카운터는 하나의 State로 함께 바꾸므로 조회할 때 같은 변경분을 두 번 세거나 빠뜨리지 않는다.
+* */
+@Component
+public class OrderStatistics {
+    private static final Logger log = LoggerFactory.getLogger(OrderStatistics.class);
+    private static final String ORDERS = "orders";
+    private static final String REVENUE = "revenue";
+    private static final String QUANTITY = "quantity";
+    private static final Duration SHUTDOWN_FLUSH_TIMEOUT = Duration.ofSeconds(5);
+
+    private final OrderStatsRepository orderStatsRepository;
+    private final OrderProperties.Stats properties;
+    private final AtomicReference<State> state = new AtomicReference<>(State.initial());
+    private Disposable flushSchedule;
+
+    public OrderStatistics(OrderStatsRepository orderStatsRepository, OrderProperties orderProperties) {
+        this.orderStatsRepository = orderStatsRepository;
+        this.properties = orderProperties.stats();
+    }
+
+    void recordSubmitted(Order order) {
+        add(new Key(ORDERS, order.status().name()), 1);
+        if (order.status() != OrderStatus.REJECTED) {
+            add(new Key(REVENUE, ""), order.bookPrice() * order.quantity());
+            add(new Key(QUANTITY, order.bookIsbn()), order.quantity());
+        }
+    }
+
+    //장바구니 주문은 주문 수는 한 번만 세고, 매출과 ISBN별 수량은 접수된 줄마다 더함
+    void recordSubmitted(CartOrder cart) {
+        add(new Key(ORDERS, cart.order().status().name()), 1);
+        for (var line : cart.lines()) {
+            if (line.status() == OrderStatus.ACCEPTED) {
+                add(new Key(REVENUE, ""), line.bookPrice() * line.quantity());
+                add(new Key(QUANTITY, line.bookIsbn()), line.quantity());
+            }
+        }
+    }
+
+    //updateStatusToDispatched는 ACCEPTED인 주문만 변경하여 반환하므로 ACCEPTED에서 DISPATCHED로 옮김
+    void recordDispatched(Order order) {
+        add(new Key(ORDERS, OrderStatus.ACCEPTED.name()), -1);
+        add(new Key(ORDERS, OrderStatus.DISPATCHED.name()), 1);
+    }
+
+    public OrderStats stats() {
+        var current = state.get();
+        var ordersByStatus = new EnumMap<OrderStatus, Long>(OrderStatus.class);
+        for (var status : OrderStatus.values()) {
+            ordersByStatus.put(status, Math.round(current.value(new Key(ORDERS, status.name()))));
+        }
+        return new OrderStats(ordersByStatus, current.value(new Key(REVENUE, "")), current.rollup().topBooks());
+    }
+
+    /*
+    * 지금 카운터 세대(pending)에 더한다. 더하기 전에 세대가 교체되었으면 새 세대에 다시 더하며,
+    * 교체되기 전에 등록한 writer는 drain이 끝날 때까지 기다려 주므로 drain 중에 더한 값을 잃지 않는다.
+    * */
+    private void add(Key key, double delta) {
+        while (true) {
+            var generation = state.get().pending();
+            generation.writers.incrementAndGet();
+            try {
+                if (generation == state.get().pending()) {
+                    generation.counters.computeIfAbsent(key, k -> new DoubleAdder()).add(delta);
+                    return;
+                }
+            } finally {
+                generation.writers.decrementAndGet();
+            }
+        }
+    }
+
+    //애플리케이션이 요청을 받을 준비가 되면 rollup 테이블을 읽고, 이후 주기적으로 변경분을 flush
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        flushSchedule = Flux.interval(Duration.ZERO, properties.flushInterval())
+                .onBackpressureDrop() //이전 주기가 끝나지 않았으면 이번 주기는 건너뜀
+                .concatMap(tick -> flush(), 0)
+                .subscribe();
+    }
+
+    //종료할 때 남은 변경분을 flush하여 잃어버리지 않도록 함
+    @PreDestroy
+    public void stop() {
+        if (flushSchedule != null) {
+            flushSchedule.dispose();
+            flush().block(SHUTDOWN_FLUSH_TIMEOUT);
+        }
+    }
+
+    /*
+    * 카운터를 비워 테이블에 쓰지 못한 변경분(unflushed)에 합친 뒤 rollup 테이블에 더한다.
+    * 테이블에 쓰지 못하면 변경분을 그대로 두어 다음 flush에서 다시 쓰고,
+    * 쓴 뒤에 rollup을 다시 읽지 못하면 같은 변경분을 다시 쓰지 않도록 지금 rollup에 더해 둔다.
+    * */
+    public Mono<Void> flush() {
+        return Mono.defer(() -> {
+            var deltas = drain();
+            if (deltas.isEmpty()) {
+                return refresh(deltas);
+            }
+            return orderStatsRepository.addAll(deltas.entrySet().stream()
+                            .map(delta -> new OrderStat(delta.getKey().metric(), delta.getKey().dimension(), delta.getValue()))
+                            .toList())
+                    .then(Mono.defer(() -> refresh(deltas)))
+                    .onErrorResume(exception -> {
+                        log.warn("Failed to flush order statistics, retrying on the next flush", exception);
+                        return Mono.empty();
+                    });
+        });
+    }
+
+    //카운터 세대를 교체하고, 이전 세대에 더하는 중인 writer가 끝나면 합계를 unflushed로 옮김
+    private Map<Key, Double> drain() {
+        var drained = state.getAndUpdate(State::swapPending).pending();
+        while (drained.writers.get() != 0) {
+            Thread.onSpinWait();
+        }
+        var sums = drained.sums();
+        return state.updateAndGet(current -> current.unflushed(sums)).unflushed();
+    }
+
+    private Mono<Void> refresh(Map<Key, Double> written) {
+        return orderStatsRepository.findSummary(properties.topBooks())
+                .collectList()
+                .doOnNext(stats -> state.updateAndGet(current -> current.refreshed(Rollup.of(stats), written)))
+                .onErrorResume(exception -> {
+                    log.warn("Failed to reload order statistics", exception);
+                    state.updateAndGet(current -> current.refreshed(current.rollup().plus(written), written));
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private record Key(String metric, String dimension) {
+    }
+
+    private record Rollup(Map<Key, Double> values, List<OrderStats.BookSales> topBooks) {
+        static final Rollup EMPTY = new Rollup(Map.of(), List.of());
+
+        static Rollup of(List<OrderStat> stats) {
+            var values = new HashMap<Key, Double>();
+            var topBooks = new ArrayList<OrderStats.BookSales>();
+            for (var stat : stats) {
+                if (stat.metric().equals(QUANTITY)) {
+                    topBooks.add(new OrderStats.BookSales(stat.dimension(), Math.round(stat.value()))); //수량이 많은 순서로 조회됨
+                } else {
+                    values.put(new Key(stat.metric(), stat.dimension()), stat.value());
+                }
+            }
+            return new Rollup(values, List.copyOf(topBooks));
+        }
+
+        //테이블에 쓴 변경분을 더한 rollup, 순위는 다음에 rollup을 읽을 때 반영됨
+        Rollup plus(Map<Key, Double> deltas) {
+            var plus = new HashMap<>(values);
+            deltas.forEach((key, delta) -> {
+                if (!key.metric().equals(QUANTITY)) {
+                    plus.merge(key, delta, Double::sum);
+                }
+            });
+            return new Rollup(plus, topBooks);
+        }
+    }
+
+    //한 번의 flush 주기 동안 카운터를 쌓는 세대, writers는 이 세대에 더하는 중인 스레드 수
+    private static final class Generation {
+        private final Map<Key, DoubleAdder> counters = new ConcurrentHashMap<>();
+        private final AtomicInteger writers = new AtomicInteger();
+
+        double sum(Key key) {
+            var adder = counters.get(key);
+            return adder == null ? 0 : adder.sum();
+        }
+
+        Map<Key, Double> sums() {
+            var sums = new HashMap<Key, Double>();
+            counters.forEach((key, adder) -> sums.put(key, adder.sum()));
+            return sums;
+        }
+    }
+
+    /*
+    * rollup: 마지막으로 읽은 rollup 테이블, unflushed: 카운터에서 옮겼지만 아직 테이블에 쓰지 못한 변경분,
+    * draining: 교체되어 합계를 옮기는 중인 세대, pending: 지금 더하고 있는 세대.
+    * */
+    private record State(Rollup rollup, Map<Key, Double> unflushed, Generation draining, Generation pending) {
+        static State initial() {
+            return new State(Rollup.EMPTY, Map.of(), null, new Generation());
+        }
+
+        double value(Key key) {
+            return rollup.values().getOrDefault(key, 0.0)
+                    + unflushed.getOrDefault(key, 0.0)
+                    + (draining == null ? 0 : draining.sum(key))
+                    + pending.sum(key);
+        }
+
+        State swapPending() {
+            return new State(rollup, unflushed, pending, new Generation());
+        }
+
+        //교체된 세대의 합계를 unflushed에 합치는 것과 세대를 내려놓는 것을 한 번에 하여 두 번 세지 않음
+        State unflushed(Map<Key, Double> sums) {
+            var merged = new HashMap<>(unflushed);
+            sums.forEach((key, delta) -> merged.merge(key, delta, Double::sum));
+            merged.values().removeIf(delta -> delta == 0);
+            return new State(rollup, Map.copyOf(merged), null, pending);
+        }
+
+        //새 rollup에는 테이블에 쓴 변경분이 들어 있으므로 같은 시점에 unflushed에서 뺌
+        State refreshed(Rollup refreshed, Map<Key, Double> written) {
+            var remaining = new HashMap<>(unflushed);
+            written.forEach((key, delta) -> remaining.computeIfPresent(key, (k, value) -> value - delta == 0 ? null : value - delta));
+            return new State(refreshed, Map.copyOf(remaining), draining, pending);
+        }
+    }
+}
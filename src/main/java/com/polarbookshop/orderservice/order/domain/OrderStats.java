@@ -0,0 +1,16 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import java.util.List;
+import java.util.Map;
+
+//GET /orders/stats의 응답, revenue는 거부되지 않은 주문의 book_price * quantity 합계
+public record OrderStats(
+        Map<OrderStatus, Long> ordersByStatus,
+        double revenue,
+        List<BookSales> topBooks
+) {
+
+    //거부되지 않은 주문의 ISBN별 주문 수량
+    public record BookSales(String isbn, long quantity) {
+    }
+}
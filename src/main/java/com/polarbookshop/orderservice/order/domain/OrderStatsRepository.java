@@ -0,0 +1,16 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+//order_stats rollup에 대한 접근, PostgreSQL(R2dbcOrderStatsRepository) 또는 embedded-store 프로필의 EmbeddedOrderStatsRepository가 구현
+public interface OrderStatsRepository {
+
+    //여러 인스턴스가 동시에 누적해도 값이 유실되지 않도록 기존 값에 더함
+    Mono<Void> addAll(List<OrderStat> deltas);
+
+    //metric별 누적 값을 반환하되, ISBN별 수량(quantity)은 값이 큰 순서로 topBooks개만 반환
+    Flux<OrderStat> findSummary(int topBooks);
+}
@@ -0,0 +1,8 @@
+package com.polarbookshop.orderservice.order.domain;
+
+//여러 주문을 한 번에 접수할 때 주문 한 건을 나타내는 값
+public record OrderSubmission(
+        String isbn,
+        int quantity
+) {
+}
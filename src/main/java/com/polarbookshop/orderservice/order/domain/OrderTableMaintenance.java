@@ -0,0 +1,83 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import com.polarbookshop.orderservice.config.OrderProperties;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/*
+* 월별로 파티션된 orders 테이블(V6__Orders_partitioning.sql)을 관리하는 백그라운드 작업.
+* 주문이 기본 파티션에 쌓이지 않도록 앞으로 partition-months-ahead개월 동안의 파티션을 미리 만들고,
+* 생성된 지 age가 지난 DISPATCHED 주문을 batch-size개씩 orders_archive로 옮겨 최근 파티션을 작게 유지한다.
+* 보관된 주문도 OrderRepository.findById로 조회할 수 있다.
+* */
+@Component
+public class OrderTableMaintenance {
+    private static final Logger log = LoggerFactory.getLogger(OrderTableMaintenance.class);
+
+    private final OrderRepository orderRepository;
+    private final OrderProperties.Archive properties;
+    private final Disposable.Composite schedules = Disposables.composite();
+
+    public OrderTableMaintenance(OrderRepository orderRepository, OrderProperties orderProperties) {
+        this.orderRepository = orderRepository;
+        this.properties = orderProperties.archive();
+    }
+
+    //애플리케이션이 요청을 받을 준비가 되면 파티션 생성과 보관 작업을 주기적으로 실행
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        schedules.add(Flux.interval(Duration.ZERO, properties.partitionInterval())
+                .onBackpressureDrop() //이전 주기가 끝나지 않았으면 이번 주기는 건너뜀
+                .concatMap(tick -> createPartitions(), 0)
+                .subscribe());
+        if (properties.enabled()) {
+            schedules.add(Flux.interval(properties.interval())
+                    .onBackpressureDrop()
+                    .concatMap(tick -> archive(), 0)
+                    .subscribe());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        schedules.dispose();
+    }
+
+    public Mono<Void> createPartitions() {
+        return orderRepository.createPartitions(properties.partitionMonthsAhead())
+                .onErrorResume(exception -> {
+                    log.warn("Failed to create order partitions", exception);
+                    return Mono.empty();
+                });
+    }
+
+    //한 번에 batch-size개씩 옮겨 잠금과 트랜잭션을 짧게 유지하고, 옮길 주문이 남아 있으면 이어서 실행
+    public Mono<Void> archive() {
+        return Mono.defer(() -> orderRepository.archiveDispatchedBefore(
+                        Instant.now().minus(properties.age()), properties.batchSize()))
+                .repeat()
+                .takeUntil(archivedCount -> archivedCount < properties.batchSize())
+                .reduce(0, Integer::sum)
+                .doOnNext(archivedCount -> {
+                    if (archivedCount > 0) {
+                        log.info("Archived {} dispatched orders", archivedCount);
+                    }
+                })
+                .then()
+                .onErrorResume(exception -> {
+                    log.warn("Failed to archive dispatched orders", exception);
+                    return Mono.empty();
+                });
+    }
+}
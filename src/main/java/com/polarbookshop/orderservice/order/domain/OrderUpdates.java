@@ -0,0 +1,53 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import com.polarbookshop.orderservice.config.OrderProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+* GET /orders/stream 구독자에게 주문 접수와 발송으로 바뀐 주문을 전달하는 multicast 스트림.
+* 구독자마다 buffer-size만큼만 쌓아 두고, 클라이언트가 그보다 느리면 오래된 변경부터 버리므로
+* 느린 클라이언트 때문에 힙이 늘어나거나 다른 구독자가 늦어지지 않는다.
+* 전달은 best-effort이며, 놓친 변경은 GET /orders로 다시 조회해야 한다.
+* 트랜잭션 안에서 저장된 주문은 OrderService가 커밋된 뒤에만 발행하므로(AfterCommit) 롤백된 주문은 보이지 않는다.
+* */
+@Component
+public class OrderUpdates {
+    private final Sinks.Many<Order> sink = Sinks.many().multicast().directBestEffort();
+    private final OrderProperties.Updates properties;
+    private final Counter droppedCounter;
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    public OrderUpdates(OrderProperties orderProperties, MeterRegistry meterRegistry) {
+        this.properties = orderProperties.updates();
+        this.droppedCounter = Counter.builder("orders.stream.dropped")
+                .description("Number of order updates dropped because a stream subscriber was too slow")
+                .register(meterRegistry);
+        Gauge.builder("orders.stream.subscribers", subscribers, AtomicInteger::get)
+                .description("Number of clients subscribed to the order update stream")
+                .register(meterRegistry);
+    }
+
+    //status, bookIsbn은 null이면 조건에서 제외되며, 조건에 맞는 변경만 구독자의 버퍼에 쌓임
+    public Flux<Order> updates(OrderStatus status, String bookIsbn) {
+        return sink.asFlux()
+                .filter(order -> status == null || order.status() == status)
+                .filter(order -> bookIsbn == null || bookIsbn.equals(order.bookIsbn()))
+                .onBackpressureBuffer(properties.bufferSize(), order -> droppedCounter.increment(),
+                        BufferOverflowStrategy.DROP_OLDEST)
+                .doOnSubscribe(subscription -> subscribers.incrementAndGet())
+                .doFinally(signal -> subscribers.decrementAndGet());
+    }
+
+    //sink는 동시 발행을 허용하지 않으므로 발행을 직렬화하며, 구독자가 없으면 변경을 버림
+    synchronized void publish(Order order) {
+        sink.tryEmitNext(order);
+    }
+}
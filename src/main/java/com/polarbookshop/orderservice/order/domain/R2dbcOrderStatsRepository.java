@@ -0,0 +1,65 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/*
+* order_stats rollup 테이블에 대한 접근.
+* 복합 키(metric, dimension)를 사용하므로 Spring Data 리포지토리 대신 DatabaseClient로 직접 SQL을 실행한다.
+* embedded-store 프로필에서는 EmbeddedOrderStatsRepository를 사용한다.
+* */
+@Repository
+@Profile("!embedded-store")
+public class R2dbcOrderStatsRepository implements OrderStatsRepository {
+    private static final String ADD_ALL = """
+            INSERT INTO order_stats (metric, dimension, value)
+            SELECT * FROM unnest(CAST(:metrics AS varchar[]), CAST(:dimensions AS varchar[]), CAST(:values AS float8[]))
+            ON CONFLICT (metric, dimension) DO UPDATE SET value = order_stats.value + EXCLUDED.value
+            """;
+    //ISBN별 수량은 상위 limit개만 조회
+    private static final String FIND_SUMMARY = """
+            (SELECT metric, dimension, value FROM order_stats WHERE metric <> 'quantity')
+            UNION ALL
+            (SELECT metric, dimension, value FROM order_stats WHERE metric = 'quantity' ORDER BY value DESC LIMIT :limit)
+            """;
+
+    private final DatabaseClient databaseClient;
+
+    public R2dbcOrderStatsRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    @Override
+    public Mono<Void> addAll(List<OrderStat> deltas) {
+        var size = deltas.size();
+        var metrics = new String[size];
+        var dimensions = new String[size];
+        var values = new Double[size];
+        for (int i = 0; i < size; i++) {
+            metrics[i] = deltas.get(i).metric();
+            dimensions[i] = deltas.get(i).dimension();
+            values[i] = deltas.get(i).value();
+        }
+        return databaseClient.sql(ADD_ALL)
+                .bind("metrics", metrics)
+                .bind("dimensions", dimensions)
+                .bind("values", values)
+                .then();
+    }
+
+    @Override
+    public Flux<OrderStat> findSummary(int topBooks) {
+        return databaseClient.sql(FIND_SUMMARY)
+                .bind("limit", topBooks)
+                .map((row, metadata) -> new OrderStat(
+                        row.get("metric", String.class),
+                        row.get("dimension", String.class),
+                        row.get("value", Double.class)))
+                .all();
+    }
+}
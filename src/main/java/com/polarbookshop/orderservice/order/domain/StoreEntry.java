@@ -0,0 +1,45 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import com.polarbookshop.orderservice.order.event.OutboxEvent;
+
+import java.util.List;
+
+/*
+* EmbeddedStore의 로그에 기록하는 변경 하나.
+* 모두 "이 값으로 바꾼다"는 의미이므로 같은 항목을 다시 적용해도 결과가 같고, 로그를 처음부터 다시 적용하면 마지막 상태가 된다.
+* */
+sealed interface StoreEntry {
+
+    record OrderPut(Order order) implements StoreEntry {
+    }
+
+    record OrderDelete(long id) implements StoreEntry {
+    }
+
+    record OrdersClear() implements StoreEntry {
+    }
+
+    //주문 하나의 모든 줄을 줄 번호 순서대로 담음
+    record OrderLinesPut(long orderId, List<OrderLine> lines) implements StoreEntry {
+    }
+
+    record OutboxEventPut(OutboxEvent event) implements StoreEntry {
+    }
+
+    record OutboxEventDelete(long id) implements StoreEntry {
+    }
+
+    record IdempotencyKeyPut(IdempotencyKey idempotencyKey) implements StoreEntry {
+    }
+
+    record IdempotencyKeyDelete(String idempotencyKey) implements StoreEntry {
+    }
+
+    //증가분이 아닌 누적 값을 기록
+    record StatPut(OrderStat stat) implements StoreEntry {
+    }
+
+    //compaction으로 삭제된 주문과 이벤트의 id를 다시 발급하지 않도록 지금까지 발급한 가장 큰 id를 기록
+    record Sequences(long orderId, long outboxEventId) implements StoreEntry {
+    }
+}
@@ -0,0 +1,86 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import com.polarbookshop.orderservice.order.event.OutboxEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/*
+* EmbeddedStore.Change가 읽고 쓰는 상태로, 커밋된 상태 위에 같은 트랜잭션에서 먼저 기록한 항목을 겹쳐서 보여준다.
+* 기록한 항목은 entries()에 순서대로 모이며, 커밋되기 전까지 EmbeddedStore에는 반영되지 않는다.
+* */
+final class StoreView {
+    private final EmbeddedStore store;
+    private final List<StoreEntry> entries = new ArrayList<>();
+    private final Map<Long, Optional<Order>> orders = new HashMap<>();
+    private boolean ordersCleared;
+    private final Map<Long, List<OrderLine>> orderLines = new HashMap<>();
+    private final Map<Long, Optional<OutboxEvent>> outboxEvents = new HashMap<>();
+    private final Map<String, Optional<IdempotencyKey>> idempotencyKeys = new HashMap<>();
+    private final Map<EmbeddedStore.StatKey, OrderStat> stats = new HashMap<>();
+
+    StoreView(EmbeddedStore store) {
+        this.store = store;
+    }
+
+    Order order(long id) {
+        var order = orders.get(id);
+        if (order != null) {
+            return order.orElse(null);
+        }
+        return ordersCleared ? null : store.order(id);
+    }
+
+    List<OrderLine> orderLines(long orderId) {
+        var lines = orderLines.get(orderId);
+        return lines != null ? lines : store.orderLines(orderId);
+    }
+
+    OutboxEvent outboxEvent(long id) {
+        var event = outboxEvents.get(id);
+        return event != null ? event.orElse(null) : store.outboxEvent(id);
+    }
+
+    IdempotencyKey idempotencyKey(String key) {
+        var idempotencyKey = idempotencyKeys.get(key);
+        return idempotencyKey != null ? idempotencyKey.orElse(null) : store.idempotencyKey(key);
+    }
+
+    double stat(String metric, String dimension) {
+        var key = new EmbeddedStore.StatKey(metric, dimension);
+        var stat = stats.get(key);
+        return stat != null ? stat.value() : store.stat(key);
+    }
+
+    void put(StoreEntry entry) {
+        entries.add(entry);
+        if (entry instanceof StoreEntry.OrderPut put) {
+            orders.put(put.order().id(), Optional.of(put.order()));
+        } else if (entry instanceof StoreEntry.OrderDelete delete) {
+            orders.put(delete.id(), Optional.empty());
+        } else if (entry instanceof StoreEntry.OrdersClear) {
+            orders.clear();
+            ordersCleared = true;
+        } else if (entry instanceof StoreEntry.OrderLinesPut put) {
+            orderLines.put(put.orderId(), put.lines());
+        } else if (entry instanceof StoreEntry.OutboxEventPut put) {
+            outboxEvents.put(put.event().id(), Optional.of(put.event()));
+        } else if (entry instanceof StoreEntry.OutboxEventDelete delete) {
+            outboxEvents.put(delete.id(), Optional.empty());
+        } else if (entry instanceof StoreEntry.IdempotencyKeyPut put) {
+            idempotencyKeys.put(put.idempotencyKey().idempotencyKey(), Optional.of(put.idempotencyKey()));
+        } else if (entry instanceof StoreEntry.IdempotencyKeyDelete delete) {
+            idempotencyKeys.put(delete.idempotencyKey(), Optional.empty());
+        } else if (entry instanceof StoreEntry.StatPut put) {
+            stats.put(new EmbeddedStore.StatKey(put.stat().metric(), put.stat().dimension()), put.stat());
+        }
+    }
+
+    List<StoreEntry> entries() {
+        return Collections.unmodifiableList(entries);
+    }
+}
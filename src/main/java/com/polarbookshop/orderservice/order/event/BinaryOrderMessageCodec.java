@@ -0,0 +1,95 @@
+package com.polarbookshop.orderservice.order.event;
+
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+* 여러 주문 id를 메시지 하나에 담는 바이너리 코덱(application/vnd.polar.order-ids).
+* 본문은 [버전(byte)][id 수(varint)][이전 id와의 차이(zigzag varint)...] 형식이다.
+* outbox의 id 순서대로 발행되는 주문 id는 대부분 가까운 값이므로 차이는 보통 1~2바이트로 인코딩된다.
+* */
+@Component
+public class BinaryOrderMessageCodec implements OrderMessageCodec {
+    public static final MimeType CONTENT_TYPE = MimeType.valueOf("application/vnd.polar.order-ids");
+    private static final byte VERSION = 1;
+    private static final int MAX_VARINT_SIZE = 10;
+
+    @Override
+    public MimeType contentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public int maxOrderIds() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public byte[] encode(List<Long> orderIds) {
+        var buffer = ByteBuffer.allocate(1 + MAX_VARINT_SIZE * (orderIds.size() + 1));
+        buffer.put(VERSION);
+        writeVarint(buffer, orderIds.size());
+        var previous = 0L;
+        for (var orderId : orderIds) {
+            var delta = orderId - previous;
+            writeVarint(buffer, (delta << 1) ^ (delta >> 63));
+            previous = orderId;
+        }
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    @Override
+    public List<Long> decode(byte[] payload) {
+        var buffer = ByteBuffer.wrap(payload);
+        try {
+            var version = buffer.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported order ids message version " + version);
+            }
+            var count = readVarint(buffer);
+            //id 하나는 적어도 1바이트이므로 남은 바이트보다 많으면 잘못된 메시지
+            if (count < 0 || count > buffer.remaining()) {
+                throw new IllegalArgumentException("Invalid order id count " + count);
+            }
+            var orderIds = new ArrayList<Long>((int) count);
+            var previous = 0L;
+            for (var i = 0; i < count; i++) {
+                var zigzag = readVarint(buffer);
+                previous += (zigzag >>> 1) ^ -(zigzag & 1);
+                orderIds.add(previous);
+            }
+            if (buffer.hasRemaining()) {
+                throw new IllegalArgumentException("Unexpected trailing bytes in order ids message");
+            }
+            return orderIds;
+        } catch (BufferUnderflowException exception) {
+            throw new IllegalArgumentException("Truncated order ids message", exception);
+        }
+    }
+
+    private static void writeVarint(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long readVarint(ByteBuffer buffer) {
+        var value = 0L;
+        for (var shift = 0; shift < Long.SIZE; shift += 7) {
+            var b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in order ids message");
+    }
+}
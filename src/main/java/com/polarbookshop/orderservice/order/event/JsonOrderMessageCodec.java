@@ -0,0 +1,55 @@
+package com.polarbookshop.orderservice.order.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.IOException;
+import java.util.List;
+
+/*
+* 기존 JSON 형식({"orderId": 1})으로 메시지 하나에 주문 하나를 담는 코덱.
+* OrderAcceptedMessage와 OrderDispatchedMessage는 같은 모양이므로 두 메시지 모두 이 코덱으로 처리한다.
+* contentType 헤더가 없는 메시지도 이 형식으로 읽는다.
+* */
+@Component
+public class JsonOrderMessageCodec implements OrderMessageCodec {
+    private final ObjectMapper objectMapper;
+
+    public JsonOrderMessageCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public MimeType contentType() {
+        return MimeTypeUtils.APPLICATION_JSON;
+    }
+
+    @Override
+    public int maxOrderIds() {
+        return 1;
+    }
+
+    @Override
+    public byte[] encode(List<Long> orderIds) {
+        if (orderIds.size() != 1) {
+            throw new IllegalArgumentException("JSON order messages carry exactly one order id, got " + orderIds.size());
+        }
+        try {
+            return objectMapper.writeValueAsBytes(new OrderAcceptedMessage(orderIds.get(0)));
+        } catch (IOException exception) {
+            throw new IllegalArgumentException("Failed to encode order message", exception);
+        }
+    }
+
+    @Override
+    public List<Long> decode(byte[] payload) {
+        try {
+            var orderId = objectMapper.readValue(payload, OrderDispatchedMessage.class).orderId();
+            return orderId == null ? List.of() : List.of(orderId);
+        } catch (IOException exception) {
+            throw new IllegalArgumentException("Failed to decode JSON order message", exception);
+        }
+    }
+}
@@ -3,29 +3,77 @@ package com.polarbookshop.orderservice.order.event;
 import com.polarbookshop.orderservice.order.domain.OrderService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cloud.stream.function.StreamBridge;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.util.List;
 import java.util.function.Consumer;
 
 @Configuration
 public class OrderFunctions {
 
     private static final Logger log = LoggerFactory.getLogger(OrderFunctions.class);
+    static final String DISPATCH_ORDER_DLQ_BINDING = "dispatchOrderDlq-out-0";
+    static final String EXCEPTION_MESSAGE_HEADER = "x-exception-message";
 
     @Bean
-    public Consumer<Flux<OrderDispatchedMessage>> dispatchOrder( //order-service는 리액티브 애플리케이션이므로 메시지를 리액티브 스트림(Flux)으로 사용
-            OrderService orderService
+    public Consumer<Flux<Message<byte[]>>> dispatchOrder( //order-service는 리액티브 애플리케이션이므로 메시지를 리액티브 스트림(Flux)으로 사용
+            OrderService orderService,
+            OrderMessageCodecs codecs,
+            StreamBridge streamBridge
     ){
+        /*
+        * 메시지를 본문(byte[]) 그대로 받아 contentType 헤더에 맞는 코덱으로 읽는다.
+        * 메시지 하나에 여러 주문 id가 담겨 있으면(envelope) 주문 id마다 OrderDispatchedMessage로 펼친다.
+        * 리액티브 함수는 메시지마다 ack를 돌려주지 않아 바인더의 DLQ를 사용할 수 없으므로, 계속 실패하는 메시지는 직접 dead-letter 바인딩으로 보낸다.
+        * */
+        var deadLetterCodec = codecs.forContentType(MimeTypeUtils.APPLICATION_JSON);
         return flux ->
-                orderService.consumeOrderDispatchedEvent(flux) //발송된 각 메시지에 대해 DB에 해당 주문을 업데이트
+                orderService.consumeOrderDispatchedEvent( //발송된 각 메시지에 대해 DB에 해당 주문을 업데이트
+                                flux.concatMapIterable(message -> decode(codecs, message)),
+                                (message, exception) -> deadLetter(streamBridge, deadLetterCodec, message, exception))
                         //DB에서 업데이트된 각 주문에 대해 로그 기록
                         .doOnNext(order -> log.info("The order with id {} is dispatched", order.id()))
-                        .subscribe();
+                        .subscribe(order -> {}, exception -> log.error("Order dispatched consumer terminated", exception));
         /*
         * 리액티브 스트림은 데이터를 수신할 구독자가 있는 경우에만 활성화되기 때문에,
         * 마지막에 리액티브 스트림을 subscribe하지 않으면 데이터가 처리되지 않는다.
         * */
     }
+
+    //읽을 수 없는 메시지 때문에 스트림이 끝나지 않도록 로그만 남기고 건너뜀
+    private static List<OrderDispatchedMessage> decode(OrderMessageCodecs codecs, Message<byte[]> message) {
+        try {
+            return codecs.decode(message).stream()
+                    .map(OrderDispatchedMessage::new)
+                    .toList();
+        } catch (IllegalArgumentException exception) {
+            log.warn("Discarding order dispatched message that could not be decoded", exception);
+            return List.of();
+        }
+    }
+
+    //실패한 주문 id를 JSON 메시지로 order-dispatched.dlq에 보냄, 브로커로 보내는 작업은 블로킹이므로 R2DBC 이벤트 루프에서 분리
+    private static Mono<Void> deadLetter(StreamBridge streamBridge, OrderMessageCodec codec,
+                                         OrderDispatchedMessage message, Throwable exception) {
+        return Mono.<Void>fromRunnable(() -> {
+                    var deadLetter = MessageBuilder.withPayload(codec.encode(List.of(message.orderId())))
+                            .setHeader(MessageHeaders.CONTENT_TYPE, codec.contentType())
+                            .setHeader(EXCEPTION_MESSAGE_HEADER, String.valueOf(exception.getMessage()))
+                            .build();
+                    if (!streamBridge.send(DISPATCH_ORDER_DLQ_BINDING, deadLetter, codec.contentType())) {
+                        throw new IllegalStateException("Dead-letter binding did not accept the message");
+                    }
+                    log.warn("Order dispatched message for order {} sent to the dead-letter destination", message.orderId());
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
 }
@@ -0,0 +1,22 @@
+package com.polarbookshop.orderservice.order.event;
+
+import org.springframework.util.MimeType;
+
+import java.util.List;
+
+/*
+* order-accepted/order-dispatched 메시지의 본문을 주문 id 목록으로 인코딩/디코딩하는 코덱.
+* 메시지의 contentType 헤더로 코덱을 고르므로(OrderMessageCodecs), 새로운 형식은 이 인터페이스를 구현한 빈을 추가하면 된다.
+* */
+public interface OrderMessageCodec {
+
+    MimeType contentType();
+
+    //메시지 하나에 담을 수 있는 최대 주문 id 수, 1이면 묶음(envelope)을 지원하지 않음
+    int maxOrderIds();
+
+    byte[] encode(List<Long> orderIds);
+
+    //본문을 읽을 수 없으면 IllegalArgumentException
+    List<Long> decode(byte[] payload);
+}
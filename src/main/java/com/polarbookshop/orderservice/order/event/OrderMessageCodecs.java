@@ -0,0 +1,38 @@
+package com.polarbookshop.orderservice.order.event;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.List;
+
+/*
+* 등록된 OrderMessageCodec 중에서 메시지의 contentType 헤더에 맞는 코덱을 고른다.
+* 소비자는 등록된 모든 형식을 읽을 수 있으므로, 발행하는 쪽의 형식(polar.order.outbox.content-type)을 바꾸기 전에
+* 소비자를 먼저 배포하면 JSON과 바이너리 메시지가 섞여 있는 동안에도 서로 주고받을 수 있다.
+* */
+@Component
+public class OrderMessageCodecs {
+    private final List<OrderMessageCodec> codecs;
+
+    public OrderMessageCodecs(List<OrderMessageCodec> codecs) {
+        this.codecs = List.copyOf(codecs);
+    }
+
+    //contentType이 null이면 기존 JSON 형식으로 간주
+    public OrderMessageCodec forContentType(MimeType contentType) {
+        var requested = contentType == null ? MimeTypeUtils.APPLICATION_JSON : contentType;
+        return codecs.stream()
+                .filter(codec -> codec.contentType().equalsTypeAndSubtype(requested))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("No order message codec for content type " + requested));
+    }
+
+    public List<Long> decode(Message<byte[]> message) {
+        var contentType = message.getHeaders().get(MessageHeaders.CONTENT_TYPE);
+        return forContentType(contentType == null ? null : MimeType.valueOf(contentType.toString()))
+                .decode(message.getPayload());
+    }
+}
@@ -0,0 +1,24 @@
+package com.polarbookshop.orderservice.order.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+//order-accepted 이벤트 묶음 하나를 브로커로 보내고 확인을 받기까지의 시간을 JFR 레코딩에 남기는 이벤트(OutboxRelay)
+@Name("com.polarbookshop.orderservice.OrderPublish")
+@Label("Order Publish")
+@Category({"Polar Bookshop", "Order Service"})
+@Description("Publish of a batch of order accepted events to the message broker")
+@StackTrace(false)
+final class OrderPublishEvent extends Event {
+
+    @Label("Event Count")
+    int eventCount;
+
+    @Label("Confirmed")
+    @Description("Number of events confirmed by the broker")
+    int confirmed;
+}
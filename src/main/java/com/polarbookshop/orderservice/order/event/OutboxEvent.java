@@ -0,0 +1,27 @@
+package com.polarbookshop.orderservice.order.event;
+
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.Instant;
+
+//주문과 같은 트랜잭션에서 outbox 테이블에 기록되는 order-accepted 이벤트, sentDate가 null이면 아직 발행되지 않은 이벤트
+@Table("outbox")
+public record OutboxEvent(
+
+        @Id
+        Long id,
+
+        Long orderId,
+
+        @CreatedDate
+        Instant createdDate,
+
+        Instant sentDate
+) {
+
+    public static OutboxEvent of(Long orderId) {
+        return new OutboxEvent(null, orderId, null, null);
+    }
+}
@@ -0,0 +1,201 @@
+package com.polarbookshop.orderservice.order.event;
+
+import com.polarbookshop.orderservice.config.OrderProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Instant;
+import java.util.List;
+
+/*
+* outbox 테이블에 기록된 order-accepted 이벤트를 묶음 단위로 메시지 브로커에 발행하는 백그라운드 작업.
+* 주문 저장과 이벤트 기록이 같은 트랜잭션에서 이루어지므로, 주문이 커밋되면 이벤트도 반드시 발행된다.
+* 브로커의 확인(publisher confirm)을 받은 이벤트만 발행된 것으로 표시하고, 나머지는 다음 주기에 다시 발행한다.
+* 따라서 같은 이벤트가 두 번 이상 발행될 수 있으며(at-least-once), 소비자는 멱등성을 가져야 한다.
+* envelope-size가 1보다 크면 여러 이벤트를 메시지 하나에 담아 보내며, 확인도 메시지 단위로 받는다.
+* */
+@Component
+public class OutboxRelay {
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+    private static final String ACCEPT_ORDER_BINDING = "acceptOrder-out-0";
+
+    private final OutboxRepository outboxRepository;
+    private final StreamBridge streamBridge;
+    private final TransactionalOperator transactionalOperator;
+    private final OrderProperties.Outbox properties;
+    private final OrderMessageCodec codec;
+    private final MeterRegistry meterRegistry;
+    private final Counter confirmedCounter;
+    private final Counter unconfirmedCounter;
+    private final Disposable.Composite schedules = Disposables.composite();
+
+    public OutboxRelay(OutboxRepository outboxRepository, StreamBridge streamBridge,
+                       TransactionalOperator transactionalOperator, OrderProperties orderProperties,
+                       OrderMessageCodecs codecs, MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.streamBridge = streamBridge;
+        this.transactionalOperator = transactionalOperator;
+        this.properties = orderProperties.outbox();
+        this.codec = codecs.forContentType(properties.contentType());
+        if (properties.envelopeSize() < 1 || properties.envelopeSize() > codec.maxOrderIds()) {
+            throw new IllegalStateException("polar.order.outbox.envelope-size must be between 1 and " + codec.maxOrderIds()
+                    + " for content type " + codec.contentType());
+        }
+        this.meterRegistry = meterRegistry;
+        this.confirmedCounter = publishedCounter("confirmed");
+        this.unconfirmedCounter = publishedCounter("unconfirmed");
+    }
+
+    private Counter publishedCounter(String outcome) {
+        return Counter.builder("orders.publish.events")
+                .description("Number of order accepted events sent to the message broker")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    //애플리케이션이 요청을 받을 준비가 되면 발행과 정리 작업을 주기적으로 실행
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        schedules.add(Flux.interval(properties.pollInterval())
+                .onBackpressureDrop() //이전 주기가 끝나지 않았으면 이번 주기는 건너뜀(concatMap이 prefetch 없이 끝난 뒤에만 요청)
+                .concatMap(tick -> relay(), 0)
+                .subscribe());
+        schedules.add(Flux.interval(properties.purgeInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> purge(), 0)
+                .subscribe());
+    }
+
+    @PreDestroy
+    public void stop() {
+        schedules.dispose();
+    }
+
+    //묶음이 가득 찰 때까지 연속으로 발행하여, 밀려 있는 이벤트를 한 주기 안에 최대한 비움
+    public Mono<Void> relay() {
+        return Mono.defer(this::relayBatch)
+                .repeat()
+                .takeUntil(sentCount -> sentCount < properties.batchSize())
+                .then()
+                .onErrorResume(exception -> {
+                    log.warn("Failed to relay order accepted events", exception);
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Integer> relayBatch() {
+        return outboxRepository.findUnsentForUpdate(properties.batchSize())
+                .collectList()
+                .flatMap(events -> events.isEmpty() ? Mono.just(0) : publish(events)
+                        .flatMap(sentIds -> sentIds.length == 0
+                                ? Mono.just(0)
+                                : outboxRepository.markSent(sentIds, Instant.now()).thenReturn(events.size())))
+                .as(transactionalOperator::transactional); //잠금을 발행이 끝날 때까지 유지
+    }
+
+    //묶음 하나를 보내고 확인을 받기까지 걸린 시간을 orders.publish와 JFR 레코딩(OrderPublishEvent)에 기록
+    private Mono<Long[]> publish(List<OutboxEvent> events) {
+        var timer = Timer.builder("orders.publish")
+                .description("Time taken to publish a batch of order accepted events")
+                .register(meterRegistry);
+        return Flux.fromIterable(events)
+                .buffer(properties.envelopeSize()) //메시지 하나에 담을 이벤트 묶음
+                .publishOn(Schedulers.boundedElastic()) //브로커로 보내는 작업은 블로킹이므로 R2DBC 이벤트 루프에서 분리
+                .map(this::send)
+                .collectList()
+                .flatMapMany(Flux::merge) //모든 메시지를 먼저 보낸 뒤 확인을 한꺼번에 기다림
+                .map(OutboxEvent::id)
+                .collectList()
+                .map(ids -> {
+                    confirmedCounter.increment(ids.size());
+                    unconfirmedCounter.increment(events.size() - ids.size());
+                    if (ids.size() < events.size()) {
+                        log.warn("{} of {} order accepted events were not confirmed, retrying later",
+                                events.size() - ids.size(), events.size());
+                    }
+                    return ids.toArray(Long[]::new);
+                })
+                .transform(publishing -> Mono.defer(() -> {
+                    var sample = Timer.start(meterRegistry);
+                    var event = new OrderPublishEvent();
+                    event.eventCount = events.size();
+                    event.begin();
+                    return publishing
+                            .doOnNext(ids -> event.confirmed = ids.length)
+                            .doFinally(signal -> {
+                                sample.stop(timer);
+                                event.commit();
+                            });
+                }));
+    }
+
+    //발행에 성공하면 메시지에 담은 이벤트를, 실패하거나 확인을 받지 못하면 빈 Flux를 반환
+    private Flux<OutboxEvent> send(List<OutboxEvent> events) {
+        var orderIds = events.stream().map(OutboxEvent::orderId).toList();
+        var correlationData = new CorrelationData(String.valueOf(events.get(0).id()));
+        var message = MessageBuilder.withPayload(codec.encode(orderIds))
+                .setHeader(MessageHeaders.CONTENT_TYPE, codec.contentType()); //소비자는 이 헤더로 코덱을 고름
+        if (properties.publisherConfirms()) {
+            //RabbitMQ 바인더가 이 헤더의 CorrelationData로 브로커의 확인 결과를 알려줌(use-confirm-header)
+            message.setHeader(AmqpHeaders.PUBLISH_CONFIRM_CORRELATION, correlationData);
+        }
+        //메시지를 acceptOrder-out-0 바인딩에 명시적으로 보낸다. 실제 RabbitMQ에는 order-accepted라는 이름의 채널로 보내는 것
+        var result = streamBridge.send(ACCEPT_ORDER_BINDING, message.build(), codec.contentType());
+        /*
+        * 데이터의 발원지가 outbox 테이블이기 때문에 Spring Cloud Function에 등록할 수 있는 공급자 빈이 없고,
+        * 따라서 프레임워크가 RabbitMQ에 대해 필요한 바인딩을 생성할 수 있는 수단이 없다.
+        * 그래서 StreamBridge를 사용하여 'acceptOrder-out-0'라는 대상 바인딩에게 메시지를 보낸다.
+        * 그리고 acceptOrder라는 함수는 없지만 애플리케이션이 시작할 떄 Spring Cloud Stream은 내부적으로
+        * StreamBridge가 acceptOrder 바인딩을 통해 메시지를 발행하려는 것을 인식하고 이 바인딩 객체를 자동으로 생성한다.
+        * */
+        log.debug("Result of sending data for orders with ids {}; {}", orderIds, result);
+        if (!result) {
+            return Flux.empty();
+        }
+        if (!properties.publisherConfirms()) {
+            return Flux.fromIterable(events);
+        }
+        return Mono.fromFuture(correlationData.getFuture())
+                .timeout(properties.confirmTimeout())
+                .filter(CorrelationData.Confirm::isAck)
+                .flatMapMany(confirm -> Flux.fromIterable(events))
+                .onErrorResume(exception -> Mono.empty());
+    }
+
+    //발행이 끝난 지 retention이 지난 이벤트를 묶음 단위로 삭제
+    public Mono<Void> purge() {
+        var sentBefore = Instant.now().minus(properties.retention());
+        return Mono.defer(() -> outboxRepository.deleteSentBefore(sentBefore, properties.purgeBatchSize()))
+                .repeat()
+                .takeUntil(deletedCount -> deletedCount < properties.purgeBatchSize())
+                .reduce(0, Integer::sum)
+                .doOnNext(deletedCount -> {
+                    if (deletedCount > 0) {
+                        log.info("Purged {} sent order accepted events", deletedCount);
+                    }
+                })
+                .then()
+                .onErrorResume(exception -> {
+                    log.warn("Failed to purge sent order accepted events", exception);
+                    return Mono.empty();
+                });
+    }
+}
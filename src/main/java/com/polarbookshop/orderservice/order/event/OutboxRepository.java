@@ -0,0 +1,46 @@
+package com.polarbookshop.orderservice.order.event;
+
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+public interface OutboxRepository extends ReactiveCrudRepository<OutboxEvent, Long> {
+
+    //여러 주문의 이벤트를 한 번의 INSERT 문으로 기록
+    @Modifying
+    @Query("""
+            INSERT INTO outbox (order_id, created_date)
+            SELECT unnest(CAST(:orderIds AS bigint[])), :createdDate
+            """)
+    Mono<Integer> insertAll(Long[] orderIds, Instant createdDate);
+
+    /*
+    * 아직 발행되지 않은 이벤트를 오래된 순서대로 limit개까지 잠그고 조회한다.
+    * SKIP LOCKED를 사용하므로 여러 인스턴스의 OutboxRelay가 동시에 실행되어도 같은 이벤트를 나눠 갖지 않는다.
+    * 트랜잭션 안에서 호출해야 잠금이 유지된다.
+    * */
+    @Query("""
+            SELECT * FROM outbox
+            WHERE sent_date IS NULL
+            ORDER BY id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """)
+    Flux<OutboxEvent> findUnsentForUpdate(int limit);
+
+    @Modifying
+    @Query("UPDATE outbox SET sent_date = :sentDate WHERE id = ANY(:ids)")
+    Mono<Integer> markSent(Long[] ids, Instant sentDate);
+
+    //발행이 끝난 지 오래된 이벤트를 limit개까지 삭제하여 테이블이 계속 커지지 않도록 함
+    @Modifying
+    @Query("""
+            DELETE FROM outbox
+            WHERE id IN (SELECT id FROM outbox WHERE sent_date < :sentBefore LIMIT :limit)
+            """)
+    Mono<Integer> deleteSentBefore(Instant sentBefore, int limit);
+}
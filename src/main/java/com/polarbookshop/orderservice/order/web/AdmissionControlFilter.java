@@ -0,0 +1,147 @@
+package com.polarbookshop.orderservice.order.web;
+
+import com.polarbookshop.orderservice.config.OrderProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+/*
+* /orders 요청을 처리하기 전에 과부하인지 판단하여, 넘치는 요청은 Reactor 안에서 기다리게 하지 않고 바로 503과 Retry-After로 거절한다.
+* 읽기(GET)와 쓰기(POST 등)는 각자의 lane에서 아래 조건을 확인한다.
+* - 처리 중인 요청 수가 lane의 한도 이상
+* - R2DBC 연결을 기다리는 요청 수(pending acquire)가 lane의 한도 이상
+* - 쓰기 lane은 최근 응답 시간(EWMA)이 write-latency-target보다 길면 그 비율만큼 한도를 줄임
+* 쓰기는 DB 연결과 catalog-service 호출을 모두 사용하므로 읽기보다 낮은 한도에서 먼저 거절되고,
+* 그동안 읽기는 계속 처리된다. 오래 연결되는 GET /orders/stream은 처리 중인 요청으로 세지 않는다.
+* GET /orders/export는 끝날 때까지 R2DBC 연결을 점유하므로 읽기 lane 대신 export-limit의 작은 한도를 가진 export lane에서 센다.
+* enabled가 false이면 모든 요청을 그대로 통과시킨다(AOT 모드에서도 실행할 때 끌 수 있도록 필터는 항상 등록됨).
+* */
+public class AdmissionControlFilter implements WebFilter {
+    private static final String ORDERS_PATH = "/orders";
+    private static final String STREAM_PATH = "/orders/stream";
+    private static final String EXPORT_PATH = "/orders/export";
+
+    private final boolean enabled;
+    private final IntSupplier pendingAcquires;
+    private final MeterRegistry meterRegistry;
+    private final String retryAfter;
+    private final Lane reads;
+    private final Lane writes;
+    private final Lane exports;
+
+    public AdmissionControlFilter(OrderProperties.Admission properties, IntSupplier pendingAcquires, MeterRegistry meterRegistry) {
+        this.enabled = properties.enabled();
+        this.pendingAcquires = pendingAcquires;
+        this.meterRegistry = meterRegistry;
+        this.retryAfter = String.valueOf(Math.max(1, (properties.retryAfter().toMillis() + 999) / 1000));
+        this.reads = new Lane("read", properties.readLimit(), properties.readPendingAcquireLimit(), null);
+        this.writes = new Lane("write", properties.writeLimit(), properties.writePendingAcquireLimit(),
+                properties.writeLatencyTarget());
+        this.exports = new Lane("export", properties.exportLimit(), properties.readPendingAcquireLimit(), null);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        var path = exchange.getRequest().getPath().pathWithinApplication().value();
+        var ordersRequest = path.equals(ORDERS_PATH) || path.startsWith(ORDERS_PATH + "/");
+        if (!enabled || !ordersRequest || path.equals(STREAM_PATH)) {
+            return chain.filter(exchange);
+        }
+        var lane = path.equals(EXPORT_PATH) ? exports
+                : HttpMethod.GET.equals(exchange.getRequest().getMethod()) ? reads : writes;
+        var rejection = lane.tryAdmit();
+        if (rejection != null) {
+            rejection.increment();
+            var response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            response.getHeaders().set(HttpHeaders.RETRY_AFTER, retryAfter);
+            return response.setComplete();
+        }
+        var startedAt = System.nanoTime();
+        return chain.filter(exchange)
+                .doFinally(signal -> lane.release(System.nanoTime() - startedAt));
+    }
+
+    private final class Lane {
+        private static final double LATENCY_WEIGHT = 0.2; //최근 응답 시간에 주는 가중치
+
+        private final int maxLimit;
+        private final int pendingAcquireLimit;
+        private final long latencyTargetNanos; //0이면 응답 시간으로 한도를 줄이지 않음
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final Counter inFlightRejections;
+        private final Counter pendingAcquireRejections;
+        private final Counter latencyRejections;
+        private double latencyNanos; //최근 응답 시간의 EWMA
+
+        private Lane(String name, int maxLimit, int pendingAcquireLimit, Duration latencyTarget) {
+            this.maxLimit = maxLimit;
+            this.pendingAcquireLimit = pendingAcquireLimit;
+            this.latencyTargetNanos = latencyTarget == null ? 0 : latencyTarget.toNanos();
+            this.inFlightRejections = rejectedCounter(name, "in_flight");
+            this.pendingAcquireRejections = rejectedCounter(name, "pool_pending");
+            this.latencyRejections = rejectedCounter(name, "latency");
+            Gauge.builder("orders.admission.in_flight", inFlight, AtomicInteger::get)
+                    .description("Number of order requests being processed")
+                    .tag("lane", name)
+                    .register(meterRegistry);
+            Gauge.builder("orders.admission.limit", this, Lane::limit)
+                    .description("Current limit of order requests processed at once")
+                    .tag("lane", name)
+                    .register(meterRegistry);
+        }
+
+        private Counter rejectedCounter(String name, String reason) {
+            return Counter.builder("orders.admission.rejected")
+                    .description("Number of order requests rejected with 503 because the service was overloaded")
+                    .tag("lane", name)
+                    .tag("reason", reason)
+                    .register(meterRegistry);
+        }
+
+        //받아들이면 처리 중인 요청 수를 하나 늘리고 null을, 거절하면 거절 사유의 카운터를 반환
+        private Counter tryAdmit() {
+            if (pendingAcquires.getAsInt() >= pendingAcquireLimit) {
+                return pendingAcquireRejections;
+            }
+            var limit = limit();
+            while (true) {
+                var current = inFlight.get();
+                if (current >= limit) {
+                    return limit < maxLimit ? latencyRejections : inFlightRejections;
+                }
+                if (inFlight.compareAndSet(current, current + 1)) {
+                    return null;
+                }
+            }
+        }
+
+        private void release(long elapsedNanos) {
+            inFlight.decrementAndGet();
+            if (latencyTargetNanos > 0) {
+                synchronized (this) {
+                    latencyNanos += LATENCY_WEIGHT * (elapsedNanos - latencyNanos);
+                }
+            }
+        }
+
+        //응답 시간이 목표의 두 배면 한도를 절반으로 줄이고, 적어도 하나는 받아들여 응답 시간이 다시 측정되도록 함
+        private synchronized int limit() {
+            if (latencyTargetNanos == 0 || latencyNanos <= latencyTargetNanos) {
+                return maxLimit;
+            }
+            return Math.max(1, (int) (maxLimit * latencyTargetNanos / latencyNanos));
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.polarbookshop.orderservice.order.web;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+//여러 책을 주문 하나로 접수하는 장바구니 요청, 줄 하나라도 유효하지 않으면 장바구니 전체를 거부
+public record CartRequest(
+        @NotEmpty(message = "The cart must contain at least one line.")
+        List<@Valid OrderRequest> lines
+) {
+}
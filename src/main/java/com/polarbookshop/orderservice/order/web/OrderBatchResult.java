@@ -0,0 +1,21 @@
+package com.polarbookshop.orderservice.order.web;
+
+import com.polarbookshop.orderservice.order.domain.Order;
+
+import java.util.List;
+
+//POST /orders/batch 요청의 각 줄(line)에 대한 처리 결과, 유효성 검사에 실패한 줄은 order 없이 errors만 가진다.
+public record OrderBatchResult(
+        int line,
+        Order order,
+        List<String> errors
+) {
+
+    public static OrderBatchResult submitted(int line, Order order) {
+        return new OrderBatchResult(line, order, List.of());
+    }
+
+    public static OrderBatchResult invalid(int line, List<String> errors) {
+        return new OrderBatchResult(line, null, errors);
+    }
+}
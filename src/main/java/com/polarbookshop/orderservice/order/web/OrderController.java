@@ -1,30 +1,234 @@
 package com.polarbookshop.orderservice.order.web;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.polarbookshop.orderservice.config.OrderProperties;
+import com.polarbookshop.orderservice.order.domain.CartOrder;
+import com.polarbookshop.orderservice.order.domain.IdempotencyKeyReusedException;
+import com.polarbookshop.orderservice.order.domain.IdempotencyKeyStore;
 import com.polarbookshop.orderservice.order.domain.Order;
+import com.polarbookshop.orderservice.order.domain.OrderCursor;
+import com.polarbookshop.orderservice.order.domain.OrderLine;
 import com.polarbookshop.orderservice.order.domain.OrderService;
+import com.polarbookshop.orderservice.order.domain.OrderStats;
+import com.polarbookshop.orderservice.order.domain.OrderStatus;
+import com.polarbookshop.orderservice.order.domain.OrderSubmission;
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
 @RestController
 @RequestMapping("orders")
 public class OrderController {
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255; //idempotency_keys 테이블의 컬럼 길이
     private final OrderService orderService;
+    private final IdempotencyKeyStore idempotencyKeyStore;
+    private final OrderProperties orderProperties;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
 
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, IdempotencyKeyStore idempotencyKeyStore,
+                           OrderProperties orderProperties, Validator validator, ObjectMapper objectMapper) {
         this.orderService = orderService;
+        this.idempotencyKeyStore = idempotencyKeyStore;
+        this.orderProperties = orderProperties;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
     }
 
+    /*
+    * 주문을 최신순으로 한 페이지씩 조회한다.
+    * 다음 페이지가 있으면 Link 헤더(rel="next")에 next 커서를 담은 URI를 반환한다.
+    * */
     @GetMapping
-    public Flux<Order> getAllOrders() {
-        return orderService.getAllOrders();
+    public Mono<ResponseEntity<List<Order>>> getOrders(
+            @RequestParam(required = false) OrderStatus status,
+            @RequestParam(required = false) String bookIsbn,
+            @RequestParam(required = false) String next,
+            @RequestParam(required = false) Integer limit,
+            ServerHttpRequest request
+    ) {
+        var page = orderProperties.page();
+        if (limit != null && limit < 1) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "The limit must be at least 1."));
+        }
+        var pageSize = limit == null ? page.defaultLimit() : Math.min(limit, page.maxLimit());
+        OrderCursor after;
+        try {
+            after = next == null ? null : OrderCursor.decode(next);
+        } catch (IllegalArgumentException exception) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "The next cursor is invalid."));
+        }
+        //다음 페이지가 있는지 확인하기 위해 한 건을 더 조회
+        return orderService.getOrders(status, bookIsbn, after, pageSize + 1)
+                .collectList()
+                .map(orders -> {
+                    if (orders.size() <= pageSize) {
+                        return ResponseEntity.ok(orders);
+                    }
+                    var content = orders.subList(0, pageSize);
+                    var nextUri = UriComponentsBuilder.fromUri(request.getURI())
+                            .replaceQueryParam("next", OrderCursor.of(content.get(pageSize - 1)).encode())
+                            .build(true)
+                            .toUri();
+                    return ResponseEntity.ok()
+                            .header(HttpHeaders.LINK, "<" + nextUri + ">; rel=\"next\"")
+                            .body(content);
+                });
+    }
+
+    /*
+    * 접수와 발송으로 바뀐 주문을 발생하는 대로 전달한다(SSE 또는 NDJSON).
+    * 구독한 뒤의 변경만 전달하며, 클라이언트가 느려서 버린 변경은 GET /orders로 다시 조회해야 한다.
+    * */
+    @GetMapping(value = "stream", produces = {MediaType.TEXT_EVENT_STREAM_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<Order> streamOrders(
+            @RequestParam(required = false) OrderStatus status,
+            @RequestParam(required = false) String bookIsbn
+    ) {
+        return orderService.getOrderUpdates(status, bookIsbn);
+    }
+
+    /*
+    * from 이상 to 미만에 생성된 주문을 보관된 주문까지 포함해 생성 순서대로 NDJSON 또는 CSV 파일로 내보낸다.
+    * 주문을 DB 커서에서 읽는 대로 응답 버퍼에 인코딩하고, 클라이언트가 gzip을 받을 수 있으면 쓰는 동안 압축한다.
+    * */
+    @GetMapping("export")
+    public Mono<Void> exportOrders(
+            @RequestParam Instant from,
+            @RequestParam Instant to,
+            @RequestParam(required = false) OrderStatus status,
+            @RequestParam(defaultValue = "ndjson") String format,
+            ServerHttpRequest request,
+            ServerHttpResponse response
+    ) {
+        var exportFormat = OrderExportFormat.of(format);
+        if (exportFormat == null) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "The format must be ndjson or csv."));
+        }
+        if (!from.isBefore(to)) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "The from date must be before the to date."));
+        }
+        var export = orderProperties.export();
+        var compress = export.compression() && request.getHeaders().getOrEmpty(HttpHeaders.ACCEPT_ENCODING).stream()
+                .anyMatch(encoding -> encoding.toLowerCase().contains("gzip"));
+        var headers = response.getHeaders();
+        headers.setContentType(exportFormat.mediaType());
+        headers.setContentDisposition(ContentDisposition.attachment().filename("orders." + exportFormat.extension()).build());
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (compress) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.writeWith(OrderExportWriter.encode(orderService.exportOrders(from, to, status), exportFormat,
+                objectMapper, compress, response.bufferFactory(), (int) export.chunkSize().toBytes()));
+    }
+
+    //상태별 주문 수, 매출, 주문 수량이 많은 ISBN을 반환하며 원본 주문을 집계하지 않으므로 비용이 일정함
+    @GetMapping("stats")
+    public Mono<OrderStats> getOrderStats() {
+        return Mono.fromSupplier(orderService::getOrderStats);
     }
 
+    //장바구니 주문의 줄을 줄 번호 순서대로 조회
+    @GetMapping("{id}/lines")
+    public Flux<OrderLine> getOrderLines(@PathVariable Long id) {
+        return orderService.getOrderLines(id);
+    }
+
+    /*
+    * 클라이언트가 Idempotency-Key 헤더를 보내면 같은 키로 재시도한 요청은 새 주문을 만들지 않고,
+    * 처리 중인 요청의 결과를 기다리거나 이미 접수된 주문을 그대로 반환한다.
+    * 같은 키를 ISBN이나 수량이 다른 요청에 다시 사용하면 처음 요청의 주문을 반환하지 않고 422로 거부한다.
+    * */
     @PostMapping
-    public Mono<Order> submitOrder(@RequestBody @Valid OrderRequest orderRequest) {
-        return  orderService.submitOrder(
-                orderRequest.isbn(), orderRequest.quantity()
-        );
+    public Mono<Order> submitOrder(@RequestBody @Valid OrderRequest orderRequest,
+                                   @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return orderService.submitOrder(
+                    orderRequest.isbn(), orderRequest.quantity()
+            );
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "The Idempotency-Key must be between 1 and " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters."));
+        }
+        var submission = new OrderSubmission(orderRequest.isbn(), orderRequest.quantity());
+        return idempotencyKeyStore.submitOnce(idempotencyKey, submission, () -> orderService.submitOrder(
+                        orderRequest.isbn(), orderRequest.quantity(), idempotencyKey
+                ))
+                .onErrorMap(IdempotencyKeyReusedException.class,
+                        exception -> new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, exception.getMessage()));
+    }
+
+    /*
+    * 여러 주문을 한 번에 접수한다.
+    * 유효하지 않은 줄이 있어도 전체 요청을 거부하지 않고, 유효한 줄만 접수한 뒤 줄마다 결과를 반환한다.
+    * */
+    @PostMapping("batch")
+    public Flux<OrderBatchResult> submitOrders(@RequestBody List<OrderRequest> orderRequests) {
+        if (orderRequests.size() > orderProperties.batch().maxSize()) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "A batch cannot contain more than " + orderProperties.batch().maxSize() + " orders."));
+        }
+        var invalidResults = new ArrayList<OrderBatchResult>();
+        var validLines = new ArrayList<Integer>();
+        var submissions = new ArrayList<OrderSubmission>();
+        for (int line = 0; line < orderRequests.size(); line++) {
+            var errors = validate(orderRequests.get(line));
+            if (errors.isEmpty()) {
+                validLines.add(line);
+                submissions.add(new OrderSubmission(orderRequests.get(line).isbn(), orderRequests.get(line).quantity()));
+            } else {
+                invalidResults.add(OrderBatchResult.invalid(line, errors));
+            }
+        }
+        //submitOrders는 입력 순서대로 주문을 반환하므로 유효한 줄 번호와 순서대로 짝지을 수 있음
+        Flux<OrderBatchResult> submittedResults = submissions.isEmpty()
+                ? Flux.empty()
+                : orderService.submitOrders(submissions)
+                        .index()
+                        .map(indexed -> OrderBatchResult.submitted(validLines.get(indexed.getT1().intValue()), indexed.getT2()));
+        return Flux.fromIterable(invalidResults)
+                .concatWith(submittedResults)
+                .sort((left, right) -> Integer.compare(left.line(), right.line()));
+    }
+
+    /*
+    * 여러 책을 담은 장바구니를 주문 하나로 접수한다.
+    * 주문 머리와 모든 줄은 한 트랜잭션에서 저장되며, 접수되면 order-accepted 이벤트는 장바구니마다 하나만 발행된다.
+    * */
+    @PostMapping("cart")
+    public Mono<CartOrder> submitCart(@RequestBody @Valid CartRequest cartRequest) {
+        if (cartRequest.lines().size() > orderProperties.cart().maxLines()) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "A cart cannot contain more than " + orderProperties.cart().maxLines() + " lines."));
+        }
+        return orderService.submitCart(cartRequest.lines().stream()
+                .map(line -> new OrderSubmission(line.isbn(), line.quantity()))
+                .toList());
+    }
+
+    private List<String> validate(OrderRequest orderRequest) {
+        if (orderRequest == null) {
+            return List.of("The order must be defined.");
+        }
+        return validator.validate(orderRequest).stream()
+                .map(ConstraintViolation::getMessage)
+                .toList();
     }
 }
@@ -0,0 +1,37 @@
+package com.polarbookshop.orderservice.order.web;
+
+import org.springframework.http.MediaType;
+
+import java.nio.charset.StandardCharsets;
+
+//GET /orders/export 의 format 파라미터로 고르는 형식
+public enum OrderExportFormat {
+    NDJSON(MediaType.APPLICATION_NDJSON, "ndjson"),
+    CSV(new MediaType("text", "csv", StandardCharsets.UTF_8), "csv");
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    OrderExportFormat(MediaType mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public MediaType mediaType() {
+        return mediaType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    //대소문자를 구분하지 않으며, 지원하지 않는 형식이면 null
+    public static OrderExportFormat of(String format) {
+        for (var value : values()) {
+            if (value.extension.equalsIgnoreCase(format)) {
+                return value;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,180 @@
+package com.polarbookshop.orderservice.order.web;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.polarbookshop.orderservice.order.domain.Order;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/*
+* 주문을 NDJSON 또는 CSV로 인코딩하여 응답의 DataBuffer(Netty의 풀링된 버퍼)에 바로 쓴다.
+* gzip이면 Deflater를 거친 압축된 바이트만 버퍼에 쓰며, 버퍼가 chunk-size 이상 차면 응답으로 내보내고 새 버퍼에 이어서 쓴다.
+* Deflater는 출력을 모아 두므로 압축하지 않은 크기로 chunk-size만큼 쓸 때마다 SYNC_FLUSH로 압축된 바이트를 꺼낸다.
+* 주문을 JSON 배열이나 문자열로 모으지 않으므로 내보내기 크기와 상관없이 버퍼 하나만큼의 메모리를 사용한다.
+* */
+final class OrderExportWriter implements AutoCloseable {
+    private static final String CSV_HEADER = "id,book_isbn,book_name,book_price,quantity,status,created_date,last_modified_date,version\r\n";
+
+    private final OrderExportFormat format;
+    private final ObjectWriter jsonWriter;
+    private final DataBufferFactory bufferFactory;
+    private final int chunkSize;
+    private final GZIPOutputStream gzip;
+    private final Writer writer;
+    private DataBuffer buffer;
+    private long uncompressedBytes; //마지막 SYNC_FLUSH 뒤에 Deflater에 쓴 바이트 수
+
+    private OrderExportWriter(OrderExportFormat format, ObjectMapper objectMapper, boolean compress,
+                              DataBufferFactory bufferFactory, int chunkSize) throws IOException {
+        this.format = format;
+        //응답 스트림을 주문마다 닫지 않도록 함
+        this.jsonWriter = objectMapper.writerFor(Order.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.bufferFactory = bufferFactory;
+        this.chunkSize = chunkSize;
+        var target = new OutputStream() {
+            @Override
+            public void write(int b) {
+                buffer().write((byte) b);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) {
+                buffer().write(bytes, offset, length);
+            }
+        };
+        this.gzip = compress ? new GZIPOutputStream(target, chunkSize, true) : null;
+        this.writer = new OutputStreamWriter(compress ? uncompressed(gzip) : target, StandardCharsets.UTF_8);
+        if (format == OrderExportFormat.CSV) {
+            writer.write(CSV_HEADER);
+        }
+    }
+
+    static Flux<DataBuffer> encode(Flux<Order> orders, OrderExportFormat format, ObjectMapper objectMapper, boolean compress,
+                                   DataBufferFactory bufferFactory, int chunkSize) {
+        return Flux.using(
+                        () -> new OrderExportWriter(format, objectMapper, compress, bufferFactory, chunkSize),
+                        writer -> orders
+                                .<DataBuffer>handle((order, sink) -> {
+                                    try {
+                                        var chunk = writer.write(order);
+                                        if (chunk != null) {
+                                            sink.next(chunk);
+                                        }
+                                    } catch (IOException exception) {
+                                        sink.error(exception);
+                                    }
+                                })
+                                .concatWith(Mono.fromCallable(writer::finish)),
+                        OrderExportWriter::close)
+                //취소되어 응답에 쓰지 못한 버퍼는 풀로 돌려줌
+                .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+    }
+
+    //주문 하나를 쓰고, 버퍼가 chunk-size 이상 찼으면 그 버퍼를 반환
+    private DataBuffer write(Order order) throws IOException {
+        switch (format) {
+            case NDJSON -> {
+                jsonWriter.writeValue(writer, order);
+                writer.write('\n');
+            }
+            case CSV -> {
+                writer.write(String.valueOf(order.id()));
+                csvField(order.bookIsbn());
+                csvField(order.bookName());
+                csvField(order.bookPrice());
+                csvField(order.quantity());
+                csvField(order.status());
+                csvField(order.createdDate());
+                csvField(order.lastModifiedDate());
+                csvField(order.version());
+                writer.write("\r\n");
+            }
+        }
+        writer.flush(); //문자 인코더에 남은 바이트를 버퍼(또는 Deflater)로 보냄
+        if (gzip != null && uncompressedBytes >= chunkSize) {
+            gzip.flush();
+            uncompressedBytes = 0;
+        }
+        return buffer != null && buffer.readableByteCount() >= chunkSize ? take() : null;
+    }
+
+    //남은 바이트와 gzip 트레일러를 쓴 마지막 버퍼를 반환, 쓸 것이 없으면 null
+    private DataBuffer finish() throws IOException {
+        writer.flush();
+        if (gzip != null) {
+            gzip.finish();
+        }
+        return take();
+    }
+
+    //RFC 4180에 따라 구분자, 따옴표, 줄바꿈이 있는 값만 따옴표로 감쌈
+    private void csvField(Object value) throws IOException {
+        writer.write(',');
+        if (value == null) {
+            return;
+        }
+        var text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    //writer.flush()가 주문마다 SYNC_FLUSH를 일으켜 압축률이 떨어지지 않도록 flush는 전달하지 않고, Deflater에 쓴 크기를 셈
+    private OutputStream uncompressed(OutputStream gzip) {
+        return new FilterOutputStream(gzip) {
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                out.write(bytes, offset, length);
+                uncompressedBytes += length;
+            }
+
+            @Override
+            public void flush() {
+            }
+        };
+    }
+
+    private DataBuffer buffer() {
+        if (buffer == null) {
+            buffer = bufferFactory.allocateBuffer(chunkSize);
+        }
+        return buffer;
+    }
+
+    private DataBuffer take() {
+        var chunk = buffer;
+        buffer = null;
+        return chunk;
+    }
+
+    //Deflater의 네이티브 메모리를 해제하고, 끝까지 쓰지 못한 버퍼는 풀로 돌려줌
+    @Override
+    public void close() {
+        try {
+            writer.close();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        } finally {
+            if (buffer != null) {
+                DataBufferUtils.release(take());
+            }
+        }
+    }
+}
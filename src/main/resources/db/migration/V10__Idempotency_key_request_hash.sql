@@ -0,0 +1,3 @@
+-- 키를 처음 사용한 요청의 내용(ISBN, 수량)의 SHA-256, 같은 키로 다른 요청을 보내면 처음 요청의 주문 대신 422를 반환하기 위해 사용
+-- 이미 기록된 키는 요청 내용을 알 수 없으므로 비워 두며, 비어 있는 키는 비교하지 않음
+ALTER TABLE idempotency_keys ADD COLUMN request_hash varchar(64);
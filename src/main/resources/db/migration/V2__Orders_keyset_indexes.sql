@@ -0,0 +1,4 @@
+-- GET /orders의 keyset 페이지네이션((created_date, id) 내림차순)과 필터 조건을 위한 인덱스
+CREATE INDEX orders_created_date_id_idx ON orders (created_date DESC, id DESC);
+CREATE INDEX orders_status_created_date_id_idx ON orders (status, created_date DESC, id DESC);
+CREATE INDEX orders_book_isbn_created_date_id_idx ON orders (book_isbn, created_date DESC, id DESC);
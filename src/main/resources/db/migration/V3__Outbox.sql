@@ -0,0 +1,11 @@
+-- 주문 저장과 같은 트랜잭션에서 기록되고, OutboxRelay가 메시지 브로커로 발행하는 order-accepted 이벤트
+CREATE TABLE outbox (
+                        id                  BIGSERIAL PRIMARY KEY NOT NULL,
+                        order_id            bigint NOT NULL,
+                        created_date        timestamp NOT NULL,
+                        sent_date           timestamp
+);
+-- 아직 발행되지 않은 이벤트를 순서대로 읽기 위한 부분 인덱스
+CREATE INDEX outbox_unsent_idx ON outbox (id) WHERE sent_date IS NULL;
+-- 발행이 끝난 이벤트를 정리하기 위한 부분 인덱스
+CREATE INDEX outbox_sent_date_idx ON outbox (sent_date) WHERE sent_date IS NOT NULL;
@@ -0,0 +1,8 @@
+-- POST /orders의 Idempotency-Key 헤더와 그 요청으로 생성된 주문, 클라이언트가 재시도해도 같은 주문을 반환하기 위해 사용
+CREATE TABLE idempotency_keys (
+                        idempotency_key     varchar(255) PRIMARY KEY NOT NULL,
+                        order_id            bigint NOT NULL,
+                        created_date        timestamp NOT NULL
+);
+-- 만료된 키를 정리하기 위한 인덱스
+CREATE INDEX idempotency_keys_created_date_idx ON idempotency_keys (created_date);
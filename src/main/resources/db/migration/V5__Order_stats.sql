@@ -0,0 +1,17 @@
+-- GET /orders/stats의 집계를 인스턴스마다 주기적으로 누적하는 rollup 테이블, metric마다 dimension(상태, ISBN)별로 한 행
+CREATE TABLE order_stats (
+                        metric              varchar(64) NOT NULL,
+                        dimension           varchar(255) NOT NULL,
+                        value               float8 NOT NULL,
+                        PRIMARY KEY (metric, dimension)
+);
+-- 주문 수량이 많은 ISBN을 빠르게 찾기 위한 인덱스
+CREATE INDEX order_stats_value_idx ON order_stats (metric, value DESC);
+
+-- 기존 주문으로 초기값을 채우며, 이후에는 원본 주문을 다시 집계하지 않음
+INSERT INTO order_stats (metric, dimension, value)
+SELECT 'orders', status, count(*) FROM orders GROUP BY status;
+INSERT INTO order_stats (metric, dimension, value)
+SELECT 'revenue', '', coalesce(sum(book_price * quantity), 0) FROM orders WHERE status <> 'REJECTED';
+INSERT INTO order_stats (metric, dimension, value)
+SELECT 'quantity', book_isbn, sum(quantity) FROM orders WHERE status <> 'REJECTED' GROUP BY book_isbn;
@@ -0,0 +1,67 @@
+-- orders를 created_date 기준의 월별 range 파티션 테이블로 바꾸고, 오래된 DISPATCHED 주문을 옮겨 둘 orders_archive를 만든다.
+
+-- 기존 테이블을 지워도 id 시퀀스가 함께 삭제되지 않도록 소유 관계를 끊음
+ALTER TABLE orders RENAME TO orders_unpartitioned;
+ALTER SEQUENCE orders_id_seq OWNED BY NONE;
+
+-- 파티션 테이블의 기본 키는 파티션 키(created_date)를 포함해야 함, id의 유일성은 시퀀스가 보장
+CREATE TABLE orders (
+                        id                  bigint NOT NULL DEFAULT nextval('orders_id_seq'),
+                        book_isbn           varchar(255) NOT NULL,
+                        book_name           varchar(255),
+                        book_price          float8,
+                        quantity            int NOT NULL,
+                        status              varchar(255) NOT NULL,
+                        created_date        timestamp NOT NULL,
+                        last_modified_date  timestamp NOT NULL,
+                        version             integer NOT NULL,
+                        PRIMARY KEY (id, created_date)
+) PARTITION BY RANGE (created_date);
+ALTER SEQUENCE orders_id_seq OWNED BY orders.id;
+
+-- 파티션이 미리 만들어지지 않은 기간의 주문도 저장할 수 있도록 하는 기본 파티션
+-- 기본 파티션에 이미 주문이 있는 기간의 파티션은 만들 수 없으므로, OrderTableMaintenance가 미리 파티션을 만든다
+CREATE TABLE orders_default PARTITION OF orders DEFAULT;
+
+-- from_month부터 months_ahead개월 뒤까지의 월별 파티션(orders_yYYYYmMM)을 만든다, 이미 있는 파티션은 건너뜀
+CREATE FUNCTION create_orders_partitions(from_month date, months_ahead int) RETURNS void AS $$
+DECLARE
+    partition_start date;
+    partition_name text;
+BEGIN
+    FOR partition_start IN
+        SELECT generate_series(date_trunc('month', from_month),
+                               date_trunc('month', now()) + make_interval(months => months_ahead),
+                               interval '1 month')::date
+    LOOP
+        partition_name := 'orders_y' || to_char(partition_start, 'YYYY') || 'm' || to_char(partition_start, 'MM');
+        IF to_regclass(partition_name) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I PARTITION OF orders FOR VALUES FROM (%L) TO (%L)',
+                           partition_name, partition_start, partition_start + interval '1 month');
+        END IF;
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+-- 기존 주문이 있는 첫 달부터 3개월 뒤까지 파티션을 만들고 기존 주문을 옮김
+SELECT create_orders_partitions(coalesce((SELECT min(created_date) FROM orders_unpartitioned), now())::date, 3);
+INSERT INTO orders SELECT * FROM orders_unpartitioned;
+DROP TABLE orders_unpartitioned;
+
+-- V2의 keyset 페이지네이션 인덱스를 파티션 테이블에 다시 만듦(각 파티션에 자동으로 생성됨)
+CREATE INDEX orders_created_date_id_idx ON orders (created_date DESC, id DESC);
+CREATE INDEX orders_status_created_date_id_idx ON orders (status, created_date DESC, id DESC);
+CREATE INDEX orders_book_isbn_created_date_id_idx ON orders (book_isbn, created_date DESC, id DESC);
+
+-- 오래된 DISPATCHED 주문을 보관하는 테이블, 조회는 id로만 하므로 파티션하지 않음
+CREATE TABLE orders_archive (
+                        id                  bigint PRIMARY KEY NOT NULL,
+                        book_isbn           varchar(255) NOT NULL,
+                        book_name           varchar(255),
+                        book_price          float8,
+                        quantity            int NOT NULL,
+                        status              varchar(255) NOT NULL,
+                        created_date        timestamp NOT NULL,
+                        last_modified_date  timestamp NOT NULL,
+                        version             integer NOT NULL
+);
@@ -0,0 +1,16 @@
+-- 여러 책을 담은 장바구니 주문의 줄(line), 주문 자체는 orders에 머리(header)로 하나만 저장한다.
+-- orders의 기본 키는 (id, created_date)이므로 외래 키 대신 order_id로만 연결하며, 보관된 주문의 줄도 그대로 남는다.
+CREATE TABLE order_lines (
+                        order_id            bigint NOT NULL,
+                        line_number         int NOT NULL,
+                        book_isbn           varchar(255) NOT NULL,
+                        book_name           varchar(255),
+                        book_price          float8,
+                        quantity            int NOT NULL,
+                        status              varchar(255) NOT NULL,
+                        PRIMARY KEY (order_id, line_number)
+);
+
+-- 장바구니 주문의 머리는 한 권의 책을 가리키지 않으므로 book_isbn이 비어 있음
+ALTER TABLE orders ALTER COLUMN book_isbn DROP NOT NULL;
+ALTER TABLE orders_archive ALTER COLUMN book_isbn DROP NOT NULL;
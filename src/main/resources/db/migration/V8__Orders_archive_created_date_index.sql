@@ -0,0 +1,2 @@
+-- GET /orders/export는 orders와 orders_archive를 (created_date, id) 순서로 읽으므로, 보관된 주문도 기간 조건과 정렬에 인덱스를 사용
+CREATE INDEX orders_archive_created_date_id_idx ON orders_archive (created_date, id);
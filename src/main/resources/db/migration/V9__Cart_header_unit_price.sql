@@ -0,0 +1,10 @@
+-- 장바구니 주문의 머리에 금액 합계와 모든 줄의 수량 합계를 저장하던 것을 바로잡는다.
+-- book_price는 다른 주문처럼 단가를 뜻하므로 비우고(금액은 order_lines에서 계산), quantity는 접수된 줄의 수량만 더한다.
+UPDATE orders o SET book_price = NULL,
+                    quantity = (SELECT sum(l.quantity) FROM order_lines l WHERE l.order_id = o.id AND l.status = 'ACCEPTED')
+WHERE o.book_isbn IS NULL
+  AND EXISTS (SELECT 1 FROM order_lines l WHERE l.order_id = o.id AND l.status = 'ACCEPTED');
+UPDATE orders_archive o SET book_price = NULL,
+                            quantity = (SELECT sum(l.quantity) FROM order_lines l WHERE l.order_id = o.id AND l.status = 'ACCEPTED')
+WHERE o.book_isbn IS NULL
+  AND EXISTS (SELECT 1 FROM order_lines l WHERE l.order_id = o.id AND l.status = 'ACCEPTED');
@@ -0,0 +1,92 @@
+package com.polarbookshop.orderservice;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.polarbookshop.orderservice.book.Book;
+import com.polarbookshop.orderservice.book.BookClient;
+import com.polarbookshop.orderservice.order.domain.Order;
+import com.polarbookshop.orderservice.order.domain.OrderStatus;
+import com.polarbookshop.orderservice.order.event.OrderAcceptedMessage;
+import com.polarbookshop.orderservice.order.web.OrderRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cloud.stream.binder.test.OutputDestination;
+import org.springframework.cloud.stream.binder.test.TestChannelBinderConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.messaging.Message;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+
+//embedded-store 프로필은 PostgreSQL 없이 시작하고, 주문과 outbox 이벤트를 로컬 로그에 보관한다(도커가 필요하지 않음).
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "polar.order.outbox.publisher-confirms=false" //test-binder는 브로커의 확인(publisher confirm)을 보내지 않음
+)
+@ActiveProfiles("embedded-store")
+@Import(TestChannelBinderConfiguration.class)
+class EmbeddedStoreApplicationTests {
+
+    @TempDir
+    static Path directory;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private BookClient bookClient;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OutputDestination output;
+
+    @DynamicPropertySource
+    static void storeProperties(DynamicPropertyRegistry registry) {
+        registry.add("polar.order.store.path", () -> directory.resolve("orders.log").toString());
+    }
+
+    @Test
+    void whenOrderPostedThenStoredAndEventPublishedWithoutDatabase() throws IOException {
+        String bookIsbn = "1234567893";
+        given(bookClient.getBookByIsbn(bookIsbn)).willReturn(Mono.just(new Book(bookIsbn, "Title", "Author", 9.90)));
+
+        Order createdOrder = webTestClient.post().uri("/orders")
+                .header("Idempotency-Key", "embedded-" + bookIsbn)
+                .bodyValue(new OrderRequest(bookIsbn, 1))
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectBody(Order.class).returnResult().getResponseBody();
+
+        assertThat(createdOrder).isNotNull();
+        assertThat(createdOrder.status()).isEqualTo(OrderStatus.ACCEPTED);
+        //outbox 이벤트는 주문과 함께 커밋되고 OutboxRelay가 발행
+        assertThat(receiveOrderAcceptedMessage(createdOrder.id())).isEqualTo(new OrderAcceptedMessage(createdOrder.id()));
+        webTestClient.get().uri("/orders")
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectBodyList(Order.class).value(orders -> assertThat(orders).contains(createdOrder));
+    }
+
+    private OrderAcceptedMessage receiveOrderAcceptedMessage(Long orderId) throws IOException {
+        Message<byte[]> message;
+        while ((message = output.receive(5000, "order-accepted")) != null) {
+            var orderAcceptedMessage = objectMapper.readValue(message.getPayload(), OrderAcceptedMessage.class);
+            if (orderAcceptedMessage.orderId().equals(orderId)) {
+                return orderAcceptedMessage;
+            }
+        }
+        return null;
+    }
+}
@@ -11,6 +11,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.cloud.stream.binder.test.OutputDestination;
 import org.springframework.cloud.stream.binder.test.TestChannelBinderConfiguration;
 import org.springframework.context.annotation.Import;
+import org.springframework.messaging.Message;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
@@ -28,8 +29,13 @@ import java.io.IOException;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.times;
 
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "polar.order.outbox.publisher-confirms=false" //test-binder는 브로커의 확인(publisher confirm)을 보내지 않음
+)
 @Import(TestChannelBinderConfiguration.class)
 @Testcontainers
 class OrderServiceApplicationTests {
@@ -81,7 +87,8 @@ class OrderServiceApplicationTests {
         assertThat(expectedOrder).isNotNull();
         assertThat(expectedOrder.status()).isEqualTo(OrderStatus.ACCEPTED);
         //메시지 브로커에 대하여 test-binder를 사용하여 통합테스트에 추가
-        assertThat(objectMapper.readValue(output.receive().getPayload(), OrderAcceptedMessage.class))
+        //이벤트는 OutboxRelay가 비동기로 발행하므로, 다른 테스트의 이벤트를 건너뛰며 해당 주문의 이벤트를 기다림
+        assertThat(receiveOrderAcceptedMessage(expectedOrder.id()))
                 .isEqualTo(new OrderAcceptedMessage(expectedOrder.id()));
 
         //위에 DB에 삽입한 order가 정상적으로 있는지 확인
@@ -115,6 +122,33 @@ class OrderServiceApplicationTests {
         assertThat(createdOrder.status()).isEqualTo(OrderStatus.ACCEPTED);
     }
 
+    @Test
+    void whenPostRequestRetriedWithSameIdempotencyKeyThenSameOrderReturned() {
+        String bookIsbn = "1234567895";
+        Book book = new Book(bookIsbn, "Title", "Author", 9.90);
+        given(bookClient.getBookByIsbn(bookIsbn)).willReturn(Mono.just(book));
+        OrderRequest orderRequest = new OrderRequest(bookIsbn, 2);
+
+        Order firstOrder = webTestClient.post().uri("/orders")
+                .header("Idempotency-Key", "retry-" + bookIsbn)
+                .bodyValue(orderRequest)
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectBody(Order.class).returnResult().getResponseBody();
+        Order retriedOrder = webTestClient.post().uri("/orders")
+                .header("Idempotency-Key", "retry-" + bookIsbn)
+                .bodyValue(orderRequest)
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectBody(Order.class).returnResult().getResponseBody();
+
+        assertThat(firstOrder).isNotNull();
+        assertThat(retriedOrder).isNotNull();
+        assertThat(retriedOrder.id()).isEqualTo(firstOrder.id());
+        //재시도한 요청은 catalog-service를 다시 호출하지 않음
+        then(bookClient).should(times(1)).getBookByIsbn(bookIsbn);
+    }
+
     @Test
     void whenPostRequestAndBookNotExistsThenOrderRejected() {
         String bookIsbn = "1234567894";
@@ -133,4 +167,14 @@ class OrderServiceApplicationTests {
         assertThat(createdOrder.status()).isEqualTo(OrderStatus.REJECTED);
     }
 
+    private OrderAcceptedMessage receiveOrderAcceptedMessage(Long orderId) throws IOException {
+        Message<byte[]> message;
+        while ((message = output.receive(5000, "order-accepted")) != null) {
+            var orderAcceptedMessage = objectMapper.readValue(message.getPayload(), OrderAcceptedMessage.class);
+            if (orderAcceptedMessage.orderId().equals(orderId)) {
+                return orderAcceptedMessage;
+            }
+        }
+        return null;
+    }
 }
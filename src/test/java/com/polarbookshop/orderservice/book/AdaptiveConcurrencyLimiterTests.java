@@ -0,0 +1,53 @@
+package com.polarbookshop.orderservice.book;
+
+import com.polarbookshop.orderservice.config.ClientProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimiterTests {
+    private final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+            new ClientProperties.CatalogConcurrencyLimit(true, 4, 2, 8, 0.5, Duration.ofMillis(100)));
+
+    @Test
+    void whenLimitReachedThenAcquireFails() {
+        for (int i = 0; i < 4; i++) {
+            assertThat(limiter.tryAcquire()).isTrue();
+        }
+        assertThat(limiter.tryAcquire()).isFalse();
+        assertThat(limiter.inFlight()).isEqualTo(4);
+    }
+
+    @Test
+    void whenCallsFailThenLimitDecreasesToMinimum() {
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire();
+            limiter.onFailure();
+        }
+        assertThat(limiter.limit()).isEqualTo(2);
+        assertThat(limiter.inFlight()).isZero();
+    }
+
+    @Test
+    void whenFastCallsSaturateLimitThenLimitIncreases() {
+        //한도를 절반 이상 사용하는 동안 빠르게 성공한 요청마다 한도가 조금씩 늘어남
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < limiter.limit(); i++) {
+                limiter.tryAcquire();
+            }
+            while (limiter.inFlight() > 0) {
+                limiter.onSuccess(Duration.ofMillis(10).toNanos());
+            }
+        }
+        assertThat(limiter.limit()).isGreaterThan(4);
+    }
+
+    @Test
+    void whenCallsAreSlowThenLimitDecreases() {
+        limiter.tryAcquire();
+        limiter.onSuccess(Duration.ofSeconds(1).toNanos());
+        assertThat(limiter.limit()).isEqualTo(2);
+    }
+}
@@ -1,30 +1,45 @@
 package com.polarbookshop.orderservice.book;
 
+import com.polarbookshop.orderservice.config.ClientConfig;
+import com.polarbookshop.orderservice.config.ClientProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.Protocol;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
+import okio.Buffer;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.netty.http.HttpProtocol;
 import reactor.test.StepVerifier;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
 
 public class BookClientTests {
     private MockWebServer mockWebServer;
     private BookClient bookClient;
+    private SimpleMeterRegistry meterRegistry;
 
     @BeforeEach
     void setUp() throws IOException {
         this.mockWebServer = new MockWebServer();
         this.mockWebServer.start(); //테스트를 위한 모의 서버 시작
-        var webClient = WebClient.builder()
-                .baseUrl(this.mockWebServer.url("/").toString())
-                .build();
-        this.bookClient = new BookClient(webClient);
+        this.bookClient = bookClient(false);
     }
 
     @AfterEach
@@ -57,4 +72,226 @@ public class BookClientTests {
                 .expectNextMatches(b -> b.isbn().equals(bookIsbn))
                 .verifyComplete();  //Reactive Stream이 성공적으로 완료됐는지 확인
     }
+
+    @Test
+    void whenBookRequestedTwiceThenCatalogCalledOnce() {
+        var bookIsbn = "1234567891";
+        mockWebServer.enqueue(bookResponse(bookIsbn));
+
+        StepVerifier.create(bookClient.getBookByIsbn(bookIsbn))
+                .expectNextMatches(b -> b.isbn().equals(bookIsbn))
+                .verifyComplete();
+        //두 번째 조회는 캐시에서 처리되므로 모의 서버에 응답을 추가하지 않아도 됨
+        StepVerifier.create(bookClient.getBookByIsbn(bookIsbn))
+                .expectNextMatches(b -> b.isbn().equals(bookIsbn))
+                .verifyComplete();
+
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(1);
+        assertThat(bookClient.cacheStats().hitCount()).isEqualTo(1);
+        assertThat(bookClient.cacheStats().missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void whenBookNotExistsThenNotFoundIsCached() {
+        var bookIsbn = "1234567892";
+        mockWebServer.enqueue(new MockResponse().setResponseCode(404));
+
+        StepVerifier.create(bookClient.getBookByIsbn(bookIsbn)).verifyComplete();
+        StepVerifier.create(bookClient.getBookByIsbn(bookIsbn)).verifyComplete();
+
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(1);
+    }
+
+    @Test
+    void whenConcurrentRequestsForSameIsbnThenSingleCatalogCall() {
+        var bookIsbn = "1234567893";
+        //첫 번째 응답이 늦게 도착하는 동안 나머지 조회가 같은 호출을 기다리도록 응답을 지연
+        mockWebServer.enqueue(bookResponse(bookIsbn).setBodyDelay(200, TimeUnit.MILLISECONDS));
+
+        Flux<Book> books = Flux.range(0, 10)
+                .flatMap(i -> bookClient.getBookByIsbn(bookIsbn));
+
+        StepVerifier.create(books)
+                .expectNextCount(10)
+                .verifyComplete();
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(1);
+    }
+
+    @Test
+    void whenBooksRequestedTogetherThenSingleBulkCall() throws InterruptedException {
+        mockWebServer.enqueue(new MockResponse()
+                .addHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .setBody("""
+                    [
+                        { "isbn": "1234567894", "title": "Title", "author": "Author", "price": 9.90, "publisher": "Polarsophia" }
+                    ]
+                """));
+
+        StepVerifier.create(bookClient.getBooksByIsbns(List.of("1234567894", "1234567895")))
+                .expectNextMatches(books -> books.size() == 1 && books.containsKey("1234567894"))
+                .verifyComplete();
+        //응답에 없던 ISBN은 negative cache에 보관되므로 다시 조회해도 catalog-service를 호출하지 않음
+        StepVerifier.create(bookClient.getBookByIsbn("1234567895")).verifyComplete();
+
+        var request = mockWebServer.takeRequest();
+        assertThat(request.getMethod()).isEqualTo("POST");
+        assertThat(request.getPath()).isEqualTo("/books/bulk");
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(1);
+    }
+
+    @Test
+    void whenBulkEndpointUnsupportedThenFallBackToSingleCalls() throws InterruptedException {
+        mockWebServer.enqueue(new MockResponse().setResponseCode(405));
+        mockWebServer.enqueue(bookResponse("1234567896"));
+
+        StepVerifier.create(bookClient.getBooksByIsbns(List.of("1234567896")))
+                .expectNextMatches(books -> books.containsKey("1234567896"))
+                .verifyComplete();
+
+        assertThat(mockWebServer.takeRequest().getPath()).isEqualTo("/books/bulk");
+        assertThat(mockWebServer.takeRequest().getPath()).isEqualTo("/books/1234567896");
+    }
+
+    @Test
+    void whenBatchingEnabledThenConcurrentLookupsShareBulkCall() {
+        var batchingBookClient = bookClient(true);
+        mockWebServer.enqueue(new MockResponse()
+                .addHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .setBody("""
+                    [
+                        { "isbn": "1234567897", "title": "Title", "author": "Author", "price": 9.90, "publisher": "Polarsophia" },
+                        { "isbn": "1234567898", "title": "Title", "author": "Author", "price": 9.90, "publisher": "Polarsophia" }
+                    ]
+                """));
+
+        Flux<Book> books = Flux.just("1234567897", "1234567898")
+                .flatMap(batchingBookClient::getBookByIsbn);
+
+        StepVerifier.create(books)
+                .expectNextCount(2)
+                .verifyComplete();
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(1);
+    }
+
+    @Test
+    void whenCatalogKeepsFailingThenCircuitOpensAndCallsAreRejected() {
+        //서킷이 4번의 호출만으로 열리도록 설정, 첫 조회의 최초 요청과 재시도 3번이 모두 실패하면 서킷이 열림
+        var circuitBreaker = new ClientProperties.CatalogCircuitBreaker(50, 100, Duration.ofSeconds(2), 4, 4, Duration.ofMinutes(1), 1);
+        var failingBookClient = bookClient(false, circuitBreaker);
+        for (int i = 0; i < 4; i++) {
+            mockWebServer.enqueue(new MockResponse().setResponseCode(500));
+        }
+
+        StepVerifier.create(failingBookClient.getBookByIsbn("1234567899")).verifyComplete();
+        //서킷이 열렸으므로 catalog-service를 호출하지 않고 바로 빈 객체를 반환
+        StepVerifier.create(failingBookClient.getBookByIsbn("1234567800")).verifyComplete();
+
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(4);
+        assertThat(meterRegistry.get("catalog.lookup.rejected").tag("reason", "circuit_open").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void whenCatalogIsSlowThenHedgedRequestWins() {
+        var bookIsbn = "1234567801";
+        var hedgingBookClient = bookClient(false, defaultCircuitBreaker(),
+                new ClientProperties.BookHedge(true, Duration.ofMillis(50), false, Duration.ofMillis(10), 200, 0.1, 10));
+        //첫 번째 요청은 늦게 응답하고, 50ms 뒤에 보낸 hedge는 바로 응답
+        mockWebServer.enqueue(bookResponse(bookIsbn).setHeadersDelay(2, TimeUnit.SECONDS));
+        mockWebServer.enqueue(bookResponse(bookIsbn));
+
+        StepVerifier.create(hedgingBookClient.getBookByIsbn(bookIsbn))
+                .expectNextMatches(b -> b.isbn().equals(bookIsbn))
+                .expectComplete()
+                .verify(Duration.ofSeconds(1));
+
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(2);
+        assertThat(meterRegistry.get("catalog.hedge.fired").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("catalog.hedge.won").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void whenCatalogConnectionUsesH2cAndCompressionThenGzippedBookDecoded() throws IOException, InterruptedException {
+        var bookIsbn = "1234567899";
+        //prior knowledge로만 HTTP/2를 받는 서버이므로 HTTP/1.1로 요청하면 실패
+        try (var h2cServer = new MockWebServer()) {
+            h2cServer.setProtocols(List.of(Protocol.H2_PRIOR_KNOWLEDGE));
+            var body = new ByteArrayOutputStream();
+            try (var gzip = new GZIPOutputStream(body)) {
+                gzip.write("""
+                        {"isbn": "%s", "title": "Title", "author": "Author", "price": 9.90}
+                        """.formatted(bookIsbn).getBytes(StandardCharsets.UTF_8));
+            }
+            h2cServer.enqueue(new MockResponse()
+                    .addHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .addHeader(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .setBody(new Buffer().write(body.toByteArray())));
+            h2cServer.start();
+            var connection = defaultConnection(List.of(HttpProtocol.H2C));
+            var connectionProvider = ClientConfig.connectionProvider(connection);
+            try {
+                var webClient = WebClient.builder()
+                        .baseUrl(h2cServer.url("/").toString())
+                        .clientConnector(new ReactorClientHttpConnector(ClientConfig.httpClient(connectionProvider, connection)))
+                        .build();
+
+                StepVerifier.create(webClient.get().uri("/books/{isbn}", bookIsbn).retrieve().bodyToMono(Book.class))
+                        .expectNextMatches(book -> book.isbn().equals(bookIsbn))
+                        .verifyComplete();
+                assertThat(h2cServer.takeRequest().getHeader(HttpHeaders.ACCEPT_ENCODING)).contains("gzip");
+            } finally {
+                connectionProvider.dispose();
+            }
+        }
+    }
+
+    private BookClient bookClient(boolean batchingEnabled) {
+        return bookClient(batchingEnabled, defaultCircuitBreaker());
+    }
+
+    private BookClient bookClient(boolean batchingEnabled, ClientProperties.CatalogCircuitBreaker circuitBreaker) {
+        return bookClient(batchingEnabled, circuitBreaker,
+                new ClientProperties.BookHedge(false, Duration.ofMillis(100), true, Duration.ofMillis(10), 200, 0.1, 10));
+    }
+
+    private static ClientProperties.CatalogConnection defaultConnection(List<HttpProtocol> protocols) {
+        return new ClientProperties.CatalogConnection(100, 1000, Duration.ofSeconds(2), Duration.ofSeconds(30),
+                Duration.ofMinutes(5), Duration.ofSeconds(30), Duration.ofSeconds(2), true, protocols, true);
+    }
+
+    private static ClientProperties.CatalogCircuitBreaker defaultCircuitBreaker() {
+        return new ClientProperties.CatalogCircuitBreaker(50, 100, Duration.ofSeconds(2), 20, 10, Duration.ofSeconds(10), 3);
+    }
+
+    private BookClient bookClient(boolean batchingEnabled, ClientProperties.CatalogCircuitBreaker circuitBreaker,
+                                  ClientProperties.BookHedge hedge) {
+        var webClient = WebClient.builder()
+                .baseUrl(this.mockWebServer.url("/").toString())
+                .build();
+        var clientProperties = new ClientProperties(
+                URI.create(this.mockWebServer.url("/").toString()),
+                new ClientProperties.BookCache(100, Duration.ofMinutes(10), Duration.ofSeconds(30)),
+                //window를 넉넉하게 두어 동시에 들어온 조회가 하나의 bulk 요청으로 묶이도록 함
+                new ClientProperties.BookBatch(batchingEnabled, 50, Duration.ofMillis(50), 4, 16, Duration.ofMinutes(10)),
+                circuitBreaker,
+                new ClientProperties.CatalogConcurrencyLimit(true, 20, 2, 200, 0.9, Duration.ofMillis(500)),
+                hedge,
+                defaultConnection(List.of(HttpProtocol.HTTP11))
+        );
+        this.meterRegistry = new SimpleMeterRegistry();
+        return new BookClient(webClient, clientProperties, meterRegistry);
+    }
+
+    private static MockResponse bookResponse(String bookIsbn) {
+        return new MockResponse()
+                .addHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .setBody("""
+                    {
+                        "isbn": %s,
+                        "title": "Title",
+                        "author": "Author",
+                        "price": 9.90,
+                        "publisher": "Polarsophia"
+                    }
+                """.formatted(bookIsbn));
+    }
 }
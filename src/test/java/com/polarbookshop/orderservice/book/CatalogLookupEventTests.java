@@ -0,0 +1,48 @@
+package com.polarbookshop.orderservice.book;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//번들된 JFR 설정(jfr/order-service.jfc)으로 레코딩하면 catalog 조회 이벤트가 필드와 함께 기록되는지 확인
+class CatalogLookupEventTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void whenRecordingWithBundledSettingsThenLookupRecorded() throws Exception {
+        Configuration configuration;
+        try (var reader = new InputStreamReader(new ClassPathResource("jfr/order-service.jfc").getInputStream(), StandardCharsets.UTF_8)) {
+            configuration = Configuration.create(reader);
+        }
+        var file = directory.resolve("lookup.jfr");
+        try (var recording = new Recording(configuration)) {
+            recording.start();
+            var event = CatalogLookupEvent.single("1234567890");
+            event.retried();
+            event.end("found");
+            recording.stop();
+            recording.dump(file);
+        }
+
+        var events = RecordingFile.readAllEvents(file).stream()
+                .filter(recorded -> recorded.getEventType().getName().equals("com.polarbookshop.orderservice.CatalogLookup"))
+                .toList();
+        assertThat(events).singleElement().satisfies(recorded -> {
+            assertThat(recorded.getString("mode")).isEqualTo("single");
+            assertThat(recorded.getString("isbn")).isEqualTo("1234567890");
+            assertThat(recorded.getInt("attempts")).isEqualTo(2);
+            assertThat(recorded.getString("outcome")).isEqualTo("found");
+        });
+    }
+}
@@ -0,0 +1,85 @@
+package com.polarbookshop.orderservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.spi.ConnectionFactory;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.FetchSpec;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+//ApplicationWarmup이 끝나는 시점에 따라 WarmupHealthIndicator가 readiness를 바꾸는지 확인
+class ApplicationWarmupTests {
+    private ApplicationWarmup applicationWarmup;
+
+    @AfterEach
+    void tearDown() {
+        applicationWarmup.stop();
+    }
+
+    @Test
+    void whenWarmupNotCompleteThenOutOfServiceAndUpWithDurationAfterwards() {
+        Sinks.One<Long> database = Sinks.one();
+        var healthIndicator = startWarmup(database.asMono(), Duration.ofSeconds(30));
+
+        assertThat(healthIndicator.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+
+        database.tryEmitValue(1L);
+
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() -> {
+            var health = healthIndicator.health();
+            assertThat(health.getStatus()).isEqualTo(Status.UP);
+            assertThat(health.getDetails()).containsKey("duration");
+        });
+    }
+
+    //catalog-service에도 연결할 수 없는 상태에서 DB 단계까지 실패해도 warm-up은 끝남
+    @Test
+    void whenWarmupStepFailsThenReadinessUp() {
+        var healthIndicator = startWarmup(Mono.error(new IllegalStateException("Database unavailable")), Duration.ofSeconds(30));
+
+        await().atMost(Duration.ofSeconds(10))
+                .untilAsserted(() -> assertThat(healthIndicator.health().getStatus()).isEqualTo(Status.UP));
+    }
+
+    @Test
+    void whenWarmupStepHangsThenReadinessUpAfterTimeout() {
+        var healthIndicator = startWarmup(Mono.never(), Duration.ofMillis(200));
+
+        await().atMost(Duration.ofSeconds(10))
+                .untilAsserted(() -> assertThat(healthIndicator.health().getStatus()).isEqualTo(Status.UP));
+    }
+
+    @SuppressWarnings("unchecked")
+    private WarmupHealthIndicator startWarmup(Mono<Long> databaseQuery, Duration timeout) {
+        var databaseClient = mock(DatabaseClient.class);
+        var executeSpec = mock(DatabaseClient.GenericExecuteSpec.class);
+        FetchSpec<Map<String, Object>> fetchSpec = mock(FetchSpec.class);
+        given(databaseClient.sql("SELECT 1")).willReturn(executeSpec);
+        given(executeSpec.fetch()).willReturn(fetchSpec);
+        given(fetchSpec.rowsUpdated()).willReturn(databaseQuery);
+        ObjectProvider<ConnectionFactory> connectionFactory = mock(ObjectProvider.class);
+        ObjectProvider<DatabaseClient> databaseClientProvider = mock(ObjectProvider.class);
+        given(databaseClientProvider.getIfAvailable()).willReturn(databaseClient);
+
+        applicationWarmup = new ApplicationWarmup(new WarmupProperties(true, timeout, 10, 1), connectionFactory,
+                databaseClientProvider, WebClient.create("http://localhost:1"), new ObjectMapper().findAndRegisterModules(),
+                Validation.buildDefaultValidatorFactory().getValidator(), new SimpleMeterRegistry());
+        applicationWarmup.start();
+        return new WarmupHealthIndicator(applicationWarmup);
+    }
+}
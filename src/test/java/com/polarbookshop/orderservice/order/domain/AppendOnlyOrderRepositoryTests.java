@@ -0,0 +1,158 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import com.polarbookshop.orderservice.config.OrderProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import org.springframework.dao.OptimisticLockingFailureException;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//임시 디렉터리의 로그 파일을 사용하는 EmbeddedStore와 AppendOnlyOrderRepository 테스트로, 도커나 PostgreSQL이 필요하지 않다.
+class AppendOnlyOrderRepositoryTests {
+
+    @TempDir
+    Path directory;
+
+    private OrderProperties orderProperties;
+    private EmbeddedStore store;
+    private AppendOnlyOrderRepository orderRepository;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        orderProperties = new Binder(new MapConfigurationPropertySource(Map.of(
+                "polar.order.store.path", directory.resolve("orders.log").toString(),
+                "polar.order.store.initial-size", "4KB",
+                "polar.order.store.compaction-threshold", "0.25"
+        ))).bindOrCreate("polar.order", OrderProperties.class);
+        open();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        store.stop();
+    }
+
+    @Test
+    void whenOrderSavedThenAuditedAndVersioned() {
+        StepVerifier.create(orderRepository.save(OrderService.buildRejectedOrder("1234567890", 3)))
+                .assertNext(order -> {
+                    assertThat(order.id()).isEqualTo(1L);
+                    assertThat(order.version()).isEqualTo(1);
+                    assertThat(order.createdDate()).isNotNull().isEqualTo(order.lastModifiedDate());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void whenStaleVersionSavedThenOptimisticLockingFailure() {
+        var saved = orderRepository.save(accepted("1234567890")).block();
+        var updated = orderRepository.save(OrderService.buildDispatchedOrder(saved)).block();
+        assertThat(updated.version()).isEqualTo(2);
+        assertThat(updated.createdDate()).isEqualTo(saved.createdDate());
+
+        //이미 수정된 주문을 이전 버전으로 다시 저장
+        StepVerifier.create(orderRepository.save(OrderService.buildDispatchedOrder(saved)))
+                .expectError(OptimisticLockingFailureException.class)
+                .verify();
+    }
+
+    @Test
+    void whenReopenedThenOrdersReplayedFromLog() throws IOException {
+        var first = orderRepository.save(accepted("1234567890")).block();
+        var second = orderRepository.save(accepted("1234567891")).block();
+        orderRepository.updateStatusToDispatched(new Long[]{first.id()}, Instant.now()).blockLast();
+        orderRepository.deleteById(second.id()).block();
+        reopen();
+
+        StepVerifier.create(orderRepository.findById(first.id()))
+                .expectNextMatches(order -> order.status() == OrderStatus.DISPATCHED && order.version() == 2)
+                .verifyComplete();
+        StepVerifier.create(orderRepository.findById(second.id())).verifyComplete();
+        //삭제된 주문의 id를 다시 발급하지 않음
+        StepVerifier.create(orderRepository.save(accepted("1234567892")))
+                .expectNextMatches(order -> order.id() == 3L)
+                .verifyComplete();
+    }
+
+    @Test
+    void whenTornRecordAtEndThenReplayStopsBeforeIt() throws IOException {
+        var saved = orderRepository.save(accepted("1234567890")).block();
+        var end = (int) store.logSize();
+        store.stop();
+        //마지막 레코드를 쓰는 도중에 종료된 것처럼 길이만 있고 본문이 없는 레코드를 남김
+        var log = directory.resolve("orders.log");
+        var content = Files.readAllBytes(log);
+        content[end + 3] = 100;
+        Files.write(log, content);
+
+        open();
+
+        StepVerifier.create(orderRepository.findAll()).expectNext(saved).verifyComplete();
+    }
+
+    @Test
+    void whenCompactedThenOnlyLatestVersionsKept() throws IOException {
+        var saved = orderRepository.insertAll(List.of(accepted("1234567890"), accepted("1234567891"))).collectList().block();
+        orderRepository.updateStatusToDispatched(new Long[]{saved.get(0).id(), saved.get(1).id()}, Instant.now()).blockLast();
+        var logSize = store.logSize();
+
+        assertThat(store.compactIfNeeded()).isTrue();
+
+        assertThat(store.logSize()).isLessThan(logSize);
+        reopen();
+        StepVerifier.create(orderRepository.findPage(OrderStatus.DISPATCHED, null, null, 10))
+                .expectNextMatches(order -> order.id().equals(saved.get(1).id()) && order.version() == 2)
+                .expectNextMatches(order -> order.id().equals(saved.get(0).id()) && order.version() == 2)
+                .verifyComplete();
+    }
+
+    @Test
+    void whenNewestOrderDeletedAndCompactedThenItsIdNotReused() throws IOException {
+        orderRepository.save(accepted("1234567890")).block();
+        var newest = orderRepository.save(accepted("1234567891")).block();
+        orderRepository.deleteById(newest.id()).block();
+
+        assertThat(store.compactIfNeeded()).isTrue();
+        reopen();
+
+        //삭제된 주문의 레코드는 compaction으로 사라졌지만 발급한 가장 큰 id는 남아 있음
+        StepVerifier.create(orderRepository.save(accepted("1234567892")))
+                .expectNextMatches(order -> order.id() == newest.id() + 1)
+                .verifyComplete();
+    }
+
+    @Test
+    void whenAllOrdersDeletedThenNoneReplayed() throws IOException {
+        orderRepository.insertAll(List.of(accepted("1234567890"), accepted("1234567891"))).blockLast();
+        orderRepository.deleteAll().block();
+        reopen();
+
+        StepVerifier.create(orderRepository.count()).expectNext(0L).verifyComplete();
+    }
+
+    private void open() throws IOException {
+        store = new EmbeddedStore(orderProperties);
+        orderRepository = new AppendOnlyOrderRepository(store);
+    }
+
+    private void reopen() throws IOException {
+        store.stop();
+        open();
+    }
+
+    private static Order accepted(String bookIsbn) {
+        return Order.of(bookIsbn, "Title - Author", 9.90, 1, OrderStatus.ACCEPTED);
+    }
+}
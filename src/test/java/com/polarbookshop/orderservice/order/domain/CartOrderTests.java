@@ -0,0 +1,44 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import com.polarbookshop.orderservice.book.Book;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//장바구니 주문의 머리가 단가(book_price)와 수량의 의미를 다른 주문과 같게 유지하는지 확인
+class CartOrderTests {
+
+    @Test
+    void whenSomeLinesRejectedThenHeaderCountsOnlyAcceptedQuantityWithoutPrice() {
+        var submissions = List.of(new OrderSubmission("1234567890", 2), new OrderSubmission("1234567891", 5),
+                new OrderSubmission("1234567892", 1));
+        var books = Map.of(
+                "1234567890", new Book("1234567890", "Title", "Author", 10.0),
+                "1234567892", new Book("1234567892", "Title", "Author", 5.0));
+
+        var cart = OrderService.buildCartOrder(submissions, books);
+
+        assertThat(cart.order().status()).isEqualTo(OrderStatus.ACCEPTED);
+        assertThat(cart.order().bookPrice()).isNull();
+        assertThat(cart.order().quantity()).isEqualTo(3);
+        assertThat(cart.lines()).extracting(OrderLine::status)
+                .containsExactly(OrderStatus.ACCEPTED, OrderStatus.REJECTED, OrderStatus.ACCEPTED);
+        //금액은 접수된 줄에서 계산
+        assertThat(cart.lines().stream()
+                .filter(line -> line.status() == OrderStatus.ACCEPTED)
+                .mapToDouble(line -> line.bookPrice() * line.quantity())
+                .sum()).isEqualTo(25.0);
+    }
+
+    @Test
+    void whenAllLinesRejectedThenHeaderRejectedWithRequestedQuantity() {
+        var cart = OrderService.buildCartOrder(List.of(new OrderSubmission("1234567891", 2)), Map.of());
+
+        assertThat(cart.order().status()).isEqualTo(OrderStatus.REJECTED);
+        assertThat(cart.order().bookPrice()).isNull();
+        assertThat(cart.order().quantity()).isEqualTo(2);
+    }
+}
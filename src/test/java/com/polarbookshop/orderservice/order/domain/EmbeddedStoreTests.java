@@ -0,0 +1,157 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import com.polarbookshop.orderservice.config.OrderProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.util.context.Context;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//EmbeddedTransactionManager의 트랜잭션과 로그 교체를 임시 디렉터리의 EmbeddedStore로 확인
+class EmbeddedStoreTests {
+
+    @TempDir
+    Path directory;
+
+    private OrderProperties orderProperties;
+    private EmbeddedStore store;
+    private AppendOnlyOrderRepository orderRepository;
+    private EmbeddedOutboxRepository outboxRepository;
+    private EmbeddedIdempotencyKeyRepository idempotencyKeyRepository;
+    private TransactionalOperator transactionalOperator;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        orderProperties = new Binder(new MapConfigurationPropertySource(Map.of(
+                "polar.order.store.path", directory.resolve("orders.log").toString(),
+                "polar.order.store.initial-size", "4KB"
+        ))).bindOrCreate("polar.order", OrderProperties.class);
+        open();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        store.stop();
+    }
+
+    @Test
+    void whenTransactionCommittedThenOrderAndOutboxEventStoredTogether() throws IOException {
+        var order = orderRepository.save(accepted())
+                //커밋되기 전에는 조회에 보이지 않음
+                .flatMap(saved -> orderRepository.findById(saved.id()).hasElement()
+                        .doOnNext(visible -> assertThat(visible).isFalse())
+                        .then(outboxRepository.insertAll(new Long[]{saved.id()}, Instant.now()))
+                        .thenReturn(saved))
+                .as(transactionalOperator::transactional)
+                .block();
+
+        reopen();
+
+        StepVerifier.create(orderRepository.findById(order.id())).expectNext(order).verifyComplete();
+        StepVerifier.create(outboxRepository.findUnsentForUpdate(10))
+                .expectNextMatches(event -> event.orderId().equals(order.id()))
+                .verifyComplete();
+    }
+
+    @Test
+    void whenTransactionRolledBackThenNothingStored() {
+        var submission = orderRepository.save(accepted())
+                .flatMap(saved -> outboxRepository.insertAll(new Long[]{saved.id()}, Instant.now()))
+                .then(Mono.error(new IllegalStateException("Rollback")))
+                .as(transactionalOperator::transactional);
+
+        StepVerifier.create(submission).expectError(IllegalStateException.class).verify();
+
+        assertThat(store.logSize()).isZero();
+        StepVerifier.create(orderRepository.count()).expectNext(0L).verifyComplete();
+        StepVerifier.create(outboxRepository.count()).expectNext(0L).verifyComplete();
+    }
+
+    @Test
+    void whenSameIdempotencyKeyCommittedFirstThenTransactionRolledBack() {
+        var now = Instant.now();
+        var expiredBefore = now.minusSeconds(60);
+        var submission = idempotencyKeyRepository.insertIfAbsent("key", 1L, "hash", now, expiredBefore)
+                //트랜잭션이 커밋되기 전에 다른 요청이 같은 키를 먼저 커밋
+                .flatMap(insertedCount -> idempotencyKeyRepository.insertIfAbsent("key", 2L, "hash", now, expiredBefore)
+                        .contextWrite(context -> Context.empty()))
+                .as(transactionalOperator::transactional);
+
+        StepVerifier.create(submission).expectError(DuplicateIdempotencyKeyException.class).verify();
+
+        StepVerifier.create(idempotencyKeyRepository.findUnexpired("key", expiredBefore).map(IdempotencyKey::orderId))
+                .expectNext(2L).verifyComplete();
+    }
+
+    @Test
+    void whenLogReplacedThenRecordsAppendedDuringSnapshotKept() throws IOException {
+        var path = directory.resolve("snapshot.log");
+        var storeLog = new EmbeddedStoreLog(path, 4096);
+        storeLog.open((entry, size) -> {
+        });
+        var first = new Order(1L, "1234567890", "Title - Author", 9.90, 1, OrderStatus.ACCEPTED, Instant.EPOCH, Instant.EPOCH, 1);
+        var dispatched = OrderService.buildDispatchedOrder(first);
+        var second = new Order(2L, "1234567891", "Title - Author", 9.90, 1, OrderStatus.ACCEPTED, Instant.EPOCH, Instant.EPOCH, 1);
+        storeLog.append(List.of(new StoreEntry.OrderPut(first)));
+        storeLog.append(List.of(new StoreEntry.OrderPut(dispatched)));
+
+        var from = storeLog.size();
+        var snapshot = storeLog.writeSnapshot(List.<StoreEntry>of(new StoreEntry.Sequences(1, 0),
+                new StoreEntry.OrderPut(dispatched)).iterator());
+        //snapshot을 쓰는 동안 커밋된 레코드
+        storeLog.append(List.of(new StoreEntry.OrderPut(second), new StoreEntry.OrderDelete(1L)));
+        storeLog.replaceWith(snapshot, from);
+        storeLog.close();
+
+        var replayed = new ArrayList<StoreEntry>();
+        var reopened = new EmbeddedStoreLog(path, 4096);
+        reopened.open((entry, size) -> replayed.add(entry));
+        reopened.close();
+        assertThat(replayed).containsExactly(new StoreEntry.Sequences(1, 0), new StoreEntry.OrderPut(dispatched),
+                new StoreEntry.OrderPut(second), new StoreEntry.OrderDelete(1L));
+    }
+
+    @Test
+    void whenStatsAddedThenAccumulatedAndTopBooksLimited() {
+        var orderStatsRepository = new EmbeddedOrderStatsRepository(store);
+        orderStatsRepository.addAll(List.of(new OrderStat("orders", "ACCEPTED", 1), new OrderStat("quantity", "1234567890", 1),
+                new OrderStat("quantity", "1234567891", 3))).block();
+        orderStatsRepository.addAll(List.of(new OrderStat("orders", "ACCEPTED", 1), new OrderStat("quantity", "1234567890", 5))).block();
+
+        StepVerifier.create(orderStatsRepository.findSummary(1).collectList())
+                .assertNext(stats -> assertThat(stats).containsExactlyInAnyOrder(
+                        new OrderStat("orders", "ACCEPTED", 2), new OrderStat("quantity", "1234567890", 6)))
+                .verifyComplete();
+    }
+
+    private void open() throws IOException {
+        store = new EmbeddedStore(orderProperties);
+        orderRepository = new AppendOnlyOrderRepository(store);
+        outboxRepository = new EmbeddedOutboxRepository(store);
+        idempotencyKeyRepository = new EmbeddedIdempotencyKeyRepository(store);
+        transactionalOperator = TransactionalOperator.create(new EmbeddedTransactionManager(store));
+    }
+
+    private void reopen() throws IOException {
+        store.stop();
+        open();
+    }
+
+    private static Order accepted() {
+        return Order.of("1234567890", "Title - Author", 9.90, 1, OrderStatus.ACCEPTED);
+    }
+}
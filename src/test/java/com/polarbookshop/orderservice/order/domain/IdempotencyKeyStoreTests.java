@@ -0,0 +1,90 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import com.polarbookshop.orderservice.config.OrderProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//같은 Idempotency-Key의 재시도는 처음 주문을 반환하고, 내용이 다른 요청은 메모리와 저장소 어느 쪽에서 찾더라도 거부하는지 확인
+class IdempotencyKeyStoreTests {
+    private static final OrderSubmission REQUEST = new OrderSubmission("1234567890", 1);
+
+    @TempDir
+    Path directory;
+
+    private final AtomicInteger submissions = new AtomicInteger();
+    private OrderProperties orderProperties;
+    private EmbeddedStore store;
+    private AppendOnlyOrderRepository orderRepository;
+    private EmbeddedIdempotencyKeyRepository idempotencyKeyRepository;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        orderProperties = new Binder(new MapConfigurationPropertySource(Map.of(
+                "polar.order.store.path", directory.resolve("orders.log").toString(),
+                "polar.order.store.initial-size", "4KB"
+        ))).bindOrCreate("polar.order", OrderProperties.class);
+        store = new EmbeddedStore(orderProperties);
+        orderRepository = new AppendOnlyOrderRepository(store);
+        idempotencyKeyRepository = new EmbeddedIdempotencyKeyRepository(store);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        store.stop();
+    }
+
+    @Test
+    void whenRetriedWithSameRequestThenFirstOrderReturned() {
+        var idempotencyKeyStore = newIdempotencyKeyStore();
+        var order = idempotencyKeyStore.submitOnce("key", REQUEST, () -> submit(idempotencyKeyStore, REQUEST)).block();
+
+        StepVerifier.create(idempotencyKeyStore.submitOnce("key", new OrderSubmission("1234567890", 1),
+                        () -> submit(idempotencyKeyStore, REQUEST)))
+                .expectNext(order)
+                .verifyComplete();
+        assertThat(submissions).hasValue(1);
+    }
+
+    @Test
+    void whenKeyReusedForDifferentRequestThenRejected() {
+        var idempotencyKeyStore = newIdempotencyKeyStore();
+        idempotencyKeyStore.submitOnce("key", REQUEST, () -> submit(idempotencyKeyStore, REQUEST)).block();
+        var differentRequest = new OrderSubmission("1234567890", 2);
+
+        //메모리에 남아 있는 키
+        StepVerifier.create(idempotencyKeyStore.submitOnce("key", differentRequest,
+                        () -> submit(idempotencyKeyStore, differentRequest)))
+                .expectError(IdempotencyKeyReusedException.class)
+                .verify();
+        //다른 인스턴스처럼 메모리가 비어 있어 저장소에서 찾은 키
+        var otherInstance = newIdempotencyKeyStore();
+        StepVerifier.create(otherInstance.submitOnce("key", differentRequest, () -> submit(otherInstance, differentRequest)))
+                .expectError(IdempotencyKeyReusedException.class)
+                .verify();
+        assertThat(submissions).hasValue(1);
+    }
+
+    private IdempotencyKeyStore newIdempotencyKeyStore() {
+        return new IdempotencyKeyStore(idempotencyKeyRepository, orderRepository, orderProperties, new SimpleMeterRegistry());
+    }
+
+    private Mono<Order> submit(IdempotencyKeyStore idempotencyKeyStore, OrderSubmission request) {
+        submissions.incrementAndGet();
+        return orderRepository.save(Order.of(request.isbn(), "Title - Author", 9.90, request.quantity(), OrderStatus.ACCEPTED))
+                .flatMap(order -> idempotencyKeyStore.record("key", request, order));
+    }
+}
@@ -0,0 +1,113 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import com.polarbookshop.orderservice.config.OrderProperties;
+import com.polarbookshop.orderservice.order.event.OrderDispatchedMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+
+//발송 메시지를 주문 id별 rail로 나누어 처리하고, 실패한 메시지만 dead-letter로 보내며 스트림이 계속되는지 확인
+class OrderDispatchConsumerTests {
+    private static final long FAILING_ORDER_ID = 13L;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<Long> deadLettered = new CopyOnWriteArrayList<>();
+    private OrderRepository orderRepository;
+    private OrderStatistics orderStatistics;
+    private OrderService orderService;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository = mock(OrderRepository.class);
+        //실패하는 주문 id가 포함된 UPDATE는 항상 실패
+        given(orderRepository.updateStatusToDispatched(any(), any())).willAnswer(invocation -> {
+            Long[] ids = invocation.getArgument(0);
+            if (Arrays.asList(ids).contains(FAILING_ORDER_ID)) {
+                return Flux.error(new IllegalStateException("Update failed"));
+            }
+            return Flux.fromArray(ids).map(OrderDispatchConsumerTests::dispatchedOrder);
+        });
+        var orderProperties = new Binder(new MapConfigurationPropertySource(Map.of(
+                "polar.order.dispatch.batch-size", "10",
+                "polar.order.dispatch.batch-timeout", "10ms",
+                "polar.order.dispatch.rails", "2",
+                "polar.order.dispatch.max-attempts", "2",
+                "polar.order.dispatch.retry-backoff", "1ms"
+        ))).bindOrCreate("polar.order", OrderProperties.class);
+        orderStatistics = new OrderStatistics(null, orderProperties);
+        orderService = new OrderService(orderRepository, null, null, null, orderProperties, new OrderMetrics(meterRegistry),
+                null, orderStatistics, new OrderUpdates(orderProperties, meterRegistry));
+    }
+
+    @Test
+    void whenOneMessageFailsThenOnlyItIsDeadLetteredAndOthersDispatched() {
+        var messages = Flux.range(1, 20).map(id -> new OrderDispatchedMessage((long) id));
+
+        StepVerifier.create(orderService.consumeOrderDispatchedEvent(messages, (message, exception) -> {
+                    deadLettered.add(message.orderId());
+                    return Mono.empty();
+                }).map(Order::id).collectList())
+                .assertNext(ids -> assertThat(ids).hasSize(19).doesNotContain(FAILING_ORDER_ID))
+                .verifyComplete();
+
+        assertThat(deadLettered).containsExactly(FAILING_ORDER_ID);
+        assertThat(meterRegistry.get("orders.dispatch.dead_lettered").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("orders.dispatch.pending").gauge().value()).isZero();
+        assertThat(meterRegistry.get("orders.dispatch.rail.pending").gauges()).hasSize(2)
+                .allSatisfy(gauge -> assertThat(gauge.value()).isZero());
+    }
+
+    @Test
+    void whenDeadLetterFailsThenStreamContinues() {
+        var messages = Flux.just(FAILING_ORDER_ID, 1L, 2L).map(OrderDispatchedMessage::new);
+
+        StepVerifier.create(orderService.consumeOrderDispatchedEvent(messages,
+                        (message, exception) -> Mono.error(new IllegalStateException("Broker unavailable")))
+                        .map(Order::id).collectList())
+                .assertNext(ids -> assertThat(ids).containsExactlyInAnyOrder(1L, 2L))
+                .verifyComplete();
+    }
+
+    @Test
+    void whenBatchRetriedThenDispatchedOrdersRecordedOnce() {
+        var attempts = new AtomicInteger();
+        //첫 시도는 주문 하나를 내보낸 뒤 실패하고, 재시도는 성공
+        willAnswer(invocation -> {
+            Long[] ids = invocation.getArgument(0);
+            var dispatchedOrders = Flux.fromArray(ids).map(OrderDispatchConsumerTests::dispatchedOrder);
+            return attempts.getAndIncrement() == 0
+                    ? dispatchedOrders.take(1).concatWith(Flux.error(new IllegalStateException("Update failed")))
+                    : dispatchedOrders;
+        }).given(orderRepository).updateStatusToDispatched(any(), any());
+        var messages = Flux.just(2L, 4L).map(OrderDispatchedMessage::new);
+
+        StepVerifier.create(orderService.consumeOrderDispatchedEvent(messages).map(Order::id).collectList())
+                .assertNext(ids -> assertThat(ids).containsExactlyInAnyOrder(2L, 4L))
+                .verifyComplete();
+
+        assertThat(attempts.get()).isGreaterThan(1);
+        assertThat(orderStatistics.stats().ordersByStatus()).containsEntry(OrderStatus.DISPATCHED, 2L);
+    }
+
+    private static Order dispatchedOrder(Long id) {
+        return new Order(id, "1234567890", "Title - Author", 9.90, 1, OrderStatus.DISPATCHED, Instant.now(), Instant.now(), 1);
+    }
+}
@@ -13,6 +13,11 @@ import org.testcontainers.junit.jupiter.Testcontainers;
 import org.testcontainers.utility.DockerImageName;
 import reactor.test.StepVerifier;
 
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
 //테스트 컨테이너에 기반한 Slice Test로 도커 엔진이 로컬 환경에서 실행중이어야 한다.
 
 @DataR2dbcTest //R2DBC 컴포넌트에 집중하는 테스트 클래스
@@ -26,6 +31,9 @@ public class OrderRepositoryR2dbcTests {
     @Autowired
     private OrderRepository orderRepository;
 
+    @Autowired
+    private OrderLineRepository orderLineRepository;
+
     @DynamicPropertySource //테스트 PostgreSQL 인스턴스에 연결하도록 R2DBC와 Flyway 설정을 변경
     static void postgresqlProperties(DynamicPropertyRegistry registry) {
         registry.add("spring.r2dbc.url", OrderRepositoryR2dbcTests::r2dbcUrl);
@@ -48,4 +56,108 @@ public class OrderRepositoryR2dbcTests {
                 .expectNextMatches(order -> order.status().equals(OrderStatus.REJECTED))
                 .verifyComplete(); //Reactive Stream이 성공적으로 완료됐는지 확인
     }
+
+    @Test
+    void findPageReturnsOrdersAfterCursor(){
+        var bookIsbn = "1234567891";
+        StepVerifier
+                .create(orderRepository.saveAll(List.of(
+                        OrderService.buildRejectedOrder(bookIsbn, 1),
+                        OrderService.buildRejectedOrder(bookIsbn, 2),
+                        OrderService.buildRejectedOrder(bookIsbn, 3))))
+                .expectNextCount(3)
+                .verifyComplete();
+
+        var firstPage = orderRepository.findPage(OrderStatus.REJECTED, bookIsbn, null, 2).collectList().block();
+        assertThat(firstPage).hasSize(2);
+        //다음 페이지는 첫 페이지의 마지막 주문 이후부터 조회
+        StepVerifier
+                .create(orderRepository.findPage(OrderStatus.REJECTED, bookIsbn, OrderCursor.of(firstPage.get(1)), 2))
+                .expectNextMatches(order -> order.quantity() == 1)
+                .verifyComplete();
+    }
+
+    @Test
+    void updateStatusToDispatchedSkipsRejectedOrders(){
+        var rejectedOrder = orderRepository.save(Order.of("1234567893", null, null, 1, OrderStatus.REJECTED)).block();
+
+        StepVerifier
+                .create(orderRepository.updateStatusToDispatched(new Long[]{rejectedOrder.id()}, Instant.now()))
+                .verifyComplete();
+        StepVerifier
+                .create(orderRepository.findById(rejectedOrder.id()))
+                .expectNextMatches(order -> order.status() == OrderStatus.REJECTED)
+                .verifyComplete();
+    }
+
+    @Test
+    void updateStatusToDispatchedIsIdempotent(){
+        var acceptedOrder = orderRepository.save(Order.of("1234567892", "Title - Author", 9.90, 1, OrderStatus.ACCEPTED)).block();
+        var orderIds = new Long[]{acceptedOrder.id()};
+
+        StepVerifier
+                .create(orderRepository.updateStatusToDispatched(orderIds, Instant.now()))
+                .expectNextMatches(order -> order.status().equals(OrderStatus.DISPATCHED)
+                        && order.version() == acceptedOrder.version() + 1)
+                .verifyComplete();
+        //같은 메시지를 다시 받으면 변경되는 주문이 없음
+        StepVerifier
+                .create(orderRepository.updateStatusToDispatched(orderIds, Instant.now()))
+                .verifyComplete();
+    }
+
+    @Test
+    void cartLinesInsertedTogetherAndFoundByOrderId(){
+        var cart = orderRepository.save(Order.of(null, null, null, 3, OrderStatus.ACCEPTED)).block();
+        var lines = List.of(
+                OrderLine.of(1, "1234567894", "Title - Author", 9.90, 2, OrderStatus.ACCEPTED),
+                OrderLine.of(2, "1234567895", null, null, 1, OrderStatus.REJECTED));
+
+        StepVerifier
+                .create(orderLineRepository.insertAll(cart.id(), lines))
+                .expectNextMatches(line -> line.orderId().equals(cart.id()) && line.lineNumber() == 1)
+                .expectNextMatches(line -> line.lineNumber() == 2 && line.status().equals(OrderStatus.REJECTED))
+                .verifyComplete();
+        StepVerifier
+                .create(orderLineRepository.findByOrderId(cart.id()).map(OrderLine::bookIsbn))
+                .expectNext("1234567894", "1234567895")
+                .verifyComplete();
+    }
+
+    @Test
+    void findCreatedBetweenStreamsOrdersInCreatedOrder(){
+        var from = Instant.now();
+        var orders = orderRepository.saveAll(List.of(
+                OrderService.buildRejectedOrder("1234567896", 1),
+                OrderService.buildRejectedOrder("1234567896", 2),
+                OrderService.buildRejectedOrder("1234567896", 3))).collectList().block();
+        var to = Instant.now().plusSeconds(1);
+
+        //fetchSize보다 결과가 많아도 커서에서 이어서 읽음
+        StepVerifier
+                .create(orderRepository.findCreatedBetween(from, to, OrderStatus.REJECTED, 1)
+                        .filter(order -> order.bookIsbn().equals("1234567896"))
+                        .map(Order::id))
+                .expectNext(orders.get(0).id(), orders.get(1).id(), orders.get(2).id())
+                .verifyComplete();
+    }
+
+    @Test
+    void archivedOrderIsStillFoundById(){
+        var acceptedOrder = orderRepository.save(Order.of("1234567893", "Title - Author", 9.90, 1, OrderStatus.ACCEPTED)).block();
+        orderRepository.updateStatusToDispatched(new Long[]{acceptedOrder.id()}, Instant.now()).blockLast();
+
+        //다른 테스트에서 발송된 주문도 함께 옮겨질 수 있음
+        StepVerifier
+                .create(orderRepository.archiveDispatchedBefore(Instant.now().plusSeconds(60), 100))
+                .expectNextMatches(archivedCount -> archivedCount >= 1)
+                .verifyComplete();
+        StepVerifier
+                .create(orderRepository.findPage(OrderStatus.DISPATCHED, "1234567893", null, 10))
+                .verifyComplete();
+        StepVerifier
+                .create(orderRepository.findById(acceptedOrder.id()))
+                .expectNextMatches(order -> order.status().equals(OrderStatus.DISPATCHED))
+                .verifyComplete();
+    }
 }
@@ -0,0 +1,179 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import com.polarbookshop.orderservice.config.OrderProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.DoubleAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+
+class OrderStatisticsTests {
+    private OrderStatsRepository orderStatsRepository;
+    private OrderStatistics orderStatistics;
+
+    @BeforeEach
+    void setUp() {
+        orderStatsRepository = mock(OrderStatsRepository.class);
+        //설정 파일 없이 @DefaultValue의 기본값으로 바인딩
+        var orderProperties = new Binder(new MapConfigurationPropertySource(Map.of()))
+                .bindOrCreate("polar.order", OrderProperties.class);
+        orderStatistics = new OrderStatistics(orderStatsRepository, orderProperties);
+    }
+
+    @Test
+    void whenOrdersSubmittedAndDispatchedThenStatsUpdated() {
+        orderStatistics.recordSubmitted(order("1234567890", 10.0, 2, OrderStatus.ACCEPTED));
+        orderStatistics.recordSubmitted(order("1234567891", null, 1, OrderStatus.REJECTED));
+        orderStatistics.recordDispatched(order("1234567890", 10.0, 2, OrderStatus.DISPATCHED));
+
+        var stats = orderStatistics.stats();
+
+        assertThat(stats.ordersByStatus()).containsEntry(OrderStatus.ACCEPTED, 0L)
+                .containsEntry(OrderStatus.REJECTED, 1L)
+                .containsEntry(OrderStatus.DISPATCHED, 1L);
+        assertThat(stats.revenue()).isEqualTo(20.0);
+    }
+
+    //발송 메시지가 거부된 주문을 가리켜도 상태가 바뀌지 않으므로 집계도 바뀌지 않음
+    @Test
+    void whenRejectedOrderDispatchedThenStatsUnchanged(@TempDir Path directory) throws IOException {
+        var orderProperties = new Binder(new MapConfigurationPropertySource(Map.of(
+                "polar.order.store.path", directory.resolve("orders.log").toString(),
+                "polar.order.store.initial-size", "4KB"
+        ))).bindOrCreate("polar.order", OrderProperties.class);
+        var store = new EmbeddedStore(orderProperties);
+        try {
+            var orderRepository = new AppendOnlyOrderRepository(store);
+            var accepted = orderRepository.save(order("1234567890", 10.0, 2, OrderStatus.ACCEPTED)).block();
+            var rejected = orderRepository.save(order("1234567891", null, 1, OrderStatus.REJECTED)).block();
+            orderStatistics.recordSubmitted(accepted);
+            orderStatistics.recordSubmitted(rejected);
+
+            orderRepository.updateStatusToDispatched(new Long[]{accepted.id(), rejected.id()}, Instant.now())
+                    .doOnNext(orderStatistics::recordDispatched)
+                    .blockLast();
+
+            assertThat(orderStatistics.stats().ordersByStatus()).containsEntry(OrderStatus.ACCEPTED, 0L)
+                    .containsEntry(OrderStatus.REJECTED, 1L)
+                    .containsEntry(OrderStatus.DISPATCHED, 1L);
+            assertThat(orderStatistics.stats().revenue()).isEqualTo(20.0);
+        } finally {
+            store.stop();
+        }
+    }
+
+    @Test
+    void whenCartSubmittedThenCountedOnceAndRevenueAddedPerAcceptedLine() {
+        var lines = List.of(
+                OrderLine.of(1, "1234567890", "Title - Author", 10.0, 2, OrderStatus.ACCEPTED),
+                OrderLine.of(2, "1234567891", null, null, 1, OrderStatus.REJECTED),
+                OrderLine.of(3, "1234567892", "Title - Author", 5.0, 1, OrderStatus.ACCEPTED));
+        orderStatistics.recordSubmitted(new CartOrder(Order.of(null, null, null, 3, OrderStatus.ACCEPTED), lines));
+
+        var stats = orderStatistics.stats();
+
+        assertThat(stats.ordersByStatus()).containsEntry(OrderStatus.ACCEPTED, 1L);
+        assertThat(stats.revenue()).isEqualTo(25.0);
+    }
+
+    @Test
+    void whenFlushedThenDeltasWrittenAndRollupReloaded() {
+        given(orderStatsRepository.addAll(anyList())).willReturn(Mono.empty());
+        given(orderStatsRepository.findSummary(anyInt())).willReturn(Flux.just(
+                new OrderStat("orders", "ACCEPTED", 5),
+                new OrderStat("revenue", "", 50.0),
+                new OrderStat("quantity", "1234567890", 5)
+        ));
+        orderStatistics.recordSubmitted(order("1234567890", 10.0, 1, OrderStatus.ACCEPTED));
+
+        StepVerifier.create(orderStatistics.flush()).verifyComplete();
+
+        //rollup 테이블에 이미 반영된 변경분은 다시 더하지 않음
+        var stats = orderStatistics.stats();
+        assertThat(stats.ordersByStatus()).containsEntry(OrderStatus.ACCEPTED, 5L);
+        assertThat(stats.revenue()).isEqualTo(50.0);
+        assertThat(stats.topBooks()).containsExactly(new OrderStats.BookSales("1234567890", 5));
+    }
+
+    @Test
+    void whenFlushFailsThenDeltasKept() {
+        given(orderStatsRepository.addAll(anyList())).willReturn(Mono.error(new IllegalStateException("Database unavailable")));
+        orderStatistics.recordSubmitted(order("1234567890", 10.0, 1, OrderStatus.ACCEPTED));
+
+        StepVerifier.create(orderStatistics.flush()).verifyComplete();
+
+        then(orderStatsRepository).should(never()).findSummary(anyInt());
+        assertThat(orderStatistics.stats().ordersByStatus()).containsEntry(OrderStatus.ACCEPTED, 1L);
+        assertThat(orderStatistics.stats().revenue()).isEqualTo(10.0);
+    }
+
+    @Test
+    void whenReloadFailsAfterWriteThenDeltasNotWrittenAgain() {
+        given(orderStatsRepository.addAll(anyList())).willReturn(Mono.empty());
+        given(orderStatsRepository.findSummary(anyInt())).willReturn(Flux.error(new IllegalStateException("Database unavailable")));
+        orderStatistics.recordSubmitted(order("1234567890", 10.0, 1, OrderStatus.ACCEPTED));
+
+        StepVerifier.create(orderStatistics.flush()).verifyComplete();
+        StepVerifier.create(orderStatistics.flush()).verifyComplete();
+
+        //이미 테이블에 더한 변경분은 다음 flush에서 다시 쓰지 않고, 조회할 때 한 번만 셈
+        then(orderStatsRepository).should(times(1)).addAll(anyList());
+        assertThat(orderStatistics.stats().ordersByStatus()).containsEntry(OrderStatus.ACCEPTED, 1L);
+        assertThat(orderStatistics.stats().revenue()).isEqualTo(10.0);
+    }
+
+    @Test
+    void whenRecordedWhileFlushingThenNoDeltaLost() throws InterruptedException {
+        var written = new DoubleAdder();
+        given(orderStatsRepository.addAll(anyList())).willAnswer(invocation -> {
+            List<OrderStat> deltas = invocation.getArgument(0);
+            deltas.stream()
+                    .filter(delta -> delta.metric().equals("orders") && delta.dimension().equals("ACCEPTED"))
+                    .forEach(delta -> written.add(delta.value()));
+            return Mono.empty();
+        });
+        given(orderStatsRepository.findSummary(anyInt())).willReturn(Flux.empty());
+        var threads = 4;
+        var ordersPerThread = 20_000;
+        var done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread(() -> {
+                for (int j = 0; j < ordersPerThread; j++) {
+                    orderStatistics.recordSubmitted(order("1234567890", 10.0, 1, OrderStatus.ACCEPTED));
+                }
+                done.countDown();
+            }).start();
+        }
+        while (done.getCount() > 0) {
+            orderStatistics.flush().block();
+        }
+        done.await();
+        orderStatistics.flush().block();
+
+        assertThat(written.sum()).isEqualTo(threads * ordersPerThread);
+    }
+
+    private static Order order(String bookIsbn, Double bookPrice, int quantity, OrderStatus status) {
+        return Order.of(bookIsbn, "Title - Author", bookPrice, quantity, status);
+    }
+}
@@ -0,0 +1,63 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import com.polarbookshop.orderservice.config.OrderProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderUpdatesTests {
+    private SimpleMeterRegistry meterRegistry;
+    private OrderUpdates orderUpdates;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        var orderProperties = new Binder(new MapConfigurationPropertySource(Map.of("polar.order.updates.buffer-size", "2")))
+                .bindOrCreate("polar.order", OrderProperties.class);
+        orderUpdates = new OrderUpdates(orderProperties, meterRegistry);
+    }
+
+    @Test
+    void whenFilteredThenOnlyMatchingUpdatesSent() {
+        StepVerifier.create(orderUpdates.updates(OrderStatus.DISPATCHED, "1234567890"))
+                .then(() -> {
+                    orderUpdates.publish(order(1L, "1234567890", OrderStatus.ACCEPTED));
+                    orderUpdates.publish(order(2L, "1234567891", OrderStatus.DISPATCHED));
+                    orderUpdates.publish(order(3L, "1234567890", OrderStatus.DISPATCHED));
+                })
+                .expectNextMatches(order -> order.id() == 3L)
+                .thenCancel()
+                .verify(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void whenSubscriberSlowThenOldestUpdatesDropped() {
+        //요청하지 않은 동안 변경은 버퍼(2개)에 쌓이다가 넘치면 오래된 것부터 버려짐
+        //StepVerifier는 onNext 안에서 다음 요청을 보내므로, 모두 발행한 뒤에 처음 요청해야 버퍼가 넘침
+        StepVerifier.create(orderUpdates.updates(null, null), 0)
+                .then(() -> {
+                    for (long id = 1; id <= 5; id++) {
+                        orderUpdates.publish(order(id, "1234567890", OrderStatus.ACCEPTED));
+                    }
+                })
+                .thenRequest(2)
+                .expectNextMatches(order -> order.id() == 4L)
+                .expectNextMatches(order -> order.id() == 5L)
+                .thenCancel()
+                .verify(Duration.ofSeconds(1));
+
+        assertThat(meterRegistry.counter("orders.stream.dropped").count()).isEqualTo(3);
+    }
+
+    private static Order order(Long id, String bookIsbn, OrderStatus status) {
+        return new Order(id, bookIsbn, "Title - Author", 9.90, 1, status, null, null, 1);
+    }
+}
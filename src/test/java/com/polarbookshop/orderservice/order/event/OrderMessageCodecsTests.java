@@ -0,0 +1,61 @@
+package com.polarbookshop.orderservice.order.event;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+//contentType 헤더에 따라 JSON 메시지와 바이너리 묶음 메시지를 모두 읽을 수 있는지 확인
+class OrderMessageCodecsTests {
+
+    private final OrderMessageCodecs codecs = new OrderMessageCodecs(List.of(
+            new JsonOrderMessageCodec(Jackson2ObjectMapperBuilder.json().build()),
+            new BinaryOrderMessageCodec()
+    ));
+
+    @Test
+    void whenBinaryEnvelopeDecodedThenAllOrderIdsReturnedInOrder() {
+        var orderIds = List.of(1_000_000L, 1_000_001L, 999_998L, 42L, Long.MAX_VALUE);
+        var codec = codecs.forContentType(BinaryOrderMessageCodec.CONTENT_TYPE);
+
+        var message = MessageBuilder.withPayload(codec.encode(orderIds))
+                .setHeader(MessageHeaders.CONTENT_TYPE, "application/vnd.polar.order-ids")
+                .build();
+
+        assertThat(codecs.decode(message)).isEqualTo(orderIds);
+    }
+
+    @Test
+    void whenJsonMessageWithoutContentTypeThenDecodedAsJson() {
+        var message = MessageBuilder.withPayload("{\"orderId\": 394}".getBytes(StandardCharsets.UTF_8)).build();
+
+        assertThat(codecs.decode(message)).containsExactly(394L);
+        assertThat(codecs.forContentType(MimeTypeUtils.APPLICATION_JSON).encode(List.of(394L)))
+                .asString(StandardCharsets.UTF_8).isEqualTo("{\"orderId\":394}");
+    }
+
+    @Test
+    void whenBinaryMessageTruncatedThenRejected() {
+        var codec = codecs.forContentType(BinaryOrderMessageCodec.CONTENT_TYPE);
+        var payload = codec.encode(List.of(1L, 2L, 3L));
+
+        assertThatIllegalArgumentException().isThrownBy(() -> codec.decode(Arrays.copyOf(payload, payload.length - 1)));
+    }
+
+    @Test
+    void whenContentTypeUnknownThenRejected() {
+        var message = MessageBuilder.withPayload(new byte[]{1})
+                .setHeader(MessageHeaders.CONTENT_TYPE, "application/x-protobuf")
+                .build();
+
+        assertThatIllegalArgumentException().isThrownBy(() -> codecs.decode(message));
+    }
+}
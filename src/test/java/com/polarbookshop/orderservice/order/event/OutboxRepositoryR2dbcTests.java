@@ -0,0 +1,61 @@
+package com.polarbookshop.orderservice.order.event;
+
+import com.polarbookshop.orderservice.config.DataConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.r2dbc.DataR2dbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+
+@DataR2dbcTest
+@Import(DataConfig.class)
+@Testcontainers
+public class OutboxRepositoryR2dbcTests {
+
+    @Container
+    static PostgreSQLContainer<?> postgresql = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    @DynamicPropertySource
+    static void postgresqlProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.r2dbc.url", OutboxRepositoryR2dbcTests::r2dbcUrl);
+        registry.add("spring.r2dbc.username", postgresql::getUsername);
+        registry.add("spring.r2dbc.password", postgresql::getPassword);
+        registry.add("spring.flyway.url", postgresql::getJdbcUrl);
+    }
+
+    private static String r2dbcUrl() {
+        return String.format("r2dbc:postgresql://%s:%s/%s", postgresql.getHost(),
+                postgresql.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT), postgresql.getDatabaseName());
+    }
+
+    @Test
+    void sentEventsAreNotReturnedAgain(){
+        StepVerifier
+                .create(outboxRepository.insertAll(new Long[]{1L, 2L}, Instant.now()))
+                .expectNext(2)
+                .verifyComplete();
+
+        var unsentEvents = outboxRepository.findUnsentForUpdate(10).collectList().block();
+        StepVerifier
+                .create(outboxRepository.markSent(new Long[]{unsentEvents.get(0).id()}, Instant.now()))
+                .expectNext(1)
+                .verifyComplete();
+
+        //발행된 것으로 표시한 이벤트는 다시 조회되지 않음
+        StepVerifier
+                .create(outboxRepository.findUnsentForUpdate(10))
+                .expectNextMatches(event -> event.id().equals(unsentEvents.get(1).id()))
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,140 @@
+package com.polarbookshop.orderservice.order.web;
+
+import com.polarbookshop.orderservice.config.OrderProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+//처리 중인 요청 수, R2DBC 연결 대기 수, 최근 응답 시간에 따라 /orders 요청을 받아들이거나 503으로 거절하는지 확인
+class AdmissionControlFilterTests {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger pendingAcquires = new AtomicInteger();
+    private final AdmissionControlFilter filter = new AdmissionControlFilter(new Binder(new MapConfigurationPropertySource(Map.of(
+            "polar.order.admission.write-limit", "2",
+            "polar.order.admission.read-limit", "4",
+            "polar.order.admission.export-limit", "1",
+            "polar.order.admission.write-pending-acquire-limit", "5",
+            "polar.order.admission.read-pending-acquire-limit", "20",
+            "polar.order.admission.write-latency-target", "10ms",
+            "polar.order.admission.retry-after", "2s"
+    ))).bindOrCreate("polar.order", OrderProperties.class).admission(), pendingAcquires::get, meterRegistry);
+
+    @Test
+    void whenWriteLimitReachedThenWritesShedAndReadsAdmitted() {
+        var inProgress = Sinks.<Void>empty();
+        filter.filter(post(), exchange -> inProgress.asMono()).subscribe();
+        filter.filter(post(), exchange -> inProgress.asMono()).subscribe();
+
+        var shed = post();
+        filter.filter(shed, exchange -> Mono.error(new AssertionError("The request should have been shed"))).block();
+        assertThat(shed.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(shed.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("2");
+        assertThat(meterRegistry.get("orders.admission.rejected").tags("lane", "write", "reason", "in_flight").counter().count())
+                .isEqualTo(1);
+
+        var read = MockServerWebExchange.from(MockServerHttpRequest.get("/orders"));
+        filter.filter(read, exchange -> Mono.empty()).block();
+        assertThat(read.getResponse().getStatusCode()).isNull();
+
+        //처리 중이던 쓰기가 끝나면 다시 받아들임
+        inProgress.tryEmitEmpty();
+        var admitted = post();
+        filter.filter(admitted, exchange -> Mono.empty()).block();
+        assertThat(admitted.getResponse().getStatusCode()).isNull();
+    }
+
+    @Test
+    void whenConnectionPoolBackedUpThenWritesShedBeforeReads() {
+        pendingAcquires.set(10);
+
+        var write = post();
+        filter.filter(write, exchange -> Mono.empty()).block();
+        var read = MockServerWebExchange.from(MockServerHttpRequest.get("/orders"));
+        filter.filter(read, exchange -> Mono.empty()).block();
+
+        assertThat(write.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(read.getResponse().getStatusCode()).isNull();
+        assertThat(meterRegistry.get("orders.admission.rejected").tags("lane", "write", "reason", "pool_pending").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void whenWritesSlowerThanTargetThenWriteLimitReduced() {
+        //목표(10ms)보다 훨씬 느린 응답으로 한도가 1까지 줄어듦
+        filter.filter(post(), exchange -> Mono.delay(Duration.ofMillis(200)).then()).block();
+        //doFinally는 block()이 돌아온 뒤에 실행될 수 있으므로 한도가 줄어들 때까지 기다림
+        await().atMost(Duration.ofSeconds(1)).untilAsserted(() ->
+                assertThat(meterRegistry.get("orders.admission.limit").tag("lane", "write").gauge().value()).isEqualTo(1));
+
+        var inProgress = Sinks.<Void>empty();
+        filter.filter(post(), exchange -> inProgress.asMono()).subscribe();
+        var shed = post();
+        filter.filter(shed, exchange -> Mono.empty()).block();
+
+        assertThat(shed.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(meterRegistry.get("orders.admission.rejected").tags("lane", "write", "reason", "latency").counter().count())
+                .isEqualTo(1);
+        inProgress.tryEmitEmpty();
+    }
+
+    @Test
+    void whenExportLimitReachedThenExportsShedAndReadsAdmitted() {
+        var inProgress = Sinks.<Void>empty();
+        filter.filter(export(), exchange -> inProgress.asMono()).subscribe();
+
+        var shed = export();
+        filter.filter(shed, exchange -> Mono.error(new AssertionError("The export should have been shed"))).block();
+        assertThat(shed.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(shed.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("2");
+        assertThat(meterRegistry.get("orders.admission.rejected").tags("lane", "export", "reason", "in_flight").counter().count())
+                .isEqualTo(1);
+
+        //내보내는 중인 요청은 읽기 lane의 한도를 차지하지 않음
+        assertThat(meterRegistry.get("orders.admission.in_flight").tag("lane", "read").gauge().value()).isZero();
+        var read = MockServerWebExchange.from(MockServerHttpRequest.get("/orders"));
+        filter.filter(read, exchange -> Mono.empty()).block();
+        assertThat(read.getResponse().getStatusCode()).isNull();
+
+        inProgress.tryEmitEmpty();
+        var admitted = export();
+        filter.filter(admitted, exchange -> Mono.empty()).block();
+        assertThat(admitted.getResponse().getStatusCode()).isNull();
+    }
+
+    @Test
+    void whenDisabledThenRequestsAdmittedRegardlessOfLimits() {
+        var disabled = new AdmissionControlFilter(new Binder(new MapConfigurationPropertySource(Map.of(
+                "polar.order.admission.enabled", "false",
+                "polar.order.admission.write-pending-acquire-limit", "5"
+        ))).bindOrCreate("polar.order", OrderProperties.class).admission(), pendingAcquires::get, meterRegistry);
+        pendingAcquires.set(10);
+
+        var write = post();
+        disabled.filter(write, exchange -> Mono.empty()).block();
+
+        assertThat(write.getResponse().getStatusCode()).isNull();
+    }
+
+    private static ServerWebExchange post() {
+        return MockServerWebExchange.from(MockServerHttpRequest.post("/orders"));
+    }
+
+    private static ServerWebExchange export() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/orders/export?from=2024-01-01T00:00:00Z&to=2024-02-01T00:00:00Z"));
+    }
+}
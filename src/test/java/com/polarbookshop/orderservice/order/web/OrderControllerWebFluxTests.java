@@ -1,16 +1,37 @@
 package com.polarbookshop.orderservice.order.web;
 
+import com.polarbookshop.orderservice.config.OrderProperties;
+import com.polarbookshop.orderservice.order.domain.CartOrder;
+import com.polarbookshop.orderservice.order.domain.IdempotencyKeyReusedException;
+import com.polarbookshop.orderservice.order.domain.IdempotencyKeyStore;
 import com.polarbookshop.orderservice.order.domain.Order;
+import com.polarbookshop.orderservice.order.domain.OrderCursor;
+import com.polarbookshop.orderservice.order.domain.OrderLine;
 import com.polarbookshop.orderservice.order.domain.OrderService;
+import com.polarbookshop.orderservice.order.domain.OrderStats;
 import com.polarbookshop.orderservice.order.domain.OrderStatus;
+import com.polarbookshop.orderservice.order.domain.OrderSubmission;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 
 /*
@@ -21,6 +42,7 @@ import static org.mockito.BDDMockito.given;
 * */
 
 @WebFluxTest(OrderController.class)  // OrderController를 대상으로 한 Spring WebFlux 컴포넌트에 집중하는 테스트 클래스
+@EnableConfigurationProperties(OrderProperties.class) // OrderController가 사용하는 설정 데이터 빈을 로드
 public class OrderControllerWebFluxTests {
 
     //WebClient의 변형으로 Restful 서비스 테스트를 쉽게 하기 위한 기능을 추가로 지니고 있음
@@ -30,6 +52,9 @@ public class OrderControllerWebFluxTests {
     @MockBean
     private OrderService orderService;
 
+    @MockBean
+    private IdempotencyKeyStore idempotencyKeyStore;
+
     @Test
     void whenBookNotAvailableThenRejectOrder(){
         var orderRequest = new OrderRequest("1234567890",3);
@@ -49,4 +74,205 @@ public class OrderControllerWebFluxTests {
                     assertThat(actualOrder.status()).isEqualTo(OrderStatus.REJECTED);
                 });
     }
+
+    @Test
+    void whenGetStatsThenReturnMaintainedStats(){
+        var stats = new OrderStats(Map.of(OrderStatus.ACCEPTED, 3L), 29.7,
+                List.of(new OrderStats.BookSales("1234567890", 3)));
+        given(orderService.getOrderStats()).willReturn(stats);
+
+        webTestClient
+                .get()
+                .uri("/orders/stats")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(OrderStats.class).isEqualTo(stats);
+    }
+
+    @Test
+    void whenStreamRequestedThenOrderUpdatesSentAsServerSentEvents(){
+        var now = Instant.now();
+        var dispatched = new Order(1L, "1234567890", "Title - Author", 9.90, 1, OrderStatus.DISPATCHED, now, now, 2);
+        given(orderService.getOrderUpdates(OrderStatus.DISPATCHED, "1234567890")).willReturn(Flux.just(dispatched));
+
+        webTestClient
+                .get()
+                .uri("/orders/stream?status=DISPATCHED&bookIsbn=1234567890")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM)
+                .returnResult(Order.class)
+                .getResponseBody()
+                .as(StepVerifier::create)
+                .expectNext(dispatched)
+                .verifyComplete();
+    }
+
+    @Test
+    void whenIdempotencyKeyGivenThenSubmittedOnce(){
+        var orderRequest = new OrderRequest("1234567890",3);
+        var expectedOrder = OrderService.buildRejectedOrder(orderRequest.isbn(), orderRequest.quantity());
+        given(idempotencyKeyStore.submitOnce(eq("order-1"), eq(new OrderSubmission("1234567890", 3)), any()))
+                .willReturn(Mono.just(expectedOrder));
+
+        webTestClient
+                .post()
+                .uri("/orders")
+                .header("Idempotency-Key", "order-1")
+                .bodyValue(orderRequest)
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectBody(Order.class).value(actualOrder -> assertThat(actualOrder.bookIsbn()).isEqualTo(orderRequest.isbn()));
+    }
+
+    @Test
+    void whenIdempotencyKeyReusedForDifferentRequestThenUnprocessableEntity(){
+        given(idempotencyKeyStore.submitOnce(eq("order-1"), any(), any()))
+                .willReturn(Mono.error(new IdempotencyKeyReusedException("order-1")));
+
+        webTestClient
+                .post()
+                .uri("/orders")
+                .header("Idempotency-Key", "order-1")
+                .bodyValue(new OrderRequest("1234567891", 1))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    @Test
+    void whenIdempotencyKeyBlankThenBadRequest(){
+        webTestClient
+                .post()
+                .uri("/orders")
+                .header("Idempotency-Key", " ")
+                .bodyValue(new OrderRequest("1234567890",3))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void whenBatchHasInvalidLineThenOnlyValidLinesSubmitted(){
+        var validRequest = new OrderRequest("1234567890", 1);
+        var invalidRequest = new OrderRequest("1234567891", 7);
+        var expectedOrder = OrderService.buildRejectedOrder(validRequest.isbn(), validRequest.quantity());
+        given(orderService.submitOrders(List.of(new OrderSubmission(validRequest.isbn(), validRequest.quantity()))))
+                .willReturn(Flux.just(expectedOrder));
+
+        webTestClient
+                .post()
+                .uri("/orders/batch")
+                .bodyValue(List.of(invalidRequest, validRequest))
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectBodyList(OrderBatchResult.class).value(results -> {
+                    assertThat(results).hasSize(2);
+                    assertThat(results.get(0).line()).isEqualTo(0);
+                    assertThat(results.get(0).order()).isNull();
+                    assertThat(results.get(0).errors()).containsExactly("You cannot order more than 5 items.");
+                    assertThat(results.get(1).line()).isEqualTo(1);
+                    assertThat(results.get(1).order().bookIsbn()).isEqualTo(validRequest.isbn());
+                });
+    }
+
+    @Test
+    void whenCartSubmittedThenOneOrderWithLinesReturned(){
+        var cartRequest = new CartRequest(List.of(new OrderRequest("1234567890", 2), new OrderRequest("1234567891", 1)));
+        var expectedCart = new CartOrder(new Order(1L, null, null, null, 3, OrderStatus.ACCEPTED, Instant.now(), Instant.now(), 1),
+                List.of(new OrderLine(1L, 1, "1234567890", "Title - Author", 9.90, 2, OrderStatus.ACCEPTED),
+                        new OrderLine(1L, 2, "1234567891", null, null, 1, OrderStatus.REJECTED)));
+        given(orderService.submitCart(List.of(new OrderSubmission("1234567890", 2), new OrderSubmission("1234567891", 1))))
+                .willReturn(Mono.just(expectedCart));
+
+        webTestClient
+                .post()
+                .uri("/orders/cart")
+                .bodyValue(cartRequest)
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectBody(CartOrder.class).value(cart -> {
+                    assertThat(cart.order().status()).isEqualTo(OrderStatus.ACCEPTED);
+                    assertThat(cart.lines()).extracting(OrderLine::lineNumber).containsExactly(1, 2);
+                });
+    }
+
+    @Test
+    void whenCartHasInvalidLineThenBadRequest(){
+        var cartRequest = new CartRequest(List.of(new OrderRequest("1234567890", 2), new OrderRequest("1234567891", 7)));
+
+        webTestClient
+                .post()
+                .uri("/orders/cart")
+                .bodyValue(cartRequest)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void whenExportRequestedThenOrdersStreamedAsNdjsonAttachment(){
+        var from = Instant.parse("2024-05-01T00:00:00Z");
+        var to = Instant.parse("2024-06-01T00:00:00Z");
+        var order = new Order(1L, "1234567890", "Title - Author", 9.90, 1, OrderStatus.DISPATCHED, from, from, 2);
+        given(orderService.exportOrders(from, to, OrderStatus.DISPATCHED)).willReturn(Flux.just(order, order));
+
+        webTestClient
+                .get()
+                .uri("/orders/export?from={from}&to={to}&status=DISPATCHED", from, to)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_NDJSON)
+                .expectHeader().valueEquals(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"orders.ndjson\"")
+                .expectBody(String.class).value(body -> assertThat(body.lines()).hasSize(2));
+    }
+
+    @Test
+    void whenExportFormatUnknownThenBadRequest(){
+        webTestClient
+                .get()
+                .uri("/orders/export?from=2024-05-01T00:00:00Z&to=2024-06-01T00:00:00Z&format=xml")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void whenBatchTooLargeThenBadRequest(){
+        var orderRequests = new OrderRequest[501]; //기본 최대 크기는 500
+        Arrays.fill(orderRequests, new OrderRequest("1234567890", 1));
+
+        webTestClient
+                .post()
+                .uri("/orders/batch")
+                .bodyValue(orderRequests)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void whenMoreOrdersThanLimitThenNextLinkReturned(){
+        var now = Instant.now();
+        var first = new Order(3L, "1234567890", "Title - Author", 9.90, 1, OrderStatus.ACCEPTED, now, now, 1);
+        var second = new Order(2L, "1234567890", "Title - Author", 9.90, 1, OrderStatus.ACCEPTED, now, now, 1);
+        var third = new Order(1L, "1234567890", "Title - Author", 9.90, 1, OrderStatus.ACCEPTED, now, now, 1);
+        //다음 페이지 여부를 확인하기 위해 limit보다 한 건 더 조회
+        given(orderService.getOrders(OrderStatus.ACCEPTED, null, null, 3))
+                .willReturn(Flux.just(first, second, third));
+
+        webTestClient
+                .get()
+                .uri("/orders?status=ACCEPTED&limit=2")
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectHeader().value(HttpHeaders.LINK, link ->
+                        assertThat(link).contains("next=" + OrderCursor.of(second).encode()).endsWith("rel=\"next\""))
+                .expectBodyList(Order.class).hasSize(2);
+    }
+
+    @Test
+    void whenCursorInvalidThenBadRequest(){
+        webTestClient
+                .get()
+                .uri("/orders?next=not-a-cursor")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
 }
@@ -0,0 +1,73 @@
+package com.polarbookshop.orderservice.order.web;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.polarbookshop.orderservice.order.domain.Order;
+import com.polarbookshop.orderservice.order.domain.OrderStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.stream.LongStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//주문을 여러 버퍼에 나누어 인코딩하고, 이어 붙이면 하나의 CSV/NDJSON(gzip) 파일이 되는지 확인
+class OrderExportWriterTests {
+    private static final Instant CREATED_DATE = Instant.parse("2024-05-01T10:15:30Z");
+
+    private final JsonMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+
+    @Test
+    void whenCsvExportedThenHeaderAndQuotedFieldsWritten() {
+        var orders = Flux.just(
+                new Order(1L, "1234567890", "Title, Volume 1 - Author", 9.90, 2, OrderStatus.ACCEPTED, CREATED_DATE, CREATED_DATE, 1),
+                new Order(2L, "1234567891", null, null, 1, OrderStatus.REJECTED, CREATED_DATE, CREATED_DATE, 1));
+
+        var csv = new String(join(OrderExportWriter.encode(orders, OrderExportFormat.CSV, objectMapper, false,
+                DefaultDataBufferFactory.sharedInstance, 1024)), StandardCharsets.UTF_8);
+
+        assertThat(csv.split("\r\n")).containsExactly(
+                "id,book_isbn,book_name,book_price,quantity,status,created_date,last_modified_date,version",
+                "1,1234567890,\"Title, Volume 1 - Author\",9.9,2,ACCEPTED,2024-05-01T10:15:30Z,2024-05-01T10:15:30Z,1",
+                "2,1234567891,,,1,REJECTED,2024-05-01T10:15:30Z,2024-05-01T10:15:30Z,1");
+    }
+
+    @Test
+    void whenExportLargerThanChunkThenGzippedAcrossManyBuffers() throws IOException {
+        var orders = Flux.fromStream(LongStream.rangeClosed(1, 2000).mapToObj(id ->
+                new Order(id, "%010d".formatted(id), "Title - Author", 9.90, 1, OrderStatus.ACCEPTED, CREATED_DATE, CREATED_DATE, 1)));
+
+        var buffers = OrderExportWriter.encode(orders, OrderExportFormat.NDJSON, objectMapper, true,
+                DefaultDataBufferFactory.sharedInstance, 512).collectList().block();
+
+        assertThat(buffers).hasSizeGreaterThan(1);
+        var ndjson = new String(gunzip(join(Flux.fromIterable(buffers))), StandardCharsets.UTF_8);
+        var lines = ndjson.lines().toList();
+        assertThat(lines).hasSize(2000);
+        assertThat(objectMapper.readValue(lines.get(1999), Order.class).id()).isEqualTo(2000L);
+    }
+
+    private static byte[] join(Flux<DataBuffer> buffers) {
+        var joined = DataBufferUtils.join(buffers).block();
+        var bytes = new byte[joined.readableByteCount()];
+        joined.read(bytes);
+        DataBufferUtils.release(joined);
+        return bytes;
+    }
+
+    private static byte[] gunzip(byte[] compressed) throws IOException {
+        var out = new ByteArrayOutputStream();
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            in.transferTo(out);
+        }
+        return out.toByteArray();
+    }
+}